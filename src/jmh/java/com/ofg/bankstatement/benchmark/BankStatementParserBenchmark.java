@@ -0,0 +1,71 @@
+package com.ofg.bankstatement.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ofg.bankstatement.parser.BankStatementParser;
+
+/**
+ * Imports a whole synthetic statement per operation through the streaming parser API.
+ * <p>
+ * One operation is one statement of {@link #transactions} payments, so the {@code gc.alloc.rate.norm} reported by
+ * {@code -prof gc} divided by {@link #transactions} is the allocation per parsed payment;
+ * {@link BankStatementParserBenchmarkReport} prints that figure next to the throughput and p99 latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class BankStatementParserBenchmark {
+
+    @Param({ "PKOBP", "PEKAO_SA", "BRE", "GETIN_DAY", "GETIN_MONTH", "ING", "ALIOR", "MILLENIUM", "KREDYT", "POCZTOWY" })
+    public String format;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int transactions;
+
+    private Path statement;
+
+    private BankStatementParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StatementFormat statementFormat = StatementFormat.valueOf(format);
+        statement = new SyntheticStatementGenerator().write(statementFormat, transactions, Files.createTempDirectory("statement-benchmark"));
+        parser = BenchmarkParsers.create(statementFormat);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(statement);
+        Files.deleteIfExists(statement.getParent());
+    }
+
+    @Benchmark
+    public void importBankStatement(Blackhole blackhole) throws IOException {
+        try (InputStream is = Files.newInputStream(statement)) {
+            parser.importBankStatement(is, blackhole::consume);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.ofg.bankstatement.benchmark;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link BankStatementParserBenchmark} with the GC profiler and prints one line per parser and statement size:
+ * statements/s, payments/s, p99 import time and bytes allocated per payment. Any JMH command line option may be passed
+ * through, e.g. {@code -p format=ING,ALIOR -p transactions=1000} to narrow the run.
+ */
+public class BankStatementParserBenchmarkReport {
+
+    private static final String ALLOCATION_PER_OPERATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(BankStatementParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        print(new Runner(options).run());
+    }
+
+    private static void print(Collection<RunResult> results) {
+        Map<String, Row> rows = new TreeMap<String, Row>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String format = params.getParam("format");
+            int transactions = Integer.parseInt(params.getParam("transactions"));
+            Row row = rows.computeIfAbsent(String.format("%-12s %9d", format, transactions), key -> new Row(transactions));
+
+            if (params.getMode() == Mode.Throughput) {
+                row.statementsPerSecond = result.getPrimaryResult().getScore();
+                row.bytesPerPayment = allocationPerOperation(result) / transactions;
+            } else if (params.getMode() == Mode.SampleTime) {
+                double p99 = result.getPrimaryResult().getStatistics().getPercentile(99);
+                row.p99Millis = p99 * TimeUnit.MILLISECONDS.convert(1, params.getTimeUnit());
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-12s %9s %14s %14s %12s %12s", "format", "payments", "statements/s", "payments/s", "p99 [ms]", "B/payment"));
+        for (Map.Entry<String, Row> entry : rows.entrySet()) {
+            Row row = entry.getValue();
+            System.out.println(String.format("%s %14.3f %14.0f %12.3f %12.0f", entry.getKey(), row.statementsPerSecond,
+                    row.statementsPerSecond * row.transactions, row.p99Millis, row.bytesPerPayment));
+        }
+    }
+
+    private static double allocationPerOperation(RunResult result) {
+        for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+            // newer JMH versions prefix profiler results with a middle dot
+            if (secondary.getKey().endsWith(ALLOCATION_PER_OPERATION)) {
+                return secondary.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static final class Row {
+
+        private final int transactions;
+
+        private double statementsPerSecond = Double.NaN;
+
+        private double p99Millis = Double.NaN;
+
+        private double bytesPerPayment = Double.NaN;
+
+        private Row(int transactions) {
+            this.transactions = transactions;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.ofg.bankstatement.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.Collections;
+import java.util.function.Function;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.MethodInterceptor;
+
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+import com.ofg.bankstatement.parser.BankStatementParser;
+import com.ofg.bankstatement.parser.CompanyBankAccounts;
+import com.ofg.loans.domain.model.payment.OperationalBank;
+import com.ofg.loans.pl.banks.BankFinderPl;
+
+/**
+ * Creates parsers the way the Spring context wires them, without starting it: most parsers are package-private
+ * components, the delegating MT940 parser gets its delegates registered and the {@link CompanyBankAccounts} look banks
+ * up in a {@link BankFinderPl} stub returning {@link StatementFormat#COMPANY_ACCOUNT} for every bank.
+ */
+final class BenchmarkParsers {
+
+    private static final String COMPANY_BANK_ACCOUNTS_FIELD = "companyBankAccounts";
+
+    private static final long NO_REFRESH = 0;
+
+    private static final String POCZTOWY_PARSER = "com.ofg.bankstatement.parser.mt940.pocztowy.PocztowyBankStatementParser";
+
+    private static final Objenesis objenesis = new ObjenesisStd();
+
+    private BenchmarkParsers() {
+    }
+
+    static BankStatementParser create(StatementFormat format) {
+        BankStatementParser parser = instantiate(format.getParserClassName());
+        if (format == StatementFormat.POCZTOWY) {
+            invoke(parser, "registerDelegate", instantiate(POCZTOWY_PARSER));
+        }
+        return parser;
+    }
+
+    private static BankStatementParser instantiate(String className) {
+        try {
+            Constructor<?> constructor = Class.forName(className).getDeclaredConstructor();
+            constructor.setAccessible(true);
+            BankStatementParser parser = (BankStatementParser) constructor.newInstance();
+            injectCompanyBankAccounts(parser);
+            return parser;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create parser " + className, e);
+        }
+    }
+
+    private static void injectCompanyBankAccounts(BankStatementParser parser) throws IllegalAccessException {
+        for (Class<?> type = parser.getClass(); type != Object.class; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(COMPANY_BANK_ACCOUNTS_FIELD);
+                field.setAccessible(true);
+                field.set(parser, new CompanyBankAccounts(bankFinder(), NO_REFRESH));
+                return;
+            } catch (NoSuchFieldException e) {
+                // not declared on this level
+            }
+        }
+    }
+
+    private static void invoke(Object target, String methodName, Object argument) {
+        for (Method method : target.getClass().getDeclaredMethods()) {
+            if (method.getName().equals(methodName)) {
+                try {
+                    method.setAccessible(true);
+                    method.invoke(target, argument);
+                    return;
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        throw new IllegalStateException("No method " + methodName + " on " + target.getClass());
+    }
+
+    private static BankFinderPl bankFinder() {
+        OperationalBank bank = stub(OperationalBank.class, method -> method.getName().equals("getBankAccounts") ? Collections.singletonList(
+                bankAccount(method)) : null);
+        return stub(BankFinderPl.class, method -> method.getName().equals("findBankByIbanCode") ? bank : null);
+    }
+
+    /**
+     * Bank account element of {@code OperationalBank.getBankAccounts()}, answering only {@code getAccountNumber()}.
+     */
+    private static Object bankAccount(Method getBankAccounts) {
+        Class<?> accountType = (Class<?>) ((ParameterizedType) getBankAccounts.getGenericReturnType()).getActualTypeArguments()[0];
+        return stub(accountType, method -> method.getName().equals("getAccountNumber") ? StatementFormat.COMPANY_ACCOUNT : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Function<Method, Object> answer) {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(type);
+        enhancer.setUseFactory(true);
+        enhancer.setCallbackType(MethodInterceptor.class);
+        Factory stub = (Factory) objenesis.newInstance(enhancer.createClass());
+        stub.setCallbacks(new Callback[] { (MethodInterceptor) (object, method, arguments, proxy) -> answer.apply(method) });
+        return (T) stub;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.ofg.bankstatement.benchmark;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ofg.bankstatement.parser.bre.BreRowDecoder;
+
+/**
+ * Decodes synthetic BRE rows already in memory, so the score is rows/s of the row decoder alone, without reading and
+ * decoding the file {@link BankStatementParserBenchmark} includes for the {@code BRE} format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BreRowDecoderBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private String[] rows;
+
+    private BreRowDecoder decoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SyntheticStatementGenerator.DEFAULT_SEED);
+        StringWriter statement = new StringWriter();
+        PrintWriter out = new PrintWriter(statement);
+        for (int i = 0; i < ROWS; i++) {
+            StatementFormat.BRE.writeTransaction(out, SyntheticTransaction.random(random));
+        }
+        out.flush();
+        rows = statement.toString().split("\r?\n");
+        decoder = BreRowDecoder.forCurrentThread();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decode(Blackhole blackhole) {
+        for (String row : rows) {
+            blackhole.consume(decoder.decode(row));
+        }
+    }
+
+}
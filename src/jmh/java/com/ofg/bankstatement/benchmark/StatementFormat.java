@@ -0,0 +1,322 @@
+package com.ofg.bankstatement.benchmark;
+
+import java.io.PrintWriter;
+import java.time.format.DateTimeFormatter;
+
+import com.ofg.loans.pl.db.MiniCreditProductBankAccountsFixture;
+
+/**
+ * Layout and encoding of the statement files handled by each parser, as far as the parsers read them.
+ */
+public enum StatementFormat {
+
+    PKOBP("com.ofg.bankstatement.parser.pkobp.PkobpCsvBankStatementParser", "ISO-8859-2", "historia_120202010908_20141031.csv") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            line(out, "\"Data operacji\",\"Data waluty\",\"Typ transakcji\",\"Opis transakcji\",\"Dane kontrahenta\",\"Tytuł\",\"Kwota\",\"Waluta\"");
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            String date = transaction.bookingDate.format(ISO_DATE);
+            if (transaction.incoming) {
+                line(out, "\"" + date + "\",\"" + date + "\",\"Wpływ na rachunek\",\"Nr rach. przeciwst.: " + transaction.payerAccount
+                        + "\",\"Dane adr. rach. przeciwst.:  " + transaction.payerName + "  " + transaction.payerAddress() + "\",\"Tytuł:  "
+                        + transaction.title + "\",\"+" + transaction.amount() + "\",\"PLN\"");
+            } else {
+                line(out, "\"" + date + "\",\"" + date + "\",\"Opłata\",\"Opłata za przelew\",\"-" + transaction.amount() + "\",\"PLN\",\""
+                        + transaction.title + "\",\"\"");
+            }
+        }
+    },
+
+    PEKAO_SA("com.ofg.bankstatement.parser.pekao.PekaoSaBankStatementParser", "ISO-8859-2", "export20141031.csv") {
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            String date = transaction.bookingDate.format(ISO_DATE);
+            line(out, "\"" + transaction.payerAddress() + "\";\"" + date + "\";\"" + date + "\";\"" + transaction.signedAmount() + "\";\""
+                    + transaction.payerName + " \";\"" + transaction.payerAccount + "\";\"\";\"" + COMPANY_ACCOUNT + "\";\"\";\"\";\"\";\""
+                    + transaction.title + "\"");
+        }
+    },
+
+    BRE("com.ofg.bankstatement.parser.bre.BreBankStatementParser", "Cp852", "historia_20141031.dat") {
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            String counterparty = transaction.incoming ? "PRZELEW PRZYCHODZĄCY z rach.: " + transaction.payerAccount + "; od: "
+                    : "PRZELEW WYCHODZĄCY na rach.: " + transaction.payerAccount + "; dla: ";
+            line(out, "0001 | " + transaction.bookingDate.format(BRE_DATE) + " | " + COMPANY_ACCOUNT + " | " + transaction.signedAmount() + " | PLN | "
+                    + counterparty + transaction.payerName + " " + transaction.payerAddress() + "; tyt.: " + transaction.title + "; TNR: "
+                    + transaction.reference);
+        }
+    },
+
+    GETIN_DAY("com.ofg.bankstatement.parser.getin.GetinBankDayStatementParser", "ISO-8859-2", "wyciagi_biezace_20141031.xml") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            line(out, "<?xml version=\"1.0\" encoding=\"ISO-8859-2\"?>");
+            line(out, "<OPERACJE num=\"1\">");
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            line(out, "<OPERACJA><ORD>1</ORD><ID_TRANSAKCJI>" + transaction.reference + "</ID_TRANSAKCJI><ID_AN_DEF>0</ID_AN_DEF><DATA_WALUTY>"
+                    + transaction.bookingDate.format(ISO_DATE) + "</DATA_WALUTY><TRESC1>" + transaction.title
+                    + "</TRESC1><TRESC2></TRESC2><TRESC3></TRESC3><TRESC4></TRESC4><KWOTA>" + transaction.amount() + "</KWOTA><WALUTA>PLN</WALUTA><NAZWA1>"
+                    + transaction.payerName + "</NAZWA1><NAZWA2>" + transaction.payerStreet + "</NAZWA2><NAZWA3>" + transaction.payerCity
+                    + "</NAZWA3><NAZWA4></NAZWA4><STRONA>" + (transaction.incoming ? "M" : "W") + "</STRONA><RACHUNEK>" + transaction.payerAccount
+                    + "</RACHUNEK><BANK>" + transaction.payerBranchCode() + "</BANK></OPERACJA>");
+        }
+
+        @Override
+        void writeFooter(PrintWriter out) {
+            line(out, "</OPERACJE>");
+        }
+    },
+
+    GETIN_MONTH("com.ofg.bankstatement.parser.getin.GetinBankMonthStatementParser", "ISO-8859-2", "wyciagi_20141031.xml") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            line(out, "<?xml version=\"1.0\" encoding=\"ISO-8859-2\"?>");
+            line(out, "<WYCIAGI data_od=\"2014-10-01\" data_do=\"2014-10-31\" rachunek=\"" + COMPANY_ACCOUNT + "\" waluta=\"PLN\" nazwa=\"RACHUNEK FIRMOWY\">");
+            line(out, "<WYCIAG data_od=\"2014-10-01\" data_do=\"2014-10-31\" rachunek=\"" + COMPANY_ACCOUNT + "\" waluta=\"PLN\">");
+            line(out, "<SALDO_OTWARCIA><KWOTA>0.00</KWOTA><STRONA>C</STRONA></SALDO_OTWARCIA>");
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            String date = transaction.bookingDate.format(ISO_DATE);
+            line(out, "<OPERACJA><POZYCJA>1</POZYCJA><DATA_WALUTY>" + date + "</DATA_WALUTY><DATA_TRANSAKCJI>" + date
+                    + "</DATA_TRANSAKCJI><OPIS>PRZELEW</OPIS><BANK>" + transaction.payerBranchCode() + "</BANK><RACHUNEK>" + transaction.payerAccount
+                    + "</RACHUNEK><KWOTA>" + transaction.amount() + "</KWOTA><STRONA>" + (transaction.incoming ? "C" : "D")
+                    + "</STRONA><WALUTA>PLN</WALUTA><NAZWA1>" + transaction.payerName + "</NAZWA1><NAZWA2>" + transaction.payerStreet + "</NAZWA2><NAZWA3>"
+                    + transaction.payerCity + "</NAZWA3><NAZWA4></NAZWA4><TRESC1>" + transaction.title
+                    + "</TRESC1><TRESC2></TRESC2><TRESC3></TRESC3><TRESC4></TRESC4></OPERACJA>");
+        }
+
+        @Override
+        void writeFooter(PrintWriter out) {
+            line(out, "</WYCIAG>");
+            line(out, "</WYCIAGI>");
+        }
+    },
+
+    ING("com.ofg.bankstatement.parser.mt940.ing.IngBankStatementParser", "Cp852", "MT942_M_20141031.txt") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            line(out, ":20:MT942");
+            line(out, ":25:/PL" + COMPANY_ACCOUNT);
+            line(out, ":28C:1");
+            line(out, ":13:1410310000");
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            line(out, ":61:" + transaction.bookingDate.format(MT940_DATE) + transaction.bookingDate.format(MT940_ENTRY_DATE)
+                    + (transaction.incoming ? "C" : "D") + transaction.amount() + "NTRFNONREF");
+            line(out, ":86:051~00TRF");
+            line(out, "~20" + transaction.title);
+            line(out, "~21");
+            line(out, "~29" + transaction.payerAccount);
+            line(out, "~31" + transaction.payerBranchCode());
+            line(out, "~32" + transaction.payerName);
+            line(out, "~33" + transaction.payerAddress());
+        }
+
+        @Override
+        void writeFooter(PrintWriter out) {
+            line(out, "-");
+        }
+    },
+
+    ALIOR("com.ofg.bankstatement.parser.mt940.alior.AliorBankStatementParser", "windows-1250", "export20141031.sta") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            line(out, ":20:ST141031");
+            line(out, ":25:/PL" + COMPANY_ACCOUNT);
+            line(out, ":28C:00001");
+            line(out, ":13D:1410310000+0100");
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            writeMt940Transaction(out, transaction);
+            line(out, "<38" + transaction.payerAccount);
+            line(out, "<63" + transaction.reference);
+        }
+
+        @Override
+        void writeFooter(PrintWriter out) {
+            line(out, ":90D:0PLN0,00");
+            line(out, ":90C:0PLN0,00");
+        }
+    },
+
+    MILLENIUM("com.ofg.bankstatement.parser.mt940.millenium.MilleniumBankStatementParser", "windows-1250", "Historia_transakcji_20141031.sta") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            writeMt940Header(out);
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            writeMt940Transaction(out, transaction);
+            line(out, "<38" + transaction.payerAccount);
+            line(out, "<63" + transaction.reference);
+        }
+
+        @Override
+        void writeFooter(PrintWriter out) {
+            writeMt940Footer(out);
+        }
+    },
+
+    KREDYT("com.ofg.bankstatement.parser.mt940.kredyt.KredytBankStatementParser", "windows-1250", "60005341PLN-20141031.MT") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            writeMt940Header(out);
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            // BZ WBK business codes: 56C1 is an incoming transfer, B130 a fee
+            line(out, ":61:" + transaction.bookingDate.format(MT940_DATE) + (transaction.incoming ? "CN" + transaction.amount() + "56C1" : "DN"
+                    + transaction.amount() + "B130") + "NONREF");
+            line(out, ":86:>20" + transaction.title);
+            line(out, ">31" + transaction.payerAccount);
+            line(out, ">32" + transaction.payerName + " " + transaction.payerAddress());
+        }
+
+        @Override
+        void writeFooter(PrintWriter out) {
+            writeMt940Footer(out);
+        }
+    },
+
+    POCZTOWY("com.ofg.bankstatement.parser.mt940.Mt940DelegatingBankStatementParser", "UTF8", "mt940_20141031.txt") {
+
+        @Override
+        void writeHeader(PrintWriter out) {
+            line(out, ":20:MT940");
+            line(out, ":25:" + MiniCreditProductBankAccountsFixture.POCZTOWY_ACCOUNT.substring(2));
+            line(out, ":28C:00001");
+            line(out, ":60F:C141001PLN0,00");
+        }
+
+        @Override
+        void writeTransaction(PrintWriter out, SyntheticTransaction transaction) {
+            line(out, ":61:" + transaction.bookingDate.format(MT940_DATE) + transaction.bookingDate.format(MT940_ENTRY_DATE)
+                    + (transaction.incoming ? "C" : "D") + transaction.amount());
+            line(out, ":86:051");
+            line(out, "<00PRZELEW KRAJOWY");
+            line(out, "<20" + transaction.title);
+            line(out, "<27" + transaction.payerName);
+            line(out, "<28" + transaction.payerStreet);
+            line(out, "<29" + transaction.payerCity);
+            line(out, "<31" + transaction.payerAccount);
+            line(out, "<63" + transaction.reference);
+        }
+
+        @Override
+        void writeFooter(PrintWriter out) {
+            writeMt940Footer(out);
+        }
+    };
+
+    static final String COMPANY_ACCOUNT = "12114020040000310212345678";
+
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    private static final DateTimeFormatter ISO_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final DateTimeFormatter BRE_DATE = DateTimeFormatter.ofPattern("dd/MM/yy");
+
+    private static final DateTimeFormatter MT940_DATE = DateTimeFormatter.ofPattern("yyMMdd");
+
+    private static final DateTimeFormatter MT940_ENTRY_DATE = DateTimeFormatter.ofPattern("MMdd");
+
+    private final String parserClassName;
+
+    private final String encoding;
+
+    private final String fileName;
+
+    StatementFormat(String parserClassName, String encoding, String fileName) {
+        this.parserClassName = parserClassName;
+        this.encoding = encoding;
+        this.fileName = fileName;
+    }
+
+    public String getParserClassName() {
+        return parserClassName;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    void writeHeader(PrintWriter out) {
+    }
+
+    abstract void writeTransaction(PrintWriter out, SyntheticTransaction transaction);
+
+    void writeFooter(PrintWriter out) {
+    }
+
+    /**
+     * MT940 header of the parsers keeping the default :60F: / :62F: framing.
+     */
+    static void writeMt940Header(PrintWriter out) {
+        line(out, ":20:ST141031");
+        line(out, ":25:/PL" + COMPANY_ACCOUNT);
+        line(out, ":28C:00001");
+        line(out, ":60F:C141001PLN0,00");
+    }
+
+    static void writeMt940Footer(PrintWriter out) {
+        line(out, ":62F:C141031PLN0,00");
+    }
+
+    /**
+     * :61: / :86: lines with the {@code <nn} sub-fields read by {@code Mt940BankStatementParser}.
+     */
+    static void writeMt940Transaction(PrintWriter out, SyntheticTransaction transaction) {
+        line(out, ":61:" + transaction.bookingDate.format(MT940_DATE) + transaction.bookingDate.format(MT940_ENTRY_DATE)
+                + (transaction.incoming ? "CN" : "DN") + transaction.amount() + "NTRFNONREF");
+        line(out, ":86:051");
+        line(out, "<00PRZELEW KRAJOWY");
+        line(out, "<10" + transaction.reference.substring(0, 10));
+        line(out, "<20" + transaction.title);
+        line(out, "<21");
+        line(out, "<22");
+        line(out, "<23");
+        line(out, "<24");
+        line(out, "<25");
+        line(out, "<26");
+        line(out, "<27" + transaction.payerName);
+        line(out, "<28" + transaction.payerStreet);
+        line(out, "<29" + transaction.payerCity);
+        line(out, "<30" + transaction.payerBranchCode());
+        line(out, "<31" + transaction.payerClientAccount());
+        line(out, "<32" + transaction.payerName);
+    }
+
+    static void line(PrintWriter out, String line) {
+        out.print(line);
+        out.print(LINE_SEPARATOR);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.ofg.bankstatement.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Writes statement files with a given number of random transactions in the layout and encoding of a
+ * {@link StatementFormat}. The same seed always produces the same file.
+ * <p>
+ * Run {@link #main(String[])} with a target directory and transaction count to dump one file per format, e.g. to
+ * profile a parser outside of JMH.
+ */
+public class SyntheticStatementGenerator {
+
+    public static final long DEFAULT_SEED = 20141031L;
+
+    private final long seed;
+
+    public SyntheticStatementGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public SyntheticStatementGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void write(StatementFormat format, int transactions, OutputStream os) throws IOException {
+        Preconditions.checkArgument(transactions >= 0, "transactions count can't be negative");
+
+        Random random = new Random(seed);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(os, format.getEncoding()), 64 * 1024));
+        format.writeHeader(out);
+        for (int i = 0; i < transactions; i++) {
+            format.writeTransaction(out, SyntheticTransaction.random(random));
+        }
+        format.writeFooter(out);
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Writing " + format + " statement failed");
+        }
+    }
+
+    public Path write(StatementFormat format, int transactions, Path directory) throws IOException {
+        Path statement = directory.resolve(transactions + "_" + format.getFileName());
+        try (OutputStream os = Files.newOutputStream(statement)) {
+            write(format, transactions, os);
+        }
+        return statement;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Preconditions.checkArgument(args.length == 2, "usage: SyntheticStatementGenerator <target directory> <transactions>");
+
+        Path directory = Files.createDirectories(Paths.get(args[0]));
+        int transactions = Integer.parseInt(args[1]);
+        SyntheticStatementGenerator generator = new SyntheticStatementGenerator();
+        for (StatementFormat format : StatementFormat.values()) {
+            System.out.println(generator.write(format, transactions, directory));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.ofg.bankstatement.benchmark;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * One randomly generated payment, rendered by every {@link StatementFormat} in its own layout.
+ */
+final class SyntheticTransaction {
+
+    private static final String[] FIRST_NAMES = { "JAN", "ANNA", "PIOTR", "KATARZYNA", "ŁUKASZ", "MAŁGORZATA", "PAWEŁ", "JOLANTA", "GRZEGORZ",
+            "ŻANETA", "MICHAŁ", "AGNIESZKA" };
+
+    private static final String[] LAST_NAMES = { "KOWALSKI", "NOWAK", "WIŚNIEWSKA", "WÓJCIK", "KOWALCZYK", "KAMIŃSKI", "LEWANDOWSKA",
+            "ZIELIŃSKI", "SZYMAŃSKA", "WOŹNIAK", "DĄBROWSKI", "BRZĘCZYSZCZYKIEWICZ" };
+
+    private static final String[] STREETS = { "UL. DŁUGA", "UL. KRÓLEWSKA", "UL. ŻÓŁKIEWSKIEGO", "OS. SŁONECZNE", "UL. MARSZAŁKOWSKA",
+            "UL. GDAŃSKA", "WS. ŚWIĘTOKRZYSKA" };
+
+    private static final String[] CITIES = { "00-950 WARSZAWA", "30-001 KRAKÓW", "90-001 ŁÓDŹ", "80-001 GDAŃSK", "50-001 WROCŁAW",
+            "60-001 POZNAŃ", "15-001 BIAŁYSTOK" };
+
+    private static final String[] TITLES = { "SPŁATA POŻYCZKI NR ", "RATA ZA UMOWĘ ", "PRZEDŁUŻENIE POŻYCZKI ", "ZWROT NADPŁATY " };
+
+    private static final LocalDate FIRST_BOOKING_DATE = LocalDate.of(2014, 10, 1);
+
+    final LocalDate bookingDate;
+
+    final long amountInCents;
+
+    final boolean incoming;
+
+    final String payerName;
+
+    final String payerStreet;
+
+    final String payerCity;
+
+    final String payerAccount;
+
+    final String title;
+
+    final String reference;
+
+    private SyntheticTransaction(LocalDate bookingDate, long amountInCents, boolean incoming, String payerName, String payerStreet,
+            String payerCity, String payerAccount, String title, String reference) {
+        this.bookingDate = bookingDate;
+        this.amountInCents = amountInCents;
+        this.incoming = incoming;
+        this.payerName = payerName;
+        this.payerStreet = payerStreet;
+        this.payerCity = payerCity;
+        this.payerAccount = payerAccount;
+        this.title = title;
+        this.reference = reference;
+    }
+
+    static SyntheticTransaction random(Random random) {
+        String payerName = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+        String payerStreet = pick(random, STREETS) + " " + (1 + random.nextInt(150));
+        return new SyntheticTransaction(FIRST_BOOKING_DATE.plusDays(random.nextInt(60)), 100 + random.nextInt(500000), random.nextInt(10) > 0,
+                payerName, payerStreet, pick(random, CITIES), digits(random, 26), pick(random, TITLES) + digits(random, 9), digits(random, 22));
+    }
+
+    String payerAddress() {
+        return payerStreet + " " + payerCity;
+    }
+
+    /**
+     * Amount with a comma as decimal separator, as all supported banks print it.
+     */
+    String amount() {
+        return amountInCents / 100 + "," + String.format("%02d", amountInCents % 100);
+    }
+
+    String signedAmount() {
+        return (incoming ? "" : "-") + amount();
+    }
+
+    /**
+     * Bank branch code part of the payer account (digits 3-10 of the NRB number).
+     */
+    String payerBranchCode() {
+        return payerAccount.substring(2, 10);
+    }
+
+    String payerClientAccount() {
+        return payerAccount.substring(10);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+
+}
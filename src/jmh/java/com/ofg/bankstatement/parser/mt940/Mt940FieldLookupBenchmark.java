@@ -0,0 +1,73 @@
+package com.ofg.bankstatement.parser.mt940;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ofg.bankstatement.util.BanksUtils;
+
+/**
+ * Compares reading the sub-fields of one MT940 transaction block by rescanning its lines for every field with reading
+ * them through a {@link Mt940Fields} index built once per block.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Mt940FieldLookupBenchmark {
+
+    private static final String[] LOOKED_UP_FIELDS = { "<20", "<27", "<28", "<29", "<30", "<31", "<63" };
+
+    private final List<String> statementLines = Arrays.asList(
+            ":61:1410021002CN123,45S05100000000000000",
+            ":86:051",
+            "<00PRZELEW KRAJOWY",
+            "<10000000001",
+            "<20SPLATA POZYCZKI NR 123456789",
+            "<21JAN KOWALSKI",
+            "<22",
+            "<23",
+            "<24",
+            "<25",
+            "<26",
+            "<27JAN KOWALSKI",
+            "<28UL. DLUGA 12 M. 4",
+            "<2900-950 WARSZAWA",
+            "<3010901014",
+            "<310000000012345678",
+            "<32JAN KOWALSKI",
+            "<33",
+            "<38PL12109010140000000012345678",
+            "<60",
+            "<6300000000123456789");
+
+    /**
+     * Lookup pattern of the parser before the index: the payer details were read twice, so {@code <27}, {@code <28}
+     * and {@code <29} were scanned for twice.
+     */
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (String field : LOOKED_UP_FIELDS) {
+            blackhole.consume(BanksUtils.getFieldValue(statementLines, field));
+        }
+        blackhole.consume(BanksUtils.getFieldValue(statementLines, "<27"));
+        blackhole.consume(BanksUtils.getFieldValue(statementLines, "<28"));
+        blackhole.consume(BanksUtils.getFieldValue(statementLines, "<29"));
+    }
+
+    @Benchmark
+    public void indexedLookup(Blackhole blackhole) {
+        Mt940Fields fields = new Mt940Fields(statementLines);
+        for (String field : LOOKED_UP_FIELDS) {
+            blackhole.consume(fields.getValue(field));
+        }
+    }
+
+}
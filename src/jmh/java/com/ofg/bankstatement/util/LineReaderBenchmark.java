@@ -0,0 +1,100 @@
+package com.ofg.bankstatement.util;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.ofg.bankstatement.benchmark.StatementFormat;
+import com.ofg.bankstatement.benchmark.SyntheticStatementGenerator;
+
+/**
+ * Reads the non blank lines of 1 MiB of a synthetic statement per operation, so {@code gc.alloc.rate.norm} reported by
+ * {@code -prof gc} is the allocation per MiB of statement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LineReaderBenchmark {
+
+    private static final int STATEMENT_SIZE = 1024 * 1024;
+
+    @Param({ "MILLENIUM", "PKOBP", "BRE" })
+    public String format;
+
+    private byte[] statement;
+
+    private String encoding;
+
+    @Setup
+    public void setUp() throws IOException {
+        StatementFormat statementFormat = StatementFormat.valueOf(format);
+        ByteArrayOutputStream os = new ByteArrayOutputStream(2 * STATEMENT_SIZE);
+        // every format writes more than 100 bytes per transaction
+        new SyntheticStatementGenerator().write(statementFormat, STATEMENT_SIZE / 100, os);
+        byte[] bytes = os.toByteArray();
+        int end = STATEMENT_SIZE;
+        while (bytes[end - 1] != '\n') {
+            end--;
+        }
+        statement = Arrays.copyOf(bytes, end);
+        encoding = statementFormat.getEncoding();
+    }
+
+    /**
+     * {@code InputStreamUtils.readLines} before {@link LineReader}: every line read into a list, trimmed to test for
+     * emptiness and the survivors copied into a second list.
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void readLinesWithFilter(Blackhole blackhole) throws IOException {
+        List<String> lines = IOUtils.readLines(new ByteArrayInputStream(statement), encoding);
+        List<String> notEmpty = Lists.newArrayList(Iterables.filter(lines, line -> line != null && !line.trim().isEmpty()));
+        for (String line : notEmpty) {
+            blackhole.consume(line);
+        }
+    }
+
+    /**
+     * {@code InputStreamUtils.forEachLine} before {@link LineReader}: one String per line plus a trimmed copy.
+     */
+    @Benchmark
+    public void bufferedReaderLines(Blackhole blackhole) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(statement), encoding));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                blackhole.consume(line);
+            }
+        }
+    }
+
+    @Benchmark
+    public void lineReaderViews(Blackhole blackhole) throws IOException {
+        try (LineReader reader = new LineReader(new ByteArrayInputStream(statement), Charset.forName(encoding))) {
+            LineReader.Line line;
+            while ((line = reader.readNonBlankLine()) != null) {
+                blackhole.consume(line.length());
+            }
+        }
+    }
+
+}
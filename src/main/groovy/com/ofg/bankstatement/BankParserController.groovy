@@ -1,13 +1,163 @@
 package com.ofg.bankstatement
 
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.ofg.bankstatement.importing.ImportJob
+import com.ofg.bankstatement.importing.PaymentJsonWriter
+import com.ofg.bankstatement.importing.StatementImportWorker
+import com.ofg.bankstatement.importing.StatementResultCache
+import com.ofg.bankstatement.parser.BankStatementParserFactory
+import com.ofg.bankstatement.parser.DetectedStatement
+import com.ofg.bankstatement.util.InputStreamUtils
+import com.ofg.loans.api.beans.payment.PaymentInfo
 import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.web.bind.annotation.PathVariable
 import org.springframework.web.bind.annotation.RequestMapping
+import org.springframework.web.bind.annotation.RequestParam
 import org.springframework.web.bind.annotation.RestController
+import org.springframework.web.multipart.MultipartFile
+
+import javax.servlet.http.HttpServletResponse
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.RejectedExecutionException
+
+import static com.ofg.bankstatement.importing.PaymentJsonWriter.APPLICATION_NDJSON_VALUE
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE
+import static org.springframework.web.bind.annotation.RequestMethod.GET
+import static org.springframework.web.bind.annotation.RequestMethod.POST
 
 @Slf4j
 @RestController
 @RequestMapping('/api')
 class BankParserController {
 
+    private static final int MAX_PAYMENTS_CHUNK_SIZE = 10000
+
+    private static final String RETRY_AFTER_HEADER = 'Retry-After'
+
+    private static final String RETRY_AFTER_SECONDS = '30'
+
+    private final StatementImportWorker statementImportWorker
+
+    private final BankStatementParserFactory bankStatementParserFactory
+
+    private final StatementResultCache statementResultCache
+
+    private final ObjectMapper objectMapper
+
+    @Autowired BankParserController(StatementImportWorker statementImportWorker,
+                                    BankStatementParserFactory bankStatementParserFactory,
+                                    StatementResultCache statementResultCache,
+                                    ObjectMapper objectMapper) {
+        this.statementImportWorker = statementImportWorker
+        this.bankStatementParserFactory = bankStatementParserFactory
+        this.statementResultCache = statementResultCache
+        this.objectMapper = objectMapper
+    }
+
+    /**
+     * Parses the uploaded statement and streams its payments as newline-delimited JSON, one payment per line, while the
+     * statement is being parsed. Statements with an unknown file name are recognised by their content, statements
+     * uploaded before are answered from the {@link StatementResultCache}.
+     * <p>
+     * The last line is a trailer telling whether every payment was sent, see {@link PaymentJsonWriter}. A statement
+     * failing before any payment left the server is answered with an error status instead.
+     */
+    @RequestMapping(value = '/statements', method = POST, consumes = MULTIPART_FORM_DATA_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    void parseBankStatement(@RequestParam('file') MultipartFile file, HttpServletResponse response) {
+        // the upload is stored by the multipart resolver, so it is read twice: once hashed, once parsed
+        String contentHash = statementResultCache.enabled ? file.inputStream.withStream { InputStream is -> InputStreamUtils.sha256Hex(is) } : null
+        file.inputStream.withStream { InputStream is ->
+            DetectedStatement statement = bankStatementParserFactory.detectParser(file.originalFilename, is)
+            response.contentType = APPLICATION_NDJSON_VALUE
+            PaymentJsonWriter writer = new PaymentJsonWriter(objectMapper, response.outputStream)
+            try {
+                statementResultCache.importBankStatement(contentHash, statement.parser, statement.statement, writer)
+            } catch (Exception e) {
+                if (!response.committed) {
+                    // nothing sent yet: the buffered payments are dropped and the failure gets an error status
+                    response.reset()
+                    throw e
+                }
+                log.error("Parsing [${file.originalFilename}] failed after ${writer.writtenPayments} payments were streamed", e)
+                writer.fail(e.message ?: e.class.name)
+                return
+            }
+            writer.complete()
+            log.debug("Streamed ${writer.writtenPayments} payments parsed from [${file.originalFilename}]")
+        }
+    }
+
+    /**
+     * Queues the uploaded statement for import and returns the job id right away. Answers 503 when the import queue is
+     * full.
+     */
+    @RequestMapping(value = '/imports', method = POST, consumes = MULTIPART_FORM_DATA_VALUE, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<Map<String, Object>> importBankStatement(@RequestParam('file') MultipartFile file) {
+        Path statement = Files.createTempFile('statement-import-', '.tmp')
+        try {
+            file.transferTo(statement.toFile())
+        } catch (Exception e) {
+            Files.deleteIfExists(statement)
+            throw e
+        }
+        try {
+            ImportJob job = statementImportWorker.submit(file.originalFilename, statement)
+            return new ResponseEntity<Map<String, Object>>(jobStatus(job), HttpStatus.ACCEPTED)
+        } catch (RejectedExecutionException e) {
+            log.warn("Import of [${file.originalFilename}] rejected, import queue is full")
+            HttpHeaders headers = new HttpHeaders()
+            headers.set(RETRY_AFTER_HEADER, RETRY_AFTER_SECONDS)
+            return new ResponseEntity<Map<String, Object>>([error: 'Too many statement imports in progress'] as Map<String, Object>, headers,
+                    HttpStatus.SERVICE_UNAVAILABLE)
+        }
+    }
+
+    @RequestMapping(value = '/imports/{jobId}', method = GET, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<Map<String, Object>> getImportStatus(@PathVariable String jobId) {
+        Optional<ImportJob> job = statementImportWorker.findJob(jobId)
+        if (!job.isPresent()) {
+            return new ResponseEntity<Map<String, Object>>(HttpStatus.NOT_FOUND)
+        }
+        return new ResponseEntity<Map<String, Object>>(jobStatus(job.get()), HttpStatus.OK)
+    }
+
+    /**
+     * Returns up to {@code limit} payments parsed so far, starting at {@code offset}. Clients poll with the returned
+     * {@code nextOffset} until {@code finished} is set and no payments are left.
+     */
+    @RequestMapping(value = '/imports/{jobId}/payments', method = GET, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<Map<String, Object>> getImportedPayments(@PathVariable String jobId,
+                                                            @RequestParam(value = 'offset', defaultValue = '0') int offset,
+                                                            @RequestParam(value = 'limit', defaultValue = '1000') int limit) {
+        Optional<ImportJob> job = statementImportWorker.findJob(jobId)
+        if (!job.isPresent()) {
+            return new ResponseEntity<Map<String, Object>>(HttpStatus.NOT_FOUND)
+        }
+        if (offset < 0 || limit < 1) {
+            return new ResponseEntity<Map<String, Object>>(HttpStatus.BAD_REQUEST)
+        }
+        // status is read before the chunk, so a finished job never hides payments added after the read
+        Map<String, Object> status = jobStatus(job.get())
+        List<PaymentInfo> payments = job.get().getPayments(offset, Math.min(limit, MAX_PAYMENTS_CHUNK_SIZE))
+        status.putAll([offset: offset, nextOffset: offset + payments.size(), payments: payments])
+        return new ResponseEntity<Map<String, Object>>(status, HttpStatus.OK)
+    }
+
+    private static Map<String, Object> jobStatus(ImportJob job) {
+        return [jobId          : job.id,
+                fileName       : job.fileName,
+                status         : job.status,
+                finished       : job.status.finished,
+                parsedPayments : job.parsedPayments,
+                skippedPayments: job.skippedPayments,
+                alreadyImported: job.alreadyImported,
+                error          : job.error] as Map<String, Object>
+    }
 
 }
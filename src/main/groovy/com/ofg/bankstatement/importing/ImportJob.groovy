@@ -0,0 +1,133 @@
+package com.ofg.bankstatement.importing
+
+import com.ofg.bankstatement.parser.PaymentBatch
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import groovy.transform.TypeChecked
+
+/**
+ * State of one asynchronous statement import. Payments are appended by the importing thread as the parser produces
+ * them and can be read in chunks while the import is still running.
+ * <p>
+ * Every {@link #SEALED_CHUNK_SIZE} payments are sealed into a columnar {@link PaymentBatch}, so a job of a million
+ * payments keeps a few arrays instead of a million beans until it expires. Payments are read back as new beans.
+ */
+@TypeChecked
+class ImportJob {
+
+    final String id
+
+    final String fileName
+
+    private static final int SEALED_CHUNK_SIZE = 1024
+
+    private final List<PaymentBatch> sealedPayments = []
+
+    private List<PaymentInfo> pendingPayments = new ArrayList<PaymentInfo>(SEALED_CHUNK_SIZE)
+
+    private int parsedPayments
+
+    private volatile ImportJobStatus status = ImportJobStatus.QUEUED
+
+    private volatile String error
+
+    private volatile boolean alreadyImported
+
+    private int skippedPayments
+
+    ImportJob(String id, String fileName) {
+        this.id = id
+        this.fileName = fileName
+    }
+
+    ImportJobStatus getStatus() {
+        return status
+    }
+
+    String getError() {
+        return error
+    }
+
+    /**
+     * Whether the same statement file was imported before, in which case it is not parsed again.
+     */
+    boolean isAlreadyImported() {
+        return alreadyImported
+    }
+
+    void started() {
+        status = ImportJobStatus.RUNNING
+    }
+
+    void completed() {
+        status = ImportJobStatus.COMPLETED
+    }
+
+    void alreadyImported() {
+        alreadyImported = true
+        status = ImportJobStatus.COMPLETED
+    }
+
+    void failed(String error) {
+        this.error = error
+        status = ImportJobStatus.FAILED
+    }
+
+    /**
+     * @return whether the payment completed a chunk
+     */
+    synchronized boolean addPayment(PaymentInfo payment) {
+        pendingPayments << payment
+        parsedPayments++
+        if (pendingPayments.size() == SEALED_CHUNK_SIZE) {
+            sealPendingPayments()
+            return true
+        }
+        return false
+    }
+
+    /**
+     * Seals the payments added last, once the parser is done, into a smaller last chunk.
+     *
+     * @return all payments of the job, read from their columns without creating beans
+     */
+    synchronized List<PaymentBatch> sealPayments() {
+        if (!pendingPayments.empty) {
+            sealPendingPayments()
+        }
+        return Collections.unmodifiableList(new ArrayList<PaymentBatch>(sealedPayments))
+    }
+
+    /**
+     * Counts a payment handed over by an earlier import.
+     */
+    synchronized void skipPayment() {
+        skippedPayments++
+    }
+
+    synchronized int getSkippedPayments() {
+        return skippedPayments
+    }
+
+    synchronized int getParsedPayments() {
+        return parsedPayments
+    }
+
+    synchronized List<PaymentInfo> getPayments(int offset, int limit) {
+        int from = Math.min(offset, parsedPayments)
+        int to = (int) Math.min((long) from + limit, (long) parsedPayments)
+        List<PaymentInfo> payments = new ArrayList<PaymentInfo>(to - from)
+        for (int i = from; i < to; i++) {
+            int chunk = i.intdiv(SEALED_CHUNK_SIZE) as int
+            int index = i % SEALED_CHUNK_SIZE
+            payments << (chunk < sealedPayments.size() ? sealedPayments[chunk].get(index) : pendingPayments[index])
+        }
+        return payments
+    }
+
+    private void sealPendingPayments() {
+        PaymentBatch.Builder batch = PaymentBatch.builder()
+        pendingPayments.each { PaymentInfo pending -> batch.add(pending) }
+        sealedPayments << batch.build()
+        pendingPayments = new ArrayList<PaymentInfo>(SEALED_CHUNK_SIZE)
+    }
+}
@@ -0,0 +1,13 @@
+package com.ofg.bankstatement.importing
+
+enum ImportJobStatus {
+
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+
+    boolean isFinished() {
+        return this == COMPLETED || this == FAILED
+    }
+}
@@ -0,0 +1,75 @@
+package com.ofg.bankstatement.importing
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.io.SerializedString
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import groovy.transform.TypeChecked
+
+import java.util.function.Consumer
+
+/**
+ * Writes payments as newline-delimited JSON while the parser produces them. Output is flushed every
+ * {@link #FLUSH_EVERY_PAYMENTS} payments, so the client gets the first payments before the statement is fully parsed
+ * and nothing but the current payment is held in memory.
+ * <p>
+ * The stream ends with a trailer, {@code {"complete":true,"payments":N}} once every payment was written, or
+ * {@code {"complete":false,"payments":N,"error":"..."}} when parsing failed after payments were sent, so a client can
+ * tell a complete statement from a truncated one. Until {@link #complete()} or {@link #fail(String)} the last payments
+ * may still be buffered: a writer abandoned without either writes nothing more.
+ */
+@TypeChecked
+class PaymentJsonWriter implements Consumer<PaymentInfo> {
+
+    public static final String APPLICATION_NDJSON_VALUE = 'application/x-ndjson'
+
+    private static final int FLUSH_EVERY_PAYMENTS = 100
+
+    private final JsonGenerator generator
+
+    private int writtenPayments
+
+    PaymentJsonWriter(ObjectMapper objectMapper, OutputStream outputStream) {
+        this.generator = objectMapper.factory.createGenerator(outputStream)
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        generator.setRootValueSeparator(new SerializedString('\n'))
+    }
+
+    @Override
+    void accept(PaymentInfo payment) {
+        generator.writeObject(payment)
+        if (++writtenPayments % FLUSH_EVERY_PAYMENTS == 0) {
+            generator.flush()
+        }
+    }
+
+    int getWrittenPayments() {
+        return writtenPayments
+    }
+
+    /**
+     * Ends the stream with the trailer of a statement parsed completely.
+     */
+    void complete() {
+        writeTrailer(true, null)
+    }
+
+    /**
+     * Ends the stream with the trailer of a statement whose parsing failed, the payments written before are kept.
+     */
+    void fail(String error) {
+        writeTrailer(false, error)
+    }
+
+    private void writeTrailer(boolean complete, String error) {
+        generator.writeStartObject()
+        generator.writeBooleanField('complete', complete)
+        generator.writeNumberField('payments', writtenPayments)
+        if (error != null) {
+            generator.writeStringField('error', error)
+        }
+        generator.writeEndObject()
+        generator.writeRaw('\n')
+        generator.close()
+    }
+}
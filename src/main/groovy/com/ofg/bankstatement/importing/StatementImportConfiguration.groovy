@@ -0,0 +1,67 @@
+package com.ofg.bankstatement.importing
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.Weigher
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.ofg.bankstatement.importing.dedup.PaymentIndex
+import com.ofg.bankstatement.parser.BankStatementParserFactory
+import groovy.transform.TypeChecked
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.cache.CacheManager
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+@TypeChecked
+@Configuration
+class StatementImportConfiguration {
+
+    /**
+     * Fixed number of import threads with a bounded queue. Submissions beyond the queue capacity are rejected instead of
+     * piling up, which the controller reports as 503.
+     */
+    @Bean(destroyMethod = 'shutdown')
+    ExecutorService statementImportExecutor(@Value('${bankstatement.import.threads:4}') int threads,
+                                            @Value('${bankstatement.import.queue.capacity:16}') int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat('statement-import-%d').build(), new ThreadPoolExecutor.AbortPolicy())
+    }
+
+    @Bean
+    StatementImportWorker statementImportWorker(BankStatementParserFactory bankStatementParserFactory,
+                                                ExecutorService statementImportExecutor,
+                                                PaymentIndex paymentIndex,
+                                                StatementResultCache statementResultCache,
+                                                @Value('${bankstatement.import.job.ttl.minutes:60}') long jobTtlMinutes,
+                                                @Value('${bankstatement.import.job.maxRetainedPayments:2000000}') long maxRetainedPayments) {
+        return new StatementImportWorker(bankStatementParserFactory, statementImportExecutor, importJobs(jobTtlMinutes, maxRetainedPayments),
+                paymentIndex, statementResultCache)
+    }
+
+    /**
+     * Jobs weighed by their payments. Guava weighs an entry only when it is put, so the worker puts a running job again
+     * whenever it seals a chunk of payments: a job holds at most one chunk more than it weighs. Every put also restarts
+     * the expiry, so a long import does not expire while it runs. A single segment keeps the limit global, with more
+     * segments each would hold only a share of it and evict every job larger than that share.
+     */
+    static Cache<String, ImportJob> importJobs(long jobTtlMinutes, long maxRetainedPayments) {
+        return CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .expireAfterWrite(jobTtlMinutes, TimeUnit.MINUTES)
+                .maximumWeight(maxRetainedPayments)
+                .weigher({ String id, ImportJob job -> 1 + job.parsedPayments } as Weigher<String, ImportJob>)
+                .build()
+    }
+
+    @Bean
+    StatementResultCache statementResultCache(CacheManager cacheManager,
+                                              @Value('${bankstatement.cache.enabled:true}') boolean enabled,
+                                              @Value('${bankstatement.cache.maxPaymentsPerStatement:50000}') int maxPaymentsPerStatement) {
+        return new StatementResultCache(cacheManager.getCache(StatementResultCache.CACHE_NAME), enabled, maxPaymentsPerStatement)
+    }
+}
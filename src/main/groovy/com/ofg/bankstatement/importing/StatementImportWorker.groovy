@@ -0,0 +1,139 @@
+package com.ofg.bankstatement.importing
+
+import com.google.common.cache.Cache
+import com.ofg.bankstatement.importing.dedup.PaymentIndex
+import com.ofg.bankstatement.parser.BankStatementParser
+import com.ofg.bankstatement.parser.BankStatementParserFactory
+import com.ofg.bankstatement.parser.PaymentBatch
+import com.ofg.bankstatement.util.InputStreamUtils
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import groovy.transform.TypeChecked
+import groovy.util.logging.Slf4j
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.RejectedExecutionException
+
+/**
+ * Runs statement imports on a bounded executor. The upload is copied to a temporary file before the job is queued, so
+ * the servlet thread is released as soon as the request body has been read. MT940 statements are imported straight from
+ * that file, memory-mapped.
+ * <p>
+ * Payments handed over by an earlier import are skipped, statement files imported before or being imported by another
+ * job are not parsed at all: a job claims the statement content in the {@link PaymentIndex} before parsing it. Other
+ * statements parsed recently are handed over from the {@link StatementResultCache}.
+ * <p>
+ * Finished jobs are kept for {@code bankstatement.import.job.ttl.minutes}, and the least recently used are dropped
+ * earlier once all jobs together hold more than {@code bankstatement.import.job.maxRetainedPayments} payments.
+ */
+@TypeChecked
+@Slf4j
+class StatementImportWorker {
+
+    private final BankStatementParserFactory parserFactory
+    private final ExecutorService importExecutor
+    private final Cache<String, ImportJob> jobs
+    private final PaymentIndex paymentIndex
+    private final StatementResultCache resultCache
+
+    StatementImportWorker(BankStatementParserFactory parserFactory, ExecutorService importExecutor, Cache<String, ImportJob> jobs,
+                          PaymentIndex paymentIndex, StatementResultCache resultCache) {
+        this.parserFactory = parserFactory
+        this.importExecutor = importExecutor
+        this.jobs = jobs
+        this.paymentIndex = paymentIndex
+        this.resultCache = resultCache
+    }
+
+    /**
+     * Takes over the statement file, it is deleted once the import finishes or fails to start. The parser is chosen by
+     * file name or, failing that, by the statement content.
+     *
+     * @throws RejectedExecutionException when the import queue is full
+     */
+    ImportJob submit(String fileName, Path statement) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName)
+        try {
+            // only the statement head is read here, the import reopens the file
+            BankStatementParser parser = Files.newInputStream(statement).withStream { InputStream is ->
+                parserFactory.detectParser(fileName, is).parser
+            }
+            jobs.put(job.id, job)
+            importExecutor.execute { runImport(job, parser, statement) }
+        } catch (RuntimeException e) {
+            jobs.invalidate(job.id)
+            Files.deleteIfExists(statement)
+            throw e
+        }
+        return job
+    }
+
+    Optional<ImportJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId))
+    }
+
+    private void runImport(ImportJob job, BankStatementParser parser, Path statement) {
+        job.started()
+        String claimedHash = null
+        try {
+            String contentHash = paymentIndex.enabled || resultCache.enabled ? contentHash(statement) : null
+            if (contentHash != null && !paymentIndex.claim(contentHash, job.fileName)) {
+                job.alreadyImported()
+                log.info("Statement [${job.fileName}] of job [${job.id}] was imported before or is being imported, skipped")
+                return
+            }
+            claimedHash = contentHash
+            resultCache.importBankStatement(contentHash, parser, statement, { PaymentInfo payment ->
+                if (paymentIndex.isSeen(payment)) {
+                    job.skipPayment()
+                } else if (job.addPayment(payment)) {
+                    // the cache weighs a job only when it is put, so a running job is put again with every chunk
+                    jobs.asMap().replace(job.id, job)
+                }
+            })
+            List<PaymentBatch> payments = job.sealPayments()
+            if (claimedHash != null) {
+                recordImport(job, claimedHash, payments)
+                claimedHash = null
+            }
+            job.completed()
+            log.debug("Imported ${job.parsedPayments} payments, skipped ${job.skippedPayments} seen before, from [${job.fileName}] in job [${job.id}]")
+        } catch (Exception e) {
+            log.error("Import of [${job.fileName}] in job [${job.id}] failed", e)
+            job.failed(e.message ?: e.class.name)
+        } finally {
+            if (claimedHash != null) {
+                releaseClaim(job, claimedHash)
+            }
+            // weighs the payments added since the last chunk, a job evicted meanwhile is not brought back
+            jobs.asMap().replace(job.id, job)
+            Files.deleteIfExists(statement)
+        }
+    }
+
+    private static String contentHash(Path statement) {
+        return Files.newInputStream(statement).withStream { InputStream is -> InputStreamUtils.sha256Hex(is) }
+    }
+
+    /**
+     * A failure only costs the detection of the next re-import, the payments are already handed over, so the claim is
+     * released instead.
+     */
+    private void recordImport(ImportJob job, String contentHash, List<PaymentBatch> payments) {
+        try {
+            paymentIndex.record(contentHash, payments)
+        } catch (RuntimeException e) {
+            log.error("Recording payments of [${job.fileName}] in job [${job.id}] failed, a re-import will not be detected", e)
+            releaseClaim(job, contentHash)
+        }
+    }
+
+    private void releaseClaim(ImportJob job, String contentHash) {
+        try {
+            paymentIndex.release(contentHash)
+        } catch (RuntimeException e) {
+            log.error("Releasing statement [${job.fileName}] of job [${job.id}] failed, it can't be imported again before a restart", e)
+        }
+    }
+}
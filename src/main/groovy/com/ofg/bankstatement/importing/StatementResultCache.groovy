@@ -0,0 +1,132 @@
+package com.ofg.bankstatement.importing
+
+import com.ofg.bankstatement.parser.BankStatementParser
+import com.ofg.bankstatement.parser.PaymentBatch
+import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParser
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import groovy.transform.TypeChecked
+import groovy.util.logging.Slf4j
+import org.springframework.cache.Cache
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.Consumer
+
+/**
+ * Payments parsed from a statement, kept by the SHA-256 of the statement content and the parser that parsed it. A
+ * repeated upload of the same file hands the cached payments over without parsing the statement again.
+ * <p>
+ * Statements with more than {@code maxCachedPayments} payments are not cached, so one huge statement can't take the
+ * whole cache. Payments are cached as a {@link PaymentBatch}, far smaller on the heap and on disk than their beans. Their
+ * fields are copied into the batch before the payments are passed on, and every upload the batch is handed to gets beans
+ * of its own, so whatever the importing code does with the payments never reaches the cache. A batch is
+ * {@link java.io.Serializable}, the disk tier of the cache can keep it.
+ */
+@TypeChecked
+@Slf4j
+class StatementResultCache {
+
+    public static final String CACHE_NAME = 'bankStatements'
+
+    private static final String KEY_SEPARATOR = ':'
+
+    private final Cache cache
+
+    private final boolean enabled
+
+    private final int maxCachedPayments
+
+    StatementResultCache(Cache cache, boolean enabled, int maxCachedPayments) {
+        this.cache = cache
+        this.enabled = enabled
+        this.maxCachedPayments = maxCachedPayments
+    }
+
+    boolean isEnabled() {
+        return enabled
+    }
+
+    /**
+     * Hands the payments over from the cache when the parser parsed the same content before, otherwise parses the
+     * statement and caches its payments once it is parsed completely.
+     *
+     * @param contentHash SHA-256 of the statement, null when the statement is not to be cached
+     */
+    void importBankStatement(String contentHash, BankStatementParser parser, InputStream is, Consumer<PaymentInfo> consumer) {
+        importCached(contentHash, parser, consumer) { Consumer<PaymentInfo> parsed -> parser.importBankStatement(is, parsed) }
+    }
+
+    /**
+     * Like {@link #importBankStatement(String, BankStatementParser, InputStream, Consumer)} for a statement stored in a
+     * file. MT940 statements are memory-mapped and split on their bytes instead of being decoded line by line.
+     */
+    void importBankStatement(String contentHash, BankStatementParser parser, Path statement, Consumer<PaymentInfo> consumer) {
+        importCached(contentHash, parser, consumer) { Consumer<PaymentInfo> parsed ->
+            if (parser instanceof Mt940BankStatementParser) {
+                ((Mt940BankStatementParser) parser).importBankStatement(statement, parsed)
+            } else {
+                Files.newInputStream(statement).withStream { InputStream is -> parser.importBankStatement(is, parsed) }
+            }
+        }
+    }
+
+    /**
+     * @param parsing parses the statement, handing its payments to the consumer it is called with
+     */
+    private void importCached(String contentHash, BankStatementParser parser, Consumer<PaymentInfo> consumer, Closure parsing) {
+        if (!enabled || contentHash == null) {
+            parsing.call(consumer)
+            return
+        }
+        String key = contentHash + KEY_SEPARATOR + parser.class.name
+        PaymentBatch cachedPayments = cache.get(key, PaymentBatch)
+        if (cachedPayments != null) {
+            log.debug("Handing over ${cachedPayments.size()} cached payments of statement [${contentHash}]")
+            cachedPayments.forEach(consumer)
+            return
+        }
+        PaymentCollector collector = new PaymentCollector(consumer, maxCachedPayments)
+        parsing.call(collector)
+        if (collector.complete) {
+            cache.put(key, collector.payments.build())
+        }
+    }
+
+    /**
+     * Passes payments on and keeps them until there are too many to cache.
+     */
+    private static class PaymentCollector implements Consumer<PaymentInfo> {
+
+        private final Consumer<PaymentInfo> consumer
+
+        private final int maxPayments
+
+        private PaymentBatch.Builder payments = PaymentBatch.builder()
+
+        PaymentCollector(Consumer<PaymentInfo> consumer, int maxPayments) {
+            this.consumer = consumer
+            this.maxPayments = maxPayments
+        }
+
+        @Override
+        void accept(PaymentInfo payment) {
+            // copied before the consumer gets a chance to change the payment
+            if (payments != null) {
+                if (payments.size() < maxPayments) {
+                    payments.add(payment)
+                } else {
+                    payments = null
+                }
+            }
+            consumer.accept(payment)
+        }
+
+        boolean isComplete() {
+            return payments != null
+        }
+
+        PaymentBatch.Builder getPayments() {
+            return payments
+        }
+    }
+}
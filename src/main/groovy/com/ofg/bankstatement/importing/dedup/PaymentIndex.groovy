@@ -0,0 +1,171 @@
+package com.ofg.bankstatement.importing.dedup
+
+import com.google.common.base.Charsets
+import com.google.common.hash.BloomFilter
+import com.google.common.hash.Funnels
+import com.ofg.bankstatement.parser.PaymentBatch
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import groovy.transform.TypeChecked
+import groovy.util.logging.Slf4j
+import org.apache.commons.lang.StringUtils
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.data.domain.Page
+import org.springframework.data.domain.PageRequest
+
+/**
+ * Remembers what earlier imports handed over: payments by company bank account and bank reference, statement files by
+ * the SHA-256 of their content. A Bloom filter holding every recorded payment answers most lookups of new payments
+ * without a query, only its positives are checked against the database.
+ * <p>
+ * An import {@link #claim(String, String) claims} its statement file before parsing it and either
+ * {@link #record(String, List) records} it or {@link #release(String) releases} the claim. The claims are kept in the
+ * database, so they hold for a single instance of the service, which the file database implies.
+ * <p>
+ * Payments without a company bank account or bank reference are never indexed and so never skipped. When disabled the
+ * index knows nothing and records nothing.
+ */
+@TypeChecked
+@Slf4j
+class PaymentIndex {
+
+    private static final int LOAD_PAGE_SIZE = 10000
+
+    static final int RECORD_BATCH_SIZE = 1000
+
+    private static final String KEY_SEPARATOR = '|'
+
+    private final SeenPaymentRepository seenPayments
+
+    private final SeenStatementRepository seenStatements
+
+    private final boolean enabled
+
+    private final BloomFilter<CharSequence> bloomFilter
+
+    PaymentIndex(SeenPaymentRepository seenPayments, SeenStatementRepository seenStatements, boolean enabled, int expectedPayments,
+                 double falsePositiveProbability) {
+        this.seenPayments = seenPayments
+        this.seenStatements = seenStatements
+        this.enabled = enabled
+        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8), expectedPayments, falsePositiveProbability)
+    }
+
+    boolean isEnabled() {
+        return enabled
+    }
+
+    /**
+     * Fills the Bloom filter with the payments recorded so far and drops the claims of imports a shutdown interrupted.
+     */
+    void load() {
+        if (!enabled) {
+            return
+        }
+        int interrupted = seenStatements.deleteByState(SeenStatement.IMPORTING)
+        if (interrupted > 0) {
+            log.warn("Dropped ${interrupted} claims of statement imports interrupted by a shutdown")
+        }
+        int loaded = 0
+        Page<SeenPayment> page = seenPayments.findAll(new PageRequest(0, LOAD_PAGE_SIZE))
+        while (true) {
+            synchronized (bloomFilter) {
+                page.content.each { SeenPayment payment -> bloomFilter.put(key(payment.companyBankAccount, payment.bankReference)) }
+            }
+            loaded += page.numberOfElements
+            if (!page.hasNext()) {
+                break
+            }
+            page = seenPayments.findAll(page.nextPageable())
+        }
+        log.info("Loaded ${loaded} seen payments into the payment index")
+    }
+
+    /**
+     * Claims the statement for an import before it is parsed, by inserting it as {@link SeenStatement#IMPORTING}. Only
+     * one of concurrent imports of the same content gets the claim.
+     *
+     * @return false when the statement was imported before or is being imported
+     */
+    boolean claim(String contentHash, String fileName) {
+        if (!enabled) {
+            return true
+        }
+        try {
+            seenStatements.saveAndFlush(new SeenStatement(contentHash, fileName, SeenStatement.IMPORTING, new Date()))
+            return true
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Statement [${contentHash}] of [${fileName}] claimed before")
+            return false
+        }
+    }
+
+    /**
+     * Gives up the claim of an import that failed, so the statement can be imported again.
+     */
+    void release(String contentHash) {
+        if (enabled) {
+            seenStatements.delete(contentHash)
+        }
+    }
+
+    boolean isSeen(PaymentInfo payment) {
+        if (!enabled || !isIndexable(payment)) {
+            return false
+        }
+        boolean mightBeSeen
+        synchronized (bloomFilter) {
+            mightBeSeen = bloomFilter.mightContain(key(payment.companyBankAccount, payment.bankReference))
+        }
+        return mightBeSeen && seenPayments.countByCompanyBankAccountAndBankReference(payment.companyBankAccount, payment.bankReference) > 0
+    }
+
+    /**
+     * Records the payments handed over by the import holding the claim, {@link #RECORD_BATCH_SIZE} at a time, and
+     * then the statement as imported. Payments recorded meanwhile by a concurrent import of overlapping statements are
+     * left as they are.
+     */
+    void record(String contentHash, List<PaymentBatch> payments) {
+        if (!enabled) {
+            return
+        }
+        Date now = new Date()
+        List<SeenPayment> batch = new ArrayList<>(RECORD_BATCH_SIZE)
+        payments.each { PaymentBatch payment ->
+            for (int i = 0; i < payment.size(); i++) {
+                if (isIndexable(payment.getCompanyBankAccount(i), payment.getBankReference(i))) {
+                    batch << new SeenPayment(payment.getCompanyBankAccount(i), payment.getBankReference(i), now)
+                }
+                if (batch.size() == RECORD_BATCH_SIZE) {
+                    insert(batch)
+                    batch = new ArrayList<>(RECORD_BATCH_SIZE)
+                }
+            }
+        }
+        if (!batch.empty) {
+            insert(batch)
+        }
+        SeenStatement statement = seenStatements.findOne(contentHash)
+        statement.state = SeenStatement.IMPORTED
+        statement.imported = now
+        seenStatements.save(statement)
+    }
+
+    private void insert(List<SeenPayment> batch) {
+        seenPayments.insertAbsent(batch)
+        synchronized (bloomFilter) {
+            batch.each { SeenPayment payment -> bloomFilter.put(key(payment.companyBankAccount, payment.bankReference)) }
+        }
+    }
+
+    private static boolean isIndexable(PaymentInfo payment) {
+        return isIndexable(payment.companyBankAccount, payment.bankReference)
+    }
+
+    private static boolean isIndexable(String companyBankAccount, String bankReference) {
+        return StringUtils.isNotBlank(companyBankAccount) && StringUtils.isNotBlank(bankReference)
+    }
+
+    private static String key(String companyBankAccount, String bankReference) {
+        return companyBankAccount + KEY_SEPARATOR + bankReference
+    }
+}
@@ -0,0 +1,28 @@
+package com.ofg.bankstatement.importing.dedup
+
+import groovy.transform.TypeChecked
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.orm.jpa.EntityScan
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories
+
+/**
+ * The index outlives restarts only in a durable database: {@code spring.datasource.url} points to a file-backed H2 by
+ * default. Its tables are created by {@code db/payment-index.sql}, Hibernate only validates them.
+ */
+@TypeChecked
+@Configuration
+@EntityScan(basePackageClasses = SeenPayment)
+@EnableJpaRepositories(basePackageClasses = SeenPaymentRepository)
+class PaymentIndexConfiguration {
+
+    @Bean(initMethod = 'load')
+    PaymentIndex paymentIndex(SeenPaymentRepository seenPaymentRepository,
+                              SeenStatementRepository seenStatementRepository,
+                              @Value('${bankstatement.import.deduplication.enabled:true}') boolean enabled,
+                              @Value('${bankstatement.import.deduplication.expectedPayments:1000000}') int expectedPayments,
+                              @Value('${bankstatement.import.deduplication.falsePositiveProbability:0.01}') double falsePositiveProbability) {
+        return new PaymentIndex(seenPaymentRepository, seenStatementRepository, enabled, expectedPayments, falsePositiveProbability)
+    }
+}
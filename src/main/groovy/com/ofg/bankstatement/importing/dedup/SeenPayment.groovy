@@ -0,0 +1,47 @@
+package com.ofg.bankstatement.importing.dedup
+
+import groovy.transform.TypeChecked
+
+import javax.persistence.Column
+import javax.persistence.Entity
+import javax.persistence.GeneratedValue
+import javax.persistence.GenerationType
+import javax.persistence.Id
+import javax.persistence.Table
+import javax.persistence.Temporal
+import javax.persistence.TemporalType
+import javax.persistence.UniqueConstraint
+
+/**
+ * Payment already handed over by an import, identified by the company bank account it was booked on and its bank
+ * reference.
+ */
+@TypeChecked
+@Entity
+@Table(name = 'SEEN_PAYMENT', uniqueConstraints = @UniqueConstraint(columnNames = ['COMPANY_BANK_ACCOUNT', 'BANK_REFERENCE']))
+class SeenPayment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = 'ID')
+    Long id
+
+    @Column(name = 'COMPANY_BANK_ACCOUNT', nullable = false, length = 34)
+    String companyBankAccount
+
+    @Column(name = 'BANK_REFERENCE', nullable = false)
+    String bankReference
+
+    @Column(name = 'FIRST_SEEN', nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    Date firstSeen
+
+    protected SeenPayment() {
+    }
+
+    SeenPayment(String companyBankAccount, String bankReference, Date firstSeen) {
+        this.companyBankAccount = companyBankAccount
+        this.bankReference = bankReference
+        this.firstSeen = firstSeen
+    }
+}
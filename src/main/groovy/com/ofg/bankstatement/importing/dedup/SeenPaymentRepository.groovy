@@ -0,0 +1,8 @@
+package com.ofg.bankstatement.importing.dedup
+
+import org.springframework.data.jpa.repository.JpaRepository
+
+interface SeenPaymentRepository extends JpaRepository<SeenPayment, Long>, SeenPaymentRepositoryCustom {
+
+    long countByCompanyBankAccountAndBankReference(String companyBankAccount, String bankReference)
+}
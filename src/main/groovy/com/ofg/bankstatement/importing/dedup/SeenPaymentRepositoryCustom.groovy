@@ -0,0 +1,9 @@
+package com.ofg.bankstatement.importing.dedup
+
+interface SeenPaymentRepositoryCustom {
+
+    /**
+     * Inserts the payments not recorded yet, in one JDBC batch, and leaves the recorded ones as they are.
+     */
+    void insertAbsent(List<SeenPayment> payments)
+}
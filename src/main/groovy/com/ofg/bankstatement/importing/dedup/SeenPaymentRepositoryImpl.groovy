@@ -0,0 +1,63 @@
+package com.ofg.bankstatement.importing.dedup
+
+import groovy.transform.TypeChecked
+import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.jdbc.core.BatchPreparedStatementSetter
+import org.springframework.jdbc.core.JdbcTemplate
+
+import java.sql.PreparedStatement
+import java.sql.SQLException
+import java.sql.Timestamp
+
+/**
+ * Inserts payments with a statement skipping those recorded already, so recording never reads them first. A payment
+ * recorded by a concurrent import between the check and the insert fails the batch, which is then inserted once more:
+ * the rows inserted in the meantime are skipped by then.
+ */
+@TypeChecked
+@Slf4j
+class SeenPaymentRepositoryImpl implements SeenPaymentRepositoryCustom {
+
+    private static final String INSERT_ABSENT = '''INSERT INTO SEEN_PAYMENT (COMPANY_BANK_ACCOUNT, BANK_REFERENCE, FIRST_SEEN)
+            SELECT CAST(? AS VARCHAR(34)), CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP) FROM DUAL
+            WHERE NOT EXISTS (SELECT 1 FROM SEEN_PAYMENT WHERE COMPANY_BANK_ACCOUNT = ? AND BANK_REFERENCE = ?)'''
+
+    private final JdbcTemplate jdbcTemplate
+
+    @Autowired
+    SeenPaymentRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate
+    }
+
+    @Override
+    void insertAbsent(List<SeenPayment> payments) {
+        try {
+            batchInsert(payments)
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Payments recorded by a concurrent import, inserting the remaining ones again")
+            batchInsert(payments)
+        }
+    }
+
+    private void batchInsert(List<SeenPayment> payments) {
+        jdbcTemplate.batchUpdate(INSERT_ABSENT, new BatchPreparedStatementSetter() {
+
+            @Override
+            void setValues(PreparedStatement ps, int i) throws SQLException {
+                SeenPayment payment = payments[i]
+                ps.setString(1, payment.companyBankAccount)
+                ps.setString(2, payment.bankReference)
+                ps.setTimestamp(3, new Timestamp(payment.firstSeen.time))
+                ps.setString(4, payment.companyBankAccount)
+                ps.setString(5, payment.bankReference)
+            }
+
+            @Override
+            int getBatchSize() {
+                return payments.size()
+            }
+        })
+    }
+}
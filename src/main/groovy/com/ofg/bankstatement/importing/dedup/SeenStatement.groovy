@@ -0,0 +1,75 @@
+package com.ofg.bankstatement.importing.dedup
+
+import groovy.transform.TypeChecked
+import org.springframework.data.domain.Persistable
+
+import javax.persistence.Column
+import javax.persistence.Entity
+import javax.persistence.Id
+import javax.persistence.PostLoad
+import javax.persistence.PostPersist
+import javax.persistence.Table
+import javax.persistence.Temporal
+import javax.persistence.TemporalType
+import javax.persistence.Transient
+
+/**
+ * Statement file identified by the SHA-256 of its content, claimed by the import {@link #IMPORTING} it and
+ * {@link #IMPORTED} once it was imported completely.
+ * <p>
+ * A new statement is always inserted, never merged into an existing row, so the second of two imports claiming the same
+ * content fails on the primary key.
+ */
+@TypeChecked
+@Entity
+@Table(name = 'SEEN_STATEMENT')
+class SeenStatement implements Persistable<String> {
+
+    static final String IMPORTING = 'IMPORTING'
+
+    static final String IMPORTED = 'IMPORTED'
+
+    @Id
+    @Column(name = 'CONTENT_HASH', length = 64)
+    String contentHash
+
+    @Column(name = 'FILE_NAME')
+    String fileName
+
+    @Column(name = 'STATE', nullable = false, length = 16)
+    String state
+
+    @Column(name = 'IMPORTED', nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    Date imported
+
+    @Transient
+    private boolean unsaved
+
+    protected SeenStatement() {
+    }
+
+    SeenStatement(String contentHash, String fileName, String state, Date imported) {
+        this.contentHash = contentHash
+        this.fileName = fileName
+        this.state = state
+        this.imported = imported
+        this.unsaved = true
+    }
+
+    @Override
+    String getId() {
+        return contentHash
+    }
+
+    @Override
+    boolean isNew() {
+        return unsaved
+    }
+
+    @PostLoad
+    @PostPersist
+    void saved() {
+        unsaved = false
+    }
+}
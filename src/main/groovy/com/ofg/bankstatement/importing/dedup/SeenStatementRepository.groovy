@@ -0,0 +1,14 @@
+package com.ofg.bankstatement.importing.dedup
+
+import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.transaction.annotation.Transactional
+
+interface SeenStatementRepository extends JpaRepository<SeenStatement, String> {
+
+    @Modifying
+    @Transactional
+    @Query('delete from SeenStatement s where s.state = ?1')
+    int deleteByState(String state)
+}
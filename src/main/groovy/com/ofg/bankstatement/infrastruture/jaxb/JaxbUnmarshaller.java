@@ -4,13 +4,27 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.xml.sax.InputSource;
+
 import java.io.InputStream;
 import java.io.StringReader;
+import java.util.function.Consumer;
 
+/**
+ * Unmarshallers are not thread safe but are costly to create, so every thread keeps its own one per context.
+ */
 public class JaxbUnmarshaller
 {
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
     private JAXBContext jaxbContext;
 
+    private final ThreadLocal<Unmarshaller> unmarshallers = ThreadLocal.withInitial(this::createUnmarshaller);
+
     @SuppressWarnings("rawtypes")
     public JaxbUnmarshaller(Class... klasses)
     {
@@ -30,27 +44,72 @@ public class JaxbUnmarshaller
         }
     }
 
-    @SuppressWarnings("unchecked")
     public <T> T unmarshall(String xml)
     {
+        return unmarshall(new InputSource(new StringReader(xml)));
+    }
+
+    public <T> T unmarshall(InputStream inputStream)
+    {
+        return unmarshall(new InputSource(inputStream));
+    }
+
+    /**
+     * Reads the document straight from the stream in the given encoding, whatever its XML declaration says.
+     */
+    public <T> T unmarshall(InputStream inputStream, String encoding)
+    {
+        InputSource source = new InputSource(inputStream);
+        source.setEncoding(encoding);
+        return unmarshall(source);
+    }
+
+    public <T> void unmarshallEach(InputStream inputStream, String encoding, String elementName, Class<T> type, Consumer<? super T> consumer)
+    {
+        unmarshallEach(inputStream, encoding, elementName, type, element -> {
+        }, consumer);
+    }
+
+    /**
+     * Streams the document and unmarshals every {@code elementName} element on its own into {@code type}, so only one
+     * element is held in memory at a time whatever the document size. Every other start element, e.g. the root element
+     * carrying document wide attributes, is passed to {@code startElementListener} first.
+     */
+    public <T> void unmarshallEach(InputStream inputStream, String encoding, String elementName, Class<T> type,
+                                   Consumer<XMLStreamReader> startElementListener, Consumer<? super T> consumer)
+    {
+        XMLStreamReader reader = null;
         try {
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            Object object = unmarshaller.unmarshal(new StringReader(xml));
-            if (object instanceof JAXBElement<?>) {
-                return ((JAXBElement<T>) object).getValue();
-            } else {
-                return (T) object;
+            reader = xmlInputFactory.createXMLStreamReader(inputStream, encoding);
+            Unmarshaller unmarshaller = unmarshallers.get();
+            int event = reader.getEventType();
+            while (true) {
+                if (event == XMLStreamConstants.START_ELEMENT && elementName.equals(reader.getLocalName())) {
+                    consumer.accept(unmarshaller.unmarshal(reader, type).getValue());
+                    // partial unmarshalling leaves the reader on the event following the element
+                    event = reader.getEventType();
+                } else {
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        startElementListener.accept(reader);
+                    }
+                    if (!reader.hasNext()) {
+                        break;
+                    }
+                    event = reader.next();
+                }
             }
-        } catch (JAXBException e) {
+        } catch (XMLStreamException | JAXBException e) {
             throw new RuntimeException(e);
+        } finally {
+            closeQuietly(reader);
         }
     }
 
-    public <T> T unmarshall(InputStream inputStream)
+    @SuppressWarnings("unchecked")
+    private <T> T unmarshall(InputSource source)
     {
         try {
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            Object object = unmarshaller.unmarshal(inputStream);
+            Object object = unmarshallers.get().unmarshal(source);
             if (object instanceof JAXBElement<?>) {
                 return ((JAXBElement<T>) object).getValue();
             } else {
@@ -60,4 +119,31 @@ public class JaxbUnmarshaller
             throw new RuntimeException(e);
         }
     }
+
+    private Unmarshaller createUnmarshaller()
+    {
+        try {
+            return jaxbContext.createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new RuntimeException("Error creating JAXB unmarshaller!", e);
+        }
+    }
+
+    private static void closeQuietly(XMLStreamReader reader)
+    {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // nothing left to read
+            }
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
 }
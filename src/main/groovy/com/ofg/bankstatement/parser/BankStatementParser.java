@@ -4,14 +4,53 @@ import com.ofg.loans.api.beans.payment.PaymentInfo;
 
 import javax.validation.constraints.NotNull;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public interface BankStatementParser {
 
     List<PaymentInfo> importBankStatement(@NotNull InputStream is);
 
-    boolean isApplicableFor(String fileName);
+    /**
+     * Streaming variant of {@link #importBankStatement(InputStream)}. Payments are handed to the consumer as soon as
+     * they are parsed, so parsers implementing it natively never hold the whole statement in memory.
+     */
+    default void importBankStatement(@NotNull InputStream is, @NotNull Consumer<PaymentInfo> consumer) {
+        importBankStatement(is).forEach(consumer);
+    }
+
+    /**
+     * Columnar variant of {@link #importBankStatement(InputStream)} for statements of millions of payments: the
+     * payments are added to a {@link PaymentBatch} as they are parsed, so none of them is kept as a bean.
+     */
+    default PaymentBatch importPaymentBatch(@NotNull InputStream is) {
+        PaymentBatch.Builder batch = PaymentBatch.builder();
+        importBankStatement(is, batch);
+        return batch.build();
+    }
+
+    /**
+     * File names handled by this parser. {@link BankStatementParserFactory} indexes them at startup, so parsers should
+     * declare their patterns here rather than override {@link #isApplicableFor(String)}.
+     */
+    default List<FileNamePattern> getFileNamePatterns() {
+        return Collections.emptyList();
+    }
+
+    default boolean isApplicableFor(String fileName) {
+        return getFileNamePatterns().stream().anyMatch(pattern -> pattern.matches(fileName));
+    }
+
+    /**
+     * Confidence, from 0 (not this parser's format) to 100, that a statement starting with the given text is handled
+     * by this parser. Used when the file name matches no parser. The head is decoded as ISO-8859-1, so tags and
+     * separators can be compared whatever the statement encoding.
+     */
+    default int scoreContent(String statementHead) {
+        return 0;
+    }
 
     public static Predicate<BankStatementParser> applicableFor(String fileName) {
         return p -> p.isApplicableFor(fileName);
@@ -1,7 +1,15 @@
 package com.ofg.bankstatement.parser;
 
+import java.io.InputStream;
+
 public interface BankStatementParserFactory {
 
     BankStatementParser getParser(String fileName);
 
+    /**
+     * Like {@link #getParser(String)}, but when no parser is registered for the file name the parser is chosen by the
+     * first bytes of the statement, so renamed files are still imported.
+     */
+    DetectedStatement detectParser(String fileName, InputStream is);
+
 }
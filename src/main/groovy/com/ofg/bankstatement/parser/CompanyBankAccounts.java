@@ -0,0 +1,152 @@
+package com.ofg.bankstatement.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ofg.loans.domain.model.payment.OperationalBank;
+import com.ofg.loans.pl.banks.BankFinderPl;
+
+/**
+ * Company bank account of every operational bank a parser asked for, by IBAN bank code, so parsers don't go to the
+ * {@link BankFinderPl} for every statement or payment.
+ * <p>
+ * Parsers {@link #register(String)} their bank codes at startup, which loads the accounts before the first import.
+ * The whole table is then reloaded in the background every {@code bankstatement.companyAccounts.refresh.minutes} and
+ * swapped in once loaded, so lookups never wait for a refresh and keep the previous accounts when a refresh fails. A
+ * bank code nobody registered is loaded on its first lookup and refreshed from then on. A bank without an account is
+ * not kept, it is looked up again on every lookup until the account is there.
+ */
+@Component
+public class CompanyBankAccounts {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanyBankAccounts.class);
+
+    private final BankFinderPl bankFinder;
+
+    private final long refreshMinutes;
+
+    /**
+     * Replaced as a whole on every change, lookups read it without locking.
+     */
+    private volatile ImmutableMap<String, String> accountsByBankCode = ImmutableMap.of();
+
+    private volatile long refreshedAt = System.currentTimeMillis();
+
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    private ScheduledExecutorService refreshExecutor;
+
+    @Autowired
+    public CompanyBankAccounts(BankFinderPl bankFinder, @Value("${bankstatement.companyAccounts.refresh.minutes:10}") long refreshMinutes) {
+        this.bankFinder = bankFinder;
+        this.refreshMinutes = refreshMinutes;
+    }
+
+    @PostConstruct
+    void scheduleRefresh() {
+        if (refreshMinutes > 0) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("company-bank-accounts-refresh")
+                    .setDaemon(true).build());
+            refreshExecutor.scheduleWithFixedDelay(this::refresh, refreshMinutes, refreshMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the account of the bank now and keeps it refreshed. A failed load is logged and retried on the first lookup.
+     */
+    public void register(String ibanBankCode) {
+        try {
+            getAccountNumber(ibanBankCode);
+        } catch (RuntimeException e) {
+            log.warn("Cannot load company bank account of bank " + ibanBankCode + ", retrying on first lookup", e);
+        }
+    }
+
+    /**
+     * @return first bank account of the operational bank, an empty string when there is no such bank or it has no account
+     */
+    public String getAccountNumber(String ibanBankCode) {
+        String accountNumber = accountsByBankCode.get(ibanBankCode);
+        return accountNumber != null ? accountNumber : load(ibanBankCode);
+    }
+
+    /**
+     * Reloads the accounts of every known bank and swaps them in at once, the previous accounts stay on any failure. A bank
+     * whose account is gone is dropped.
+     */
+    public void refresh() {
+        try {
+            Map<String, String> refreshed = new HashMap<>();
+            for (String ibanBankCode : accountsByBankCode.keySet()) {
+                refreshed.put(ibanBankCode, findAccountNumber(ibanBankCode));
+            }
+            synchronized (this) {
+                // keeps banks first looked up while the refresh was running
+                Map<String, String> accounts = new HashMap<>(accountsByBankCode);
+                accounts.putAll(refreshed);
+                accounts.values().removeIf(String::isEmpty);
+                accountsByBankCode = ImmutableMap.copyOf(accounts);
+                refreshedAt = System.currentTimeMillis();
+            }
+        } catch (RuntimeException e) {
+            refreshFailures.incrementAndGet();
+            log.warn("Cannot refresh company bank accounts, keeping accounts loaded " + getAgeSeconds() + "s ago", e);
+        }
+    }
+
+    /**
+     * @return seconds since the accounts were last loaded completely, how stale a changed account can be
+     */
+    public long getAgeSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - refreshedAt);
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    public int size() {
+        return accountsByBankCode.size();
+    }
+
+    private synchronized String load(String ibanBankCode) {
+        String accountNumber = accountsByBankCode.get(ibanBankCode);
+        if (accountNumber == null) {
+            accountNumber = findAccountNumber(ibanBankCode);
+            if (!accountNumber.isEmpty()) {
+                accountsByBankCode = ImmutableMap.<String, String>builder().putAll(accountsByBankCode).put(ibanBankCode, accountNumber).build();
+            }
+        }
+        return accountNumber;
+    }
+
+    private String findAccountNumber(String ibanBankCode) {
+        OperationalBank bank = bankFinder.findBankByIbanCode(ibanBankCode);
+        String accountNumber = bank != null && bank.getBankAccounts().size() > 0 ? bank.getBankAccounts().get(0).getAccountNumber() : null;
+        return Strings.nullToEmpty(accountNumber);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.ofg.bankstatement.parser;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes how stale the {@link CompanyBankAccounts} table is, its failed refreshes and its size.
+ */
+@Component
+class CompanyBankAccountsMetrics {
+
+    private static final String METRIC_PREFIX = "bankstatement.parser.companyAccounts.";
+
+    @Autowired
+    CompanyBankAccountsMetrics(MetricRegistry metricRegistry, CompanyBankAccounts companyBankAccounts) {
+        metricRegistry.register(METRIC_PREFIX + "ageSeconds", (Gauge<Long>) companyBankAccounts::getAgeSeconds);
+        metricRegistry.register(METRIC_PREFIX + "refreshFailures", (Gauge<Long>) companyBankAccounts::getRefreshFailures);
+        metricRegistry.register(METRIC_PREFIX + "size", (Gauge<Integer>) companyBankAccounts::size);
+    }
+
+}
@@ -1,12 +1,19 @@
 package com.ofg.bankstatement.parser;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.ofg.bankstatement.util.InputStreamUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.Iterables.getOnlyElement;
@@ -19,24 +26,116 @@ class DefaultBankStatementParserFactory implements BankStatementParserFactory {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultBankStatementParserFactory.class);
 
+    private static final String NO_PARSER_FOUND = "No bank statement parser found. Please check bank statement file name and file extension";
+
+    /**
+     * Every parser recognises its format within the first few header lines.
+     */
+    private static final int CONTENT_PREFIX_LIMIT = 8 * 1024;
+
+    private static final int MIN_CONTENT_CONFIDENCE = 50;
+
     @Autowired(required = false)
     public Collection<BankStatementParser> bankStatementParsers = newArrayList();
 
+    @Value("${bankstatement.parser.contentDetection:true}")
+    private boolean contentDetection = true;
+
+    private final FileNameRoutingIndex routingIndex = new FileNameRoutingIndex();
+
+    /**
+     * Parsers declaring no {@link FileNamePattern}s, still asked one by one through
+     * {@link BankStatementParser#isApplicableFor(String)}.
+     */
+    private final List<BankStatementParser> unindexedParsers = newArrayList();
+
+    /**
+     * Fails the startup when file name patterns of two parsers overlap.
+     */
+    @PostConstruct
+    void buildRoutingIndex() {
+        bankStatementParsers.forEach(this::index);
+        log.info("Indexed {} file name patterns, {} parsers matched by isApplicableFor", routingIndex.size(), unindexedParsers.size());
+    }
+
     @Override
     public BankStatementParser getParser(String fileName) {
+        BankStatementParser parser = findParserByFileName(fileName);
+        if (parser == null) {
+            throw new RuntimeException(NO_PARSER_FOUND);
+        }
+        return parser;
+    }
+
+    @Override
+    public DetectedStatement detectParser(String fileName, InputStream is) {
+        BankStatementParser parser = findParserByFileName(fileName);
+        if (parser != null) {
+            return new DetectedStatement(parser, is);
+        }
+        if (!contentDetection) {
+            throw new RuntimeException(NO_PARSER_FOUND);
+        }
+
+        // the buffer is only as large as the inspected prefix, the rest of the upload streams through it
+        InputStream statement = is.markSupported() ? is : new BufferedInputStream(is, CONTENT_PREFIX_LIMIT);
+        String statementHead = new String(InputStreamUtils.peek(statement, CONTENT_PREFIX_LIMIT), StandardCharsets.ISO_8859_1);
+        parser = findParserByContent(statementHead);
+        if (parser == null) {
+            throw new RuntimeException(NO_PARSER_FOUND);
+        }
+        log.info("No parser registered for file name {}, detected {} from its content", fileName, parser.getClass().getSimpleName());
+        return new DetectedStatement(parser, statement);
+    }
+
+    private BankStatementParser findParserByFileName(String fileName) {
 
         log.debug("Looking up bank statement parser for file name {}", fileName);
-        Iterable<BankStatementParser> iterable = bankStatementParsers.stream().filter(applicableFor(fileName)).collect(Collectors.toList());
-        if (isEmpty(iterable)) {
-            throw new RuntimeException("No bank statement parser found. Please check bank statement file name and file extension");
+        BankStatementParser parser = routingIndex.find(fileName);
+        if (parser != null) {
+            return parser;
         }
-        return getOnlyElement(iterable);
+        Iterable<BankStatementParser> iterable = unindexedParsers.stream().filter(applicableFor(fileName)).collect(Collectors.toList());
+        return isEmpty(iterable) ? null : getOnlyElement(iterable);
+
+    }
 
+    /**
+     * @return the parser scoring highest, null when no parser is confident enough or two parsers share the top score
+     */
+    private BankStatementParser findParserByContent(String statementHead) {
+        BankStatementParser bestParser = null;
+        int bestScore = 0;
+        boolean ambiguous = false;
+        for (BankStatementParser parser : bankStatementParsers) {
+            int score = parser.scoreContent(statementHead);
+            if (score > bestScore) {
+                bestParser = parser;
+                bestScore = score;
+                ambiguous = false;
+            } else if (score > 0 && score == bestScore) {
+                ambiguous = true;
+            }
+        }
+        if (ambiguous || bestScore < MIN_CONTENT_CONFIDENCE) {
+            log.debug("Statement content not recognised, best score {}, ambiguous {}", bestScore, ambiguous);
+            return null;
+        }
+        return bestParser;
     }
 
     @VisibleForTesting
     void addBankStatementParser(BankStatementParser bankStatementParser) {
         bankStatementParsers.add(bankStatementParser);
+        index(bankStatementParser);
+    }
+
+    private void index(BankStatementParser parser) {
+        if (parser.getFileNamePatterns().isEmpty()) {
+            unindexedParsers.add(parser);
+        } else {
+            routingIndex.register(parser);
+        }
     }
 
 }
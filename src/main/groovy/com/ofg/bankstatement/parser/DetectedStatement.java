@@ -0,0 +1,28 @@
+package com.ofg.bankstatement.parser;
+
+import java.io.InputStream;
+
+/**
+ * Parser chosen for an uploaded statement, together with the statement stream to hand to it. The stream replays the
+ * bytes read while choosing the parser, so it has to be used instead of the uploaded one.
+ */
+public final class DetectedStatement {
+
+    private final BankStatementParser parser;
+
+    private final InputStream statement;
+
+    DetectedStatement(BankStatementParser parser, InputStream statement) {
+        this.parser = parser;
+        this.statement = statement;
+    }
+
+    public BankStatementParser getParser() {
+        return parser;
+    }
+
+    public InputStream getStatement() {
+        return statement;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.ofg.bankstatement.parser;
+
+import java.util.Locale;
+import java.util.Objects;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Statement file names handled by a parser: a file name prefix and an extension such as {@code .csv}.
+ */
+public final class FileNamePattern {
+
+    private static final char EXTENSION_SEPARATOR = '.';
+
+    private final String prefix;
+
+    private final String extension;
+
+    private final boolean caseSensitive;
+
+    private FileNamePattern(String prefix, String extension, boolean caseSensitive) {
+        Preconditions.checkArgument(StringUtils.isNotEmpty(prefix), "file name prefix can't be empty");
+        Preconditions.checkArgument(extension != null && extension.length() > 1 && extension.lastIndexOf(EXTENSION_SEPARATOR) == 0,
+                "extension must start with its only dot: %s", extension);
+        this.prefix = prefix;
+        this.extension = extension;
+        this.caseSensitive = caseSensitive;
+    }
+
+    public static FileNamePattern ignoringCase(String prefix, String extension) {
+        return new FileNamePattern(prefix, extension, false);
+    }
+
+    public static FileNamePattern caseSensitive(String prefix, String extension) {
+        return new FileNamePattern(prefix, extension, true);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    public boolean matches(String fileName) {
+        if (caseSensitive) {
+            return StringUtils.startsWith(fileName, prefix) && StringUtils.endsWith(fileName, extension);
+        }
+        return StringUtils.startsWithIgnoreCase(fileName, prefix) && StringUtils.endsWithIgnoreCase(fileName, extension);
+    }
+
+    /**
+     * Whether some file name could match both patterns, i.e. the extensions are equal and one prefix starts with the
+     * other. Case is ignored, so two case-sensitive patterns differing only in case are reported as well.
+     */
+    public boolean overlaps(FileNamePattern other) {
+        return extension.equalsIgnoreCase(other.extension)
+                && (StringUtils.startsWithIgnoreCase(prefix, other.prefix) || StringUtils.startsWithIgnoreCase(other.prefix, prefix));
+    }
+
+    /**
+     * Extension of a file name in the form patterns are indexed by: from its last dot on, in lower case. Null when the
+     * name has no dot.
+     */
+    static String extensionKey(String fileName) {
+        int separator = fileName.lastIndexOf(EXTENSION_SEPARATOR);
+        return separator < 0 ? null : fileName.substring(separator).toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileNamePattern)) {
+            return false;
+        }
+        FileNamePattern that = (FileNamePattern) o;
+        return caseSensitive == that.caseSensitive && prefix.equals(that.prefix) && extension.equals(that.extension);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(prefix, extension, caseSensitive);
+    }
+
+    @Override
+    public String toString() {
+        return prefix + "*" + extension + (caseSensitive ? "" : " (ignoring case)");
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.ofg.bankstatement.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Routes a file name to the parser declaring a matching {@link FileNamePattern}: one prefix trie per file extension,
+ * walked along the file name, so a lookup costs O(file name length) whatever the number of registered parsers.
+ * <p>
+ * Overlapping patterns of different parsers are rejected on registration, so at most one parser matches any name.
+ */
+final class FileNameRoutingIndex {
+
+    private final Map<String, Node> triesByExtension = new HashMap<>();
+
+    private final List<Route> routes = new ArrayList<>();
+
+    void register(BankStatementParser parser) {
+        List<FileNamePattern> patterns = parser.getFileNamePatterns();
+        for (FileNamePattern pattern : patterns) {
+            for (Route route : routes) {
+                if (route.parser != parser && route.pattern.overlaps(pattern)) {
+                    throw new IllegalStateException(String.format("File name pattern [%s] of %s overlaps pattern [%s] of %s", pattern,
+                            parser.getClass().getName(), route.pattern, route.parser.getClass().getName()));
+                }
+            }
+        }
+        for (FileNamePattern pattern : patterns) {
+            Route route = new Route(pattern, parser);
+            Node node = triesByExtension.computeIfAbsent(pattern.getExtension().toLowerCase(Locale.ROOT), extension -> new Node());
+            String prefix = pattern.getPrefix();
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(Character.toLowerCase(prefix.charAt(i)), c -> new Node());
+            }
+            node.routes.add(route);
+            routes.add(route);
+        }
+    }
+
+    /**
+     * @return parser declaring a pattern matching the file name, null when there is none
+     */
+    BankStatementParser find(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String extension = FileNamePattern.extensionKey(fileName);
+        Node node = extension == null ? null : triesByExtension.get(extension);
+        for (int i = 0; node != null; i++) {
+            for (Route route : node.routes) {
+                // verifies case-sensitive patterns and that the prefix does not run into the extension
+                if (route.pattern.matches(fileName)) {
+                    return route.parser;
+                }
+            }
+            if (i == fileName.length()) {
+                break;
+            }
+            node = node.children.get(Character.toLowerCase(fileName.charAt(i)));
+        }
+        return null;
+    }
+
+    int size() {
+        return routes.size();
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+
+        private final List<Route> routes = new ArrayList<>(1);
+    }
+
+    private static final class Route {
+
+        private final FileNamePattern pattern;
+
+        private final BankStatementParser parser;
+
+        private Route(FileNamePattern pattern, BankStatementParser parser) {
+            this.pattern = pattern;
+            this.parser = parser;
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.ofg.bankstatement.parser;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.ofg.bankstatement.util.PayerDetailsCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes hits, misses, evictions and size of the {@link PayerDetailsCache} shared by the parsers.
+ */
+@Component
+class PayerDetailsCacheMetrics {
+
+    private static final String METRIC_PREFIX = "bankstatement.parser.payerDetails.cache.";
+
+    @Autowired
+    PayerDetailsCacheMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.register(METRIC_PREFIX + "hits", (Gauge<Long>) () -> PayerDetailsCache.stats().hitCount());
+        metricRegistry.register(METRIC_PREFIX + "misses", (Gauge<Long>) () -> PayerDetailsCache.stats().missCount());
+        metricRegistry.register(METRIC_PREFIX + "hitRate", (Gauge<Double>) () -> PayerDetailsCache.stats().hitRate());
+        metricRegistry.register(METRIC_PREFIX + "evictions", (Gauge<Long>) () -> PayerDetailsCache.stats().evictionCount());
+        metricRegistry.register(METRIC_PREFIX + "size", (Gauge<Long>) PayerDetailsCache::size);
+    }
+
+}
@@ -0,0 +1,390 @@
+package com.ofg.bankstatement.parser;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+import com.ofg.loans.api.beans.AddressInfo;
+import com.ofg.loans.api.beans.payment.PaymentInfo;
+import com.ofg.loans.api.beans.payment.PaymentType;
+
+/**
+ * Payments of a statement stored by column: amounts in cents, booking dates as epoch days and payment types as
+ * ordinals in primitive arrays, and accounts, units and operation types as codes of one dictionary of distinct
+ * strings. Millions of payments then take a few arrays instead of millions of beans, each with its own
+ * {@link AddressInfo}, {@link BigDecimal}, {@link Date} and repeated Strings.
+ * <p>
+ * A batch holds the fields parsers fill, and of the address only {@code location6}, the line parsers put the address
+ * in. Amounts of another scale than 2 and booking dates other than the start of a day in the time zone the batch was
+ * built in are rare, and kept as they are next to the columns, so {@link #get(int)} gives back the payment that was
+ * added. The batch keeps no beans: {@link #get(int)}, {@link #asList()} and {@link #forEach(Consumer)} create a new
+ * payment from the columns on every read, so reading a payment twice gives two beans and changing one changes neither
+ * the other nor the batch. A batch is immutable, see {@link Builder} for building one.
+ */
+public final class PaymentBatch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Epoch day and dictionary code of no date and no string.
+     */
+    private static final int NONE = -1;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int CENTS_SCALE = 2;
+
+    private static final PaymentType[] TYPES = PaymentType.values();
+
+    private final int size;
+
+    private final ZoneId zone;
+
+    private final String[] dictionary;
+
+    private final long[] amountsInCents;
+
+    private final int[] bookingDays;
+
+    private final byte[] types;
+
+    private final int[] accountNumbers;
+
+    private final int[] companyBankAccounts;
+
+    private final int[] units;
+
+    private final int[] bankOperationTypes;
+
+    private final int[] bankOperationNames;
+
+    private final String[] accountHolderNames;
+
+    private final String[] addresses;
+
+    private final BitSet withAddress;
+
+    private final String[] details;
+
+    private final String[] bankReferences;
+
+    /**
+     * Amounts and booking times that don't fit the columns, by payment index.
+     */
+    private final Map<Integer, BigDecimal> irregularAmounts;
+
+    private final Map<Integer, Long> irregularBookingTimes;
+
+    private PaymentBatch(Builder builder) {
+        size = builder.size;
+        zone = builder.zone;
+        dictionary = builder.dictionary.toArray(new String[builder.dictionary.size()]);
+        amountsInCents = Arrays.copyOf(builder.amountsInCents, size);
+        bookingDays = Arrays.copyOf(builder.bookingDays, size);
+        types = Arrays.copyOf(builder.types, size);
+        accountNumbers = Arrays.copyOf(builder.accountNumbers, size);
+        companyBankAccounts = Arrays.copyOf(builder.companyBankAccounts, size);
+        units = Arrays.copyOf(builder.units, size);
+        bankOperationTypes = Arrays.copyOf(builder.bankOperationTypes, size);
+        bankOperationNames = Arrays.copyOf(builder.bankOperationNames, size);
+        accountHolderNames = Arrays.copyOf(builder.accountHolderNames, size);
+        addresses = Arrays.copyOf(builder.addresses, size);
+        withAddress = (BitSet) builder.withAddress.clone();
+        details = Arrays.copyOf(builder.details, size);
+        bankReferences = Arrays.copyOf(builder.bankReferences, size);
+        irregularAmounts = new HashMap<>(builder.irregularAmounts);
+        irregularBookingTimes = new HashMap<>(builder.irregularBookingTimes);
+    }
+
+    public static Builder builder() {
+        return new Builder(ZoneId.systemDefault());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the amount in cents, or {@link Long#MIN_VALUE} when the amount is null, of another scale or too big,
+     *         see {@link #getAmount(int)}
+     */
+    public long getAmountInCents(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return irregularAmounts.containsKey(index) ? Long.MIN_VALUE : amountsInCents[index];
+    }
+
+    public BigDecimal getAmount(int index) {
+        Preconditions.checkElementIndex(index, size);
+        if (irregularAmounts.containsKey(index)) {
+            return irregularAmounts.get(index);
+        }
+        return BigDecimal.valueOf(amountsInCents[index], CENTS_SCALE);
+    }
+
+    /**
+     * @return days since 1970-01-01 of the booking date in the batch's time zone, {@link Integer#MIN_VALUE} for none
+     *         or a date thousands of millennia away
+     */
+    public int getBookingEpochDay(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return bookingDays[index];
+    }
+
+    /**
+     * @return a new date, callers may change it
+     */
+    public Date getBookingDate(int index) {
+        Preconditions.checkElementIndex(index, size);
+        Long time = irregularBookingTimes.get(index);
+        if (time != null) {
+            return new Date(time);
+        }
+        return bookingDays[index] == NO_DATE ? null : new Date(startOfDay(bookingDays[index], zone));
+    }
+
+    public PaymentType getType(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return types[index] == NONE ? null : TYPES[types[index]];
+    }
+
+    public String getAccountNumber(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return decode(accountNumbers[index]);
+    }
+
+    public String getCompanyBankAccount(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return decode(companyBankAccounts[index]);
+    }
+
+    public String getUnit(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return decode(units[index]);
+    }
+
+    public String getBankOperationType(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return decode(bankOperationTypes[index]);
+    }
+
+    public String getBankReference(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return bankReferences[index];
+    }
+
+    /**
+     * @return the payment at the index as a new bean, sharing the batch's Strings
+     */
+    public PaymentInfo get(int index) {
+        Preconditions.checkElementIndex(index, size);
+        PaymentInfo payment = new PaymentInfo();
+        payment.setAmount(getAmount(index));
+        payment.setBookingDate(getBookingDate(index));
+        payment.setType(getType(index));
+        payment.setAccountNumber(decode(accountNumbers[index]));
+        payment.setCompanyBankAccount(decode(companyBankAccounts[index]));
+        payment.setUnit(decode(units[index]));
+        payment.setBankOperationType(decode(bankOperationTypes[index]));
+        payment.setBankOperationName(decode(bankOperationNames[index]));
+        payment.setAccountHolderName(accountHolderNames[index]);
+        if (withAddress.get(index)) {
+            AddressInfo address = new AddressInfo();
+            address.setLocation6(addresses[index]);
+            payment.setAccountHolderAddress(address);
+        }
+        payment.setDetails(details[index]);
+        payment.setBankReference(bankReferences[index]);
+        return payment;
+    }
+
+    /**
+     * @return the payments in the order they were added, an unmodifiable list creating a new payment on every
+     *         {@code get}
+     */
+    public List<PaymentInfo> asList() {
+        return new PaymentList();
+    }
+
+    /**
+     * Hands the payments over one after the other, none is kept by the batch.
+     */
+    public void forEach(Consumer<? super PaymentInfo> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(get(i));
+        }
+    }
+
+    private String decode(int code) {
+        return code == NONE ? null : dictionary[code];
+    }
+
+    private static long startOfDay(int epochDay, ZoneId zone) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private final class PaymentList extends AbstractList<PaymentInfo> implements RandomAccess {
+
+        @Override
+        public PaymentInfo get(int index) {
+            return PaymentBatch.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Adds payments to the columns of a batch, usually as the consumer of
+     * {@link BankStatementParser#importBankStatement(java.io.InputStream, Consumer)}. The payments added are not kept,
+     * only their fields. A builder is not thread safe.
+     */
+    public static final class Builder implements Consumer<PaymentInfo> {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final ZoneId zone;
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        private int size;
+
+        private long[] amountsInCents = new long[INITIAL_CAPACITY];
+
+        private int[] bookingDays = new int[INITIAL_CAPACITY];
+
+        private byte[] types = new byte[INITIAL_CAPACITY];
+
+        private int[] accountNumbers = new int[INITIAL_CAPACITY];
+
+        private int[] companyBankAccounts = new int[INITIAL_CAPACITY];
+
+        private int[] units = new int[INITIAL_CAPACITY];
+
+        private int[] bankOperationTypes = new int[INITIAL_CAPACITY];
+
+        private int[] bankOperationNames = new int[INITIAL_CAPACITY];
+
+        private String[] accountHolderNames = new String[INITIAL_CAPACITY];
+
+        private String[] addresses = new String[INITIAL_CAPACITY];
+
+        private final BitSet withAddress = new BitSet();
+
+        private String[] details = new String[INITIAL_CAPACITY];
+
+        private String[] bankReferences = new String[INITIAL_CAPACITY];
+
+        private final Map<Integer, BigDecimal> irregularAmounts = new HashMap<>();
+
+        private final Map<Integer, Long> irregularBookingTimes = new HashMap<>();
+
+        private Builder(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public void accept(PaymentInfo payment) {
+            add(payment);
+        }
+
+        public Builder add(PaymentInfo payment) {
+            if (size == amountsInCents.length) {
+                grow();
+            }
+            int index = size++;
+            addAmount(index, payment.getAmount());
+            addBookingDate(index, payment.getBookingDate());
+            types[index] = (byte) (payment.getType() == null ? NONE : payment.getType().ordinal());
+            accountNumbers[index] = encode(payment.getAccountNumber());
+            companyBankAccounts[index] = encode(payment.getCompanyBankAccount());
+            units[index] = encode(payment.getUnit());
+            bankOperationTypes[index] = encode(payment.getBankOperationType());
+            bankOperationNames[index] = encode(payment.getBankOperationName());
+            accountHolderNames[index] = payment.getAccountHolderName();
+            if (payment.getAccountHolderAddress() != null) {
+                withAddress.set(index);
+                addresses[index] = payment.getAccountHolderAddress().getLocation6();
+            }
+            details[index] = payment.getDetails();
+            bankReferences[index] = payment.getBankReference();
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PaymentBatch build() {
+            return new PaymentBatch(this);
+        }
+
+        private void addAmount(int index, BigDecimal amount) {
+            if (amount != null && amount.scale() == CENTS_SCALE && amount.unscaledValue().bitLength() < Long.SIZE - 1) {
+                amountsInCents[index] = amount.unscaledValue().longValue();
+            } else {
+                irregularAmounts.put(index, amount);
+            }
+        }
+
+        private void addBookingDate(int index, Date bookingDate) {
+            if (bookingDate == null) {
+                bookingDays[index] = NO_DATE;
+                return;
+            }
+            long time = bookingDate.getTime();
+            long epochDay = Instant.ofEpochMilli(time).atZone(zone).toLocalDate().toEpochDay();
+            boolean inColumn = epochDay == (int) epochDay && epochDay != NO_DATE;
+            bookingDays[index] = inColumn ? (int) epochDay : NO_DATE;
+            if (!inColumn || startOfDay((int) epochDay, zone) != time) {
+                irregularBookingTimes.put(index, time);
+            }
+        }
+
+        private int encode(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        private void grow() {
+            int capacity = amountsInCents.length * 2;
+            amountsInCents = Arrays.copyOf(amountsInCents, capacity);
+            bookingDays = Arrays.copyOf(bookingDays, capacity);
+            types = Arrays.copyOf(types, capacity);
+            accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+            companyBankAccounts = Arrays.copyOf(companyBankAccounts, capacity);
+            units = Arrays.copyOf(units, capacity);
+            bankOperationTypes = Arrays.copyOf(bankOperationTypes, capacity);
+            bankOperationNames = Arrays.copyOf(bankOperationNames, capacity);
+            accountHolderNames = Arrays.copyOf(accountHolderNames, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+            details = Arrays.copyOf(details, capacity);
+            bankReferences = Arrays.copyOf(bankReferences, capacity);
+        }
+    }
+
+}
@@ -0,0 +1,311 @@
+package com.ofg.bankstatement.parser.bre;
+
+import java.math.BigDecimal;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.ofg.bankstatement.util.AmountDecoder;
+import com.ofg.bankstatement.util.FixedWidthDateParser;
+import com.ofg.bankstatement.util.PayerDetails;
+import com.ofg.bankstatement.util.PayerDetailsCache;
+import com.ofg.loans.api.beans.AddressInfo;
+import com.ofg.loans.api.beans.payment.PaymentInfo;
+import com.ofg.loans.api.beans.payment.PaymentType;
+
+/**
+ * Decodes rows of BRE {@code .dat} statements, such as
+ * {@code 0001 | 31/10/14 | 12114020040000... | -48,20 | PLN | PRZELEW WYCHODZĄCY na rach.: ...; dla: ...; tyt.: ...; TNR: ...},
+ * to payments.
+ * <p>
+ * The row is split on {@code |} into trimmed cell bounds, and one walk over the description cell finds the first
+ * {@code TNR:}, {@code z rach.:}, {@code na rach.:}, {@code tyt.:}, {@code od:} and {@code dla:}. Only the values a
+ * payment keeps become Strings. The cell bounds are reused for every row, so a decoder belongs to one thread, see
+ * {@link #forCurrentThread()}.
+ */
+public final class BreRowDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(BreRowDecoder.class);
+
+    private static final ThreadLocal<BreRowDecoder> DECODERS = ThreadLocal.withInitial(BreRowDecoder::new);
+
+    private static final char CELL_SEPARATOR = '|';
+
+    private static final int BOOKING_DATE_CELL = 1;
+
+    private static final int COMPANY_ACCOUNT_CELL = 2;
+
+    private static final int AMOUNT_CELL = 3;
+
+    private static final int UNIT_CELL = 4;
+
+    private static final int DESCRIPTION_CELL = 5;
+
+    private static final String BOOKING_DATE_FORMAT = "dd/MM/yy";
+
+    private static final FixedWidthDateParser BOOKING_DATES = new FixedWidthDateParser(BOOKING_DATE_FORMAT, BreRowDecoder::parseBookingDate);
+
+    private static final char AMOUNT_FIELD_START_PREFIX_MINUS = '-';
+
+    private static final String BANK_REFERENCE_FIELD_START_PREFIX_TNR = "TNR: ";
+
+    private static final int BANK_REFERENCE_LENGTH = 22;
+
+    private static final String ACCOUNT_NUMBER_FIELD_START_PREFIX_Z_RACH = "z rach.: ";
+
+    private static final String ACCOUNT_NUMBER_FIELD_START_PREFIX_NA_RACH = "na rach.: ";
+
+    private static final String DETAILS_START_FIELD_PREFIX_TYT = "tyt.: ";
+
+    private static final String ACCOUNT_HOLDER_DATA_START_FIELD_PREFIX_OD = "od: ";
+
+    private static final String ACCOUNT_HOLDER_DATA_START_FIELD_PREFIX_DLA = "dla: ";
+
+    private static final char FIELD_END = ';';
+
+    private static final String BANK_ACCOUNT_PREFIX_PL = "PL";
+
+    private static final String EMPTY = "";
+
+    private static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CELLS = 8;
+
+    private CharSequence row;
+
+    /**
+     * Start and end of every trimmed cell, one pair after the other.
+     */
+    private int[] cells = new int[INITIAL_CELLS * 2];
+
+    private int cellCount;
+
+    /**
+     * Description cell bounds and the first index of every field prefix in it, relative to the cell start.
+     */
+    private int descriptionStart;
+
+    private int descriptionEnd;
+
+    private int bankReference;
+
+    private int fromAccount;
+
+    private int toAccount;
+
+    private int title;
+
+    private int from;
+
+    private int to;
+
+    private BreRowDecoder() {
+    }
+
+    /**
+     * @return the decoder of the calling thread
+     */
+    public static BreRowDecoder forCurrentThread() {
+        return DECODERS.get();
+    }
+
+    public PaymentInfo decode(CharSequence row) {
+        split(row);
+        Preconditions.checkElementIndex(DESCRIPTION_CELL, cellCount);
+        scanDescription();
+
+        PaymentInfo payment = new PaymentInfo();
+
+        String accountNumber = getAccountNumber();
+        payment.setAccountNumber(accountNumber);
+        payment.setDetails(accountNumber != null ? getDetails() : EMPTY);
+
+        String accountHolderData = accountNumber != null ? getAccountHolderData() : EMPTY;
+        PayerDetails payer = PayerDetailsCache.split(accountHolderData);
+        AddressInfo addressInfo = new AddressInfo();
+        addressInfo.setLocation6(payer.getAddressWithoutName());
+
+        payment.setAccountHolderAddress(addressInfo);
+        payment.setAccountHolderName(payer.getName());
+
+        payment.setCompanyBankAccount(createPlAccountNumber(cell(COMPANY_ACCOUNT_CELL)));
+        boolean outgoing = isOutgoing();
+        payment.setAmount(getAmount(outgoing));
+        payment.setUnit(cell(UNIT_CELL));
+
+        payment.setBookingDate(BOOKING_DATES.parse(row, cells[BOOKING_DATE_CELL * 2], cells[BOOKING_DATE_CELL * 2 + 1]));
+
+        payment.setBankReference(getBankReference());
+        payment.setType(outgoing ? PaymentType.OUTGOING : PaymentType.INCOMING);
+
+        return payment;
+    }
+
+    /**
+     * Cell bounds as splitting on {@code |} and trimming every cell would give them.
+     */
+    private void split(CharSequence row) {
+        this.row = row;
+        cellCount = 0;
+        int cellStart = 0;
+        for (int i = 0; i < row.length(); i++) {
+            if (row.charAt(i) == CELL_SEPARATOR) {
+                addCell(cellStart, i);
+                cellStart = i + 1;
+            }
+        }
+        addCell(cellStart, row.length());
+    }
+
+    private void addCell(int start, int end) {
+        while (start < end && row.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && row.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (cellCount * 2 == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+        cells[cellCount * 2] = start;
+        cells[cellCount * 2 + 1] = end;
+        cellCount++;
+    }
+
+    private String cell(int index) {
+        Preconditions.checkElementIndex(index, cellCount);
+        return row.subSequence(cells[index * 2], cells[index * 2 + 1]).toString();
+    }
+
+    /**
+     * Finds the first index of every field prefix in one walk, as {@code indexOf} of each prefix would.
+     */
+    private void scanDescription() {
+        descriptionStart = cells[DESCRIPTION_CELL * 2];
+        descriptionEnd = cells[DESCRIPTION_CELL * 2 + 1];
+        bankReference = NOT_FOUND;
+        fromAccount = NOT_FOUND;
+        toAccount = NOT_FOUND;
+        title = NOT_FOUND;
+        from = NOT_FOUND;
+        to = NOT_FOUND;
+        for (int i = descriptionStart; i < descriptionEnd; i++) {
+            switch (row.charAt(i)) {
+                case 'T':
+                    bankReference = firstMatch(bankReference, i, BANK_REFERENCE_FIELD_START_PREFIX_TNR);
+                    break;
+                case 'z':
+                    fromAccount = firstMatch(fromAccount, i, ACCOUNT_NUMBER_FIELD_START_PREFIX_Z_RACH);
+                    break;
+                case 'n':
+                    toAccount = firstMatch(toAccount, i, ACCOUNT_NUMBER_FIELD_START_PREFIX_NA_RACH);
+                    break;
+                case 't':
+                    title = firstMatch(title, i, DETAILS_START_FIELD_PREFIX_TYT);
+                    break;
+                case 'o':
+                    from = firstMatch(from, i, ACCOUNT_HOLDER_DATA_START_FIELD_PREFIX_OD);
+                    break;
+                case 'd':
+                    to = firstMatch(to, i, ACCOUNT_HOLDER_DATA_START_FIELD_PREFIX_DLA);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private int firstMatch(int found, int index, String prefix) {
+        if (found != NOT_FOUND || index + prefix.length() > descriptionEnd) {
+            return found;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (row.charAt(index + i) != prefix.charAt(i)) {
+                return NOT_FOUND;
+            }
+        }
+        return index - descriptionStart;
+    }
+
+    private String getAccountNumber() {
+        if (fromAccount <= 0 && toAccount <= 0) {
+            return null;
+        }
+        int start = fromAccount == NOT_FOUND ? toAccount + ACCOUNT_NUMBER_FIELD_START_PREFIX_NA_RACH.length()
+                : fromAccount + ACCOUNT_NUMBER_FIELD_START_PREFIX_Z_RACH.length();
+        return BANK_ACCOUNT_PREFIX_PL + fieldValue(start);
+    }
+
+    private String getDetails() {
+        return title > 0 ? fieldValue(title + DETAILS_START_FIELD_PREFIX_TYT.length()) : EMPTY;
+    }
+
+    private String getAccountHolderData() {
+        if (from <= 0 && to <= 0) {
+            return EMPTY;
+        }
+        int start = from == NOT_FOUND ? to + ACCOUNT_HOLDER_DATA_START_FIELD_PREFIX_DLA.length()
+                : from + ACCOUNT_HOLDER_DATA_START_FIELD_PREFIX_OD.length();
+        return fieldValue(start);
+    }
+
+    /**
+     * Reference of a fixed length after {@code TNR: }, read from the fifth character when the description has none.
+     */
+    private String getBankReference() {
+        int start = bankReference + BANK_REFERENCE_FIELD_START_PREFIX_TNR.length();
+        return description(start, start + BANK_REFERENCE_LENGTH);
+    }
+
+    /**
+     * @return the description from the start up to the next {@code ;}
+     * @throws IndexOutOfBoundsException when no {@code ;} follows
+     */
+    private String fieldValue(int start) {
+        for (int i = descriptionStart + start; i < descriptionEnd; i++) {
+            if (row.charAt(i) == FIELD_END) {
+                return description(start, i - descriptionStart);
+            }
+        }
+        return description(start, NOT_FOUND);
+    }
+
+    private String description(int start, int end) {
+        Preconditions.checkPositionIndexes(start, end, descriptionEnd - descriptionStart);
+        return row.subSequence(descriptionStart + start, descriptionStart + end).toString();
+    }
+
+    private static String createPlAccountNumber(String accountNumber) {
+        return accountNumber.length() > 1 ? BANK_ACCOUNT_PREFIX_PL + accountNumber : EMPTY;
+    }
+
+    private boolean isOutgoing() {
+        int start = cells[AMOUNT_CELL * 2];
+        return start < cells[AMOUNT_CELL * 2 + 1] && row.charAt(start) == AMOUNT_FIELD_START_PREFIX_MINUS;
+    }
+
+    /**
+     * Amount without the minus of an outgoing payment.
+     */
+    private BigDecimal getAmount(boolean outgoing) {
+        int start = cells[AMOUNT_CELL * 2];
+        return AmountDecoder.decode(row, outgoing ? start + 1 : start, cells[AMOUNT_CELL * 2 + 1]);
+    }
+
+    private static Date parseBookingDate(String unformattedDate) {
+        DateFormat formatter = new SimpleDateFormat(BOOKING_DATE_FORMAT);
+        Date date = null;
+        try {
+            date = formatter.parse(unformattedDate);
+        } catch (ParseException e) {
+            log.warn("Error formating booking date", e);
+        }
+        return date;
+    }
+}
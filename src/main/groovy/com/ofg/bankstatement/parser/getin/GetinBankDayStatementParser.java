@@ -1,32 +1,33 @@
 package com.ofg.bankstatement.parser.getin;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
 import javax.xml.datatype.XMLGregorianCalendar;
 import com.ofg.bankstatement.infrastruture.jaxb.JaxbUnmarshaller;
 
 import com.ofg.bankstatement.parser.BankStatementParser;
+import com.ofg.bankstatement.parser.CompanyBankAccounts;
+import com.ofg.bankstatement.parser.FileNamePattern;
+import com.ofg.bankstatement.parser.getin.statement.day.generated.Operacje;
+import com.ofg.bankstatement.util.AmountDecoder;
 import com.ofg.bankstatement.util.BanksUtils;
-import org.apache.commons.io.IOUtils;
+import com.ofg.bankstatement.util.PayerDetails;
+import com.ofg.bankstatement.util.PayerDetailsCache;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.ofg.loans.api.beans.AddressInfo;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
 import com.ofg.loans.api.beans.payment.PaymentType;
-import com.ofg.loans.domain.model.payment.OperationalBank;
-import com.ofg.loans.domain.services.BankStatementParser;
-import com.ofg.loans.infrastructure.jaxb.JaxbUnmarshaller;
-import com.ofg.loans.pl.banks.BankFinderPl;
-import com.ofg.loans.pl.banks.BanksUtils;
 import com.ofg.loans.pl.banks.ImmediateIdentificationPaymentInfoModifier;
-import com.ofg.loans.pl.banks.getin.statement.day.generated.Operacje;
 import com.ofg.loans.pl.db.MiniCreditProductBankAccountsFixture;
 
 @Component
@@ -34,57 +35,66 @@ public class GetinBankDayStatementParser implements BankStatementParser {
 
     private static final String BANK_ACCOUNT_PREFIX_PL = "PL";
 
+    private static final String ROOT_ELEMENT_START = "<OPERACJE";
+
+    private static final String OPERATION_ELEMENT = "OPERACJA";
+
+    private static final int ROOT_ELEMENT_CONFIDENCE = 90;
+
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(FileNamePattern.ignoringCase("wyciagi_biezace", ".xml"),
+            FileNamePattern.ignoringCase("wyciagi__biezace", ".xml"));
+
     private static final String PAYMENT_TYPE_INCOMING = "M";
 
     private static final String PAYMENT_TYPE_OUTGOING = "W";
 
     private static final String EMPTY_STRING = "";
 
+    private static final String ENCODING = "ISO-8859-2";
+
     private static final JaxbUnmarshaller unmarshaller = new JaxbUnmarshaller(Operacje.class.getPackage().getName());
 
     @Autowired
-    BankFinderPl bankFinder;
+    CompanyBankAccounts companyBankAccounts;
 
     ImmediateIdentificationPaymentInfoModifier paymentInfoModifier = new ImmediateIdentificationPaymentInfoModifier();
     
     @Override
     public List<PaymentInfo> importBankStatement(InputStream getinBankData) {
-        Operacje getinUnmarshalledBankPayments = null;
-        try {
-            getinUnmarshalledBankPayments = unmarshaller.unmarshall(IOUtils.toString(getinBankData, "ISO8859_2"));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        List<Operacje.OPERACJA> getinBankPayments = getinUnmarshalledBankPayments.getOPERACJA();
         List<PaymentInfo> payments = new ArrayList<PaymentInfo>();
-        for (Operacje.OPERACJA operation : getinBankPayments) {
-            PaymentInfo payment = new PaymentInfo();
-
-            payment.setDetails(getPaymentDetails(putIfNotNull(operation.getTRESC1()), putIfNotNull(operation.getTRESC2()), putIfNotNull(operation.getTRESC3()),
-                    putIfNotNull(operation.getTRESC4())));
-            payment.setCompanyBankAccount(getCompanyBankAccount(MiniCreditProductBankAccountsFixture.GETIN_IBAN_BANK_CODE));
-            payment.setAccountHolderAddress(getAccountHolderAddress(putIfNotNull(operation.getNAZWA1()), putIfNotNull(operation.getNAZWA2()), putIfNotNull(operation.getNAZWA3()),
-                    putIfNotNull(operation.getNAZWA4())));
-            payment.setAccountHolderName(getAccountHolderName(putIfNotNull(operation.getNAZWA1()), putIfNotNull(operation.getNAZWA2()), putIfNotNull(operation.getNAZWA3()),
-                    putIfNotNull(operation.getNAZWA4())));
-            payment.setAccountNumber(createPlAccountNumber(operation.getRACHUNEK()));
-            payment.setAmount(getAmount(operation.getKWOTA()));
-            payment.setBookingDate(formatBookingDate(operation.getDATAWALUTY()));
-            payment.setType(getPaymentType(operation.getSTRONA()));
-            payment.setUnit(operation.getWALUTA());
-            payment.setBankReference(BanksUtils.md5BankReference(payment));
-            paymentInfoModifier.alterPaymentTypeIfSentFromImmediateIdentificationProvider(payment);
-            payments.add(payment);
-        }
-
+        importBankStatement(getinBankData, payments::add);
         return payments;
     }
 
-    private String getCompanyBankAccount(String ibanBankCode) {
-        OperationalBank bank = bankFinder.findBankByIbanCode(ibanBankCode);
-        String bankAccountNumber = bank != null && bank.getBankAccounts().size() > 0 ? bank.getBankAccounts().get(0).getAccountNumber() : "";
-        return bankAccountNumber;
+    @Override
+    public void importBankStatement(InputStream getinBankData, Consumer<PaymentInfo> consumer) {
+        String companyBankAccount = companyBankAccounts.getAccountNumber(MiniCreditProductBankAccountsFixture.GETIN_IBAN_BANK_CODE);
+        // operations are unmarshalled one at a time, the Operacje tree is never built
+        unmarshaller.unmarshallEach(getinBankData, ENCODING, OPERATION_ELEMENT, Operacje.OPERACJA.class,
+                operation -> consumer.accept(getPaymentInfo(operation, companyBankAccount)));
+    }
+
+    @PostConstruct
+    void registerCompanyBankAccount() {
+        companyBankAccounts.register(MiniCreditProductBankAccountsFixture.GETIN_IBAN_BANK_CODE);
+    }
+
+    private PaymentInfo getPaymentInfo(Operacje.OPERACJA operation, String companyBankAccount) {
+        PaymentInfo payment = new PaymentInfo();
+
+        payment.setDetails(getPaymentDetails(putIfNotNull(operation.getTRESC1()), putIfNotNull(operation.getTRESC2()), putIfNotNull(operation.getTRESC3()),
+                putIfNotNull(operation.getTRESC4())));
+        payment.setCompanyBankAccount(companyBankAccount);
+        setAccountHolder(payment, putIfNotNull(operation.getNAZWA1()), putIfNotNull(operation.getNAZWA2()), putIfNotNull(operation.getNAZWA3()),
+                putIfNotNull(operation.getNAZWA4()));
+        payment.setAccountNumber(createPlAccountNumber(operation.getRACHUNEK()));
+        payment.setAmount(getAmount(operation.getKWOTA()));
+        payment.setBookingDate(formatBookingDate(operation.getDATAWALUTY()));
+        payment.setType(getPaymentType(operation.getSTRONA()));
+        payment.setUnit(operation.getWALUTA());
+        payment.setBankReference(BanksUtils.md5BankReference(payment));
+        paymentInfoModifier.alterPaymentTypeIfSentFromImmediateIdentificationProvider(payment);
+        return payment;
     }
 
     private String putIfNotNull(String value) {
@@ -92,23 +102,20 @@ public class GetinBankDayStatementParser implements BankStatementParser {
     }
 
     private BigDecimal getAmount(String amount) {
-        return new BigDecimal(amount.replace(",", ".").replace(" ", ""));
-    }
-
-    private String getAccountHolderName(String part1, String part2, String part3, String part4) {
-        String accountHolderNameAndAddress = part1 + " " + part2 + " " + part3 + " " + part4;
-        return BanksUtils.parsePersonNameFromDetails(accountHolderNameAndAddress.trim());
+        return AmountDecoder.decodeIgnoringSpaces(amount);
     }
 
-    private AddressInfo getAccountHolderAddress(String part1, String part2, String part3, String part4) {
+    private void setAccountHolder(PaymentInfo payment, String part1, String part2, String part3, String part4) {
         String accountHolderNameAndAddress = part1 + " " + part2 + " " + part3 + " " + part4;
-
-        String accountHolderName = BanksUtils.parsePersonNameFromDetails(accountHolderNameAndAddress.trim());
-        String accountHolderAddress = StringUtils.removeStart(accountHolderNameAndAddress, accountHolderName).trim();
+        String trimmedNameAndAddress = accountHolderNameAndAddress.trim();
+        PayerDetails accountHolder = PayerDetailsCache.split(trimmedNameAndAddress);
 
         AddressInfo addressInfo = new AddressInfo();
-        addressInfo.setLocation6(accountHolderAddress);
-        return addressInfo;
+        // the name is removed from the untrimmed details, which never start with it when the first part is blank
+        boolean startsWithBlank = !accountHolderNameAndAddress.isEmpty() && accountHolderNameAndAddress.charAt(0) <= ' ';
+        addressInfo.setLocation6(startsWithBlank ? trimmedNameAndAddress : accountHolder.getAddressWithoutName());
+        payment.setAccountHolderAddress(addressInfo);
+        payment.setAccountHolderName(accountHolder.getName());
     }
 
     private String getPaymentDetails(String detail1, String detail2, String detail3, String detail4) {
@@ -135,9 +142,13 @@ public class GetinBankDayStatementParser implements BankStatementParser {
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return (StringUtils.startsWithIgnoreCase(fileName, "wyciagi_biezace") || StringUtils.startsWithIgnoreCase(fileName, "wyciagi__biezace"))
-                && StringUtils.endsWithIgnoreCase(fileName, ".xml");
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
+    }
+
+    @Override
+    public int scoreContent(String statementHead) {
+        return statementHead.contains(ROOT_ELEMENT_START) ? ROOT_ELEMENT_CONFIDENCE : 0;
     }
 
 }
@@ -1,98 +1,115 @@
 package com.ofg.bankstatement.parser.getin;
 
+import com.google.common.collect.ImmutableList;
 import com.ofg.bankstatement.infrastruture.jaxb.JaxbUnmarshaller;
 import com.ofg.bankstatement.parser.BankStatementParser;
+import com.ofg.bankstatement.parser.FileNamePattern;
+import com.ofg.bankstatement.parser.getin.statement.month.generated.Wychagi;
+import com.ofg.bankstatement.parser.getin.statement.month.generated.Wyciag;
+import com.ofg.bankstatement.util.AmountDecoder;
 import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.util.PayerDetails;
+import com.ofg.bankstatement.util.PayerDetailsCache;
 import com.ofg.loans.api.beans.AddressInfo;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
 import com.ofg.loans.api.beans.payment.PaymentType;
-import org.apache.commons.io.IOUtils;
+import com.ofg.loans.pl.banks.ImmediateIdentificationPaymentInfoModifier;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.stereotype.Component;
 
 import javax.xml.datatype.XMLGregorianCalendar;
-import java.io.IOException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 public class GetinBankMonthStatementParser implements BankStatementParser {
 
     private static final String BANK_ACCOUNT_PREFIX_PL = "PL";
 
+    private static final String ROOT_ELEMENT = "WYCIAGI";
+
+    private static final String ROOT_ELEMENT_START = "<" + ROOT_ELEMENT;
+
+    private static final String ACCOUNT_ATTRIBUTE = "rachunek";
+
+    private static final String CURRENCY_ATTRIBUTE = "waluta";
+
+    private static final String OPERATION_ELEMENT = "OPERACJA";
+
+    private static final int ROOT_ELEMENT_CONFIDENCE = 90;
+
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(FileNamePattern.ignoringCase("statement_20", ".xml"),
+            FileNamePattern.ignoringCase("wyciagi_20", ".xml"));
+
     private static final String PAYMENT_TYPE_CREDIT = "C";
 
     private static final String PAYMENT_TYPE_REVERSE_DEBIT = "RD";
 
     private static final String EMPTY_STRING = "";
 
+    private static final String ENCODING = "ISO-8859-2";
+
     private static final JaxbUnmarshaller unmarshaller = new JaxbUnmarshaller(Wychagi.class.getPackage().getName());
 
     private static final ImmediateIdentificationPaymentInfoModifier paymentInfoModifier = new ImmediateIdentificationPaymentInfoModifier();
 
     @Override
     public List<PaymentInfo> importBankStatement(InputStream getinBankData) {
-        Wychagi getinUnmarshalledBankPayments = null;
-        try {
-            getinUnmarshalledBankPayments = unmarshaller.unmarshall(IOUtils.toString(getinBankData, "ISO8859_2"));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        Wychagi getinBankPayments = getinUnmarshalledBankPayments;
         List<PaymentInfo> payments = new ArrayList<PaymentInfo>();
-
-        if (getinBankPayments.getWYCIAG() != null) {
-            List<Wyciag.OPERACJA> paymentOperations = getinBankPayments.getWYCIAG().getOPERACJA();
-
-            for (Wyciag.OPERACJA operation : paymentOperations) {
-                PaymentInfo payment = new PaymentInfo();
-
-                payment.setDetails(getPaymentDetails(putIfNotNull(operation.getTRESC1()), putIfNotNull(operation.getTRESC2()), putIfNotNull(operation.getTRESC3()),
-                        putIfNotNull(operation.getTRESC4())));
-                payment.setCompanyBankAccount(createPlAccountNumber(getinBankPayments.getRachunek()));
-                payment.setAccountHolderAddress(getAccountHolderAddress(putIfNotNull(operation.getNAZWA1()), putIfNotNull(operation.getNAZWA2()),
-                        putIfNotNull(operation.getNAZWA3()), putIfNotNull(operation.getNAZWA4())));
-                payment.setAccountHolderName(getAccountHolderName(putIfNotNull(operation.getNAZWA1()), putIfNotNull(operation.getNAZWA2()), putIfNotNull(operation.getNAZWA3()),
-                        putIfNotNull(operation.getNAZWA4())));
-                payment.setAccountNumber(createPlAccountNumber(operation.getRACHUNEK()));
-                payment.setAmount(getAmount(operation.getKWOTA()));
-                payment.setBookingDate(formatBookingDate(operation.getDATAWALUTY()));
-                payment.setType(getPaymentType(operation.getSTRONA()));
-                payment.setUnit(getinBankPayments.getWaluta());
-                payment.setBankReference(BanksUtils.md5BankReference(payment));
-                paymentInfoModifier.alterPaymentTypeIfSentFromImmediateIdentificationProvider(payment);
-                payments.add(payment);
-            }
-        }
+        importBankStatement(getinBankData, payments::add);
         return payments;
     }
 
+    @Override
+    public void importBankStatement(InputStream getinBankData, Consumer<PaymentInfo> consumer) {
+        // operations are unmarshalled one at a time, the Wychagi tree is never built
+        StatementAccount statementAccount = new StatementAccount();
+        unmarshaller.unmarshallEach(getinBankData, ENCODING, OPERATION_ELEMENT, Wyciag.OPERACJA.class, statementAccount,
+                operation -> consumer.accept(getPaymentInfo(operation, statementAccount.companyBankAccount, statementAccount.unit)));
+    }
+
+    private PaymentInfo getPaymentInfo(Wyciag.OPERACJA operation, String companyBankAccount, String unit) {
+        PaymentInfo payment = new PaymentInfo();
+
+        payment.setDetails(getPaymentDetails(putIfNotNull(operation.getTRESC1()), putIfNotNull(operation.getTRESC2()), putIfNotNull(operation.getTRESC3()),
+                putIfNotNull(operation.getTRESC4())));
+        payment.setCompanyBankAccount(createPlAccountNumber(companyBankAccount));
+        setAccountHolder(payment, putIfNotNull(operation.getNAZWA1()), putIfNotNull(operation.getNAZWA2()),
+                putIfNotNull(operation.getNAZWA3()), putIfNotNull(operation.getNAZWA4()));
+        payment.setAccountNumber(createPlAccountNumber(operation.getRACHUNEK()));
+        payment.setAmount(getAmount(operation.getKWOTA()));
+        payment.setBookingDate(formatBookingDate(operation.getDATAWALUTY()));
+        payment.setType(getPaymentType(operation.getSTRONA()));
+        payment.setUnit(unit);
+        payment.setBankReference(BanksUtils.md5BankReference(payment));
+        paymentInfoModifier.alterPaymentTypeIfSentFromImmediateIdentificationProvider(payment);
+        return payment;
+    }
+
     private String putIfNotNull(String value) {
         return (value == null ? EMPTY_STRING : value);
     }
 
     private BigDecimal getAmount(String amount) {
-        return new BigDecimal(amount.replace(",", ".").replace(" ", ""));
-    }
-
-    private String getAccountHolderName(String part1, String part2, String part3, String part4) {
-        String accountHolderNameAndAddress = part1 + " " + part2 + " " + part3 + " " + part4;
-        return BanksUtils.parsePersonNameFromDetails(accountHolderNameAndAddress.trim());
+        return AmountDecoder.decodeIgnoringSpaces(amount);
     }
 
-    private AddressInfo getAccountHolderAddress(String part1, String part2, String part3, String part4) {
+    private void setAccountHolder(PaymentInfo payment, String part1, String part2, String part3, String part4) {
         String accountHolderNameAndAddress = part1 + " " + part2 + " " + part3 + " " + part4;
-
-        String accountHolderName = BanksUtils.parsePersonNameFromDetails(accountHolderNameAndAddress.trim());
-        String accountHolderAddress = StringUtils.removeStart(accountHolderNameAndAddress, accountHolderName).trim();
+        String trimmedNameAndAddress = accountHolderNameAndAddress.trim();
+        PayerDetails accountHolder = PayerDetailsCache.split(trimmedNameAndAddress);
 
         AddressInfo addressInfo = new AddressInfo();
-        addressInfo.setLocation6(accountHolderAddress);
-        return addressInfo;
+        // the name is removed from the untrimmed details, which never start with it when the first part is blank
+        boolean startsWithBlank = !accountHolderNameAndAddress.isEmpty() && accountHolderNameAndAddress.charAt(0) <= ' ';
+        addressInfo.setLocation6(startsWithBlank ? trimmedNameAndAddress : accountHolder.getAddressWithoutName());
+        payment.setAccountHolderAddress(addressInfo);
+        payment.setAccountHolderName(accountHolder.getName());
     }
 
     private String getPaymentDetails(String detail1, String detail2, String detail3, String detail4) {
@@ -118,9 +135,32 @@ public class GetinBankMonthStatementParser implements BankStatementParser {
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return (StringUtils.startsWithIgnoreCase(fileName, "statement_20") || StringUtils.startsWithIgnoreCase(fileName, "wyciagi_20"))
-                && StringUtils.endsWithIgnoreCase(fileName, ".xml");
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
+    }
+
+    @Override
+    public int scoreContent(String statementHead) {
+        return statementHead.contains(ROOT_ELEMENT_START) ? ROOT_ELEMENT_CONFIDENCE : 0;
+    }
+
+    /**
+     * Account number and currency of the statement, read from the attributes of the root element before the first
+     * operation is unmarshalled.
+     */
+    private static final class StatementAccount implements Consumer<XMLStreamReader> {
+
+        private String companyBankAccount;
+
+        private String unit;
+
+        @Override
+        public void accept(XMLStreamReader element) {
+            if (ROOT_ELEMENT.equals(element.getLocalName())) {
+                companyBankAccount = element.getAttributeValue(null, ACCOUNT_ATTRIBUTE);
+                unit = element.getAttributeValue(null, CURRENCY_ATTRIBUTE);
+            }
+        }
     }
 
 }
@@ -1,25 +1,39 @@
 package com.ofg.bankstatement.parser.mt940;
 
+import static com.ofg.bankstatement.util.BanksUtils.*;
 import static org.apache.commons.lang.StringUtils.*;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 import com.ofg.bankstatement.parser.BankStatementParser;
+import com.ofg.bankstatement.util.AmountDecoder;
 import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.util.FixedWidthDateParser;
+import com.ofg.bankstatement.util.PayerDetails;
+import com.ofg.bankstatement.util.PayerDetailsCache;
+import com.ofg.bankstatement.util.LineReader;
 import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import com.google.common.base.Preconditions;
 import com.ofg.loans.api.beans.AddressInfo;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
 import com.ofg.loans.api.beans.payment.PaymentType;
 import com.ofg.loans.domain.Iban;
-import com.ofg.loans.domain.util.InputStreamUtils;
-import com.ofg.loans.util.date.DateTimeUtils;
 
 public abstract class Mt940BankStatementParser implements BankStatementParser {
 
@@ -37,11 +51,25 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
 
     protected static final String BOOKING_DATE_FORMAT = "yyMMdd";
 
+    private static final FixedWidthDateParser BOOKING_DATES = FixedWidthDateParser.dateTimeUtils(BOOKING_DATE_FORMAT);
+
     protected static final String BANK_ACCOUNT_PREFIX_PL = "PL";
 
     protected static final String BANK_ACCOUNT_PREFIX_PL00 = "PL00";
 
-    private static final String SUB_FIELD_PREFIX = "<";
+    /**
+     * Content score of a statement with the MT940 :20: and :25: header tags, before any bank specific signal.
+     */
+    protected static final int MT940_HEADER_CONFIDENCE = 50;
+
+    protected static final int SUB_FIELD_CONFIDENCE = 10;
+
+    /**
+     * Added by parsers recognising tags or sub-fields only their bank uses.
+     */
+    protected static final int BANK_LAYOUT_CONFIDENCE = 30;
+
+    protected static final String SUB_FIELD_PREFIX = "<";
 
     private static final String DETAILS_START_FIELD_PREFIX_20 = "<20";
 
@@ -57,7 +85,9 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
 
     private static final String PAYMENT_REFERENCE_NUMBER_FIELD_PREFIX_63 = "<63";
 
-    private static final String ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25 = ":25:";
+    protected static final String TRANSACTION_REFERENCE_FIELD_PREFIX_20 = ":20:";
+
+    protected static final String ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25 = ":25:";
 
     private static final String HEADER_LAST_FIELD_60F = ":60F:";
 
@@ -71,6 +101,14 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
 
     protected static final String CURRENCY_UNIT = "PLN";
 
+    /**
+     * Transaction blocks converted by one pool task in parallel mode.
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 256;
+
+    @Autowired(required = false)
+    private Mt940ConversionPool conversionPool;
+
     final static class Mt940Payment {
         private List<String> headerLines;
 
@@ -78,7 +116,7 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
 
         private String companyBankAccount;
 
-        private Mt940Payment(String companyBankAccount, List<String> headerLines, List<String> statementLines) {
+        Mt940Payment(String companyBankAccount, List<String> headerLines, List<String> statementLines) {
             this.headerLines = headerLines;
             this.statementLines = statementLines;
             this.companyBankAccount = companyBankAccount;
@@ -103,9 +141,59 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
 
     @Override
     public List<PaymentInfo> importBankStatement(InputStream inputStream) {
-        List<String> lines = InputStreamUtils.readLines(inputStream, getImportFileEncoding());
-        List<Mt940Payment> mt940Payments = prepareMt940Payments(lines);
-        return getPaymentsInfo(mt940Payments);
+        List<PaymentInfo> payments = new ArrayList<PaymentInfo>();
+        importBankStatement(inputStream, payments::add);
+        return payments;
+    }
+
+    @Override
+    public void importBankStatement(InputStream inputStream, Consumer<PaymentInfo> consumer) {
+        PaymentConversion conversion = newPaymentConversion(consumer);
+        Mt940PaymentCollector collector = new Mt940PaymentCollector(conversion);
+        // every line ends up in a transaction block, so each view is copied exactly once
+        try {
+            LineReader.forEachNonBlankLine(inputStream, getImportFileEncoding(), line -> collector.accept(line.toString()));
+            conversion.finish();
+        } finally {
+            conversion.cancel();
+        }
+    }
+
+    /**
+     * Memory-maps the statement file and imports it with {@link #importBankStatement(ByteBuffer, Consumer)}.
+     */
+    public void importBankStatement(Path statementFile, Consumer<PaymentInfo> consumer) {
+        try (FileChannel channel = FileChannel.open(statementFile, StandardOpenOption.READ)) {
+            Preconditions.checkArgument(channel.size() <= Integer.MAX_VALUE, "Statement file is too large to be mapped: %s", statementFile);
+            importBankStatement(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), consumer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Imports a statement from raw bytes in {@link #getImportFileEncoding()}. Blocks are split on the bytes and lines
+     * are decoded only when the parsing hooks read them.
+     */
+    public void importBankStatement(ByteBuffer statement, Consumer<PaymentInfo> consumer) {
+        Mt940ByteTokenizer tokenizer = new Mt940ByteTokenizer(statement, Charset.forName(getImportFileEncoding()), getHeaderLastFieldPrefixes(),
+                new String[] { getTransactionBlockLastField1(), getTransactionBlockLastField2() });
+        PaymentConversion conversion = newPaymentConversion(consumer);
+        try {
+            tokenizer.tokenize(conversion);
+            conversion.finish();
+        } finally {
+            conversion.cancel();
+        }
+    }
+
+    /**
+     * Blocks are converted on the shared {@link Mt940ConversionPool} while the file is still being split when it is
+     * parallel, otherwise on the importing thread.
+     */
+    private PaymentConversion newPaymentConversion(Consumer<PaymentInfo> consumer) {
+        return conversionPool != null && conversionPool.isParallel() ? new ParallelPaymentConversion(conversionPool.getPool(), consumer)
+                : new PaymentConversion(consumer);
     }
 
     protected void fillPaymentStatementFieldsData(PaymentInfo payment, String line) {
@@ -118,9 +206,8 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
     }
 
     protected int fillBookingDate(PaymentInfo payment, String line, int parsingIndex) {
-        int length = BOOKING_DATE_FORMAT.length();
-        String datePart = line.substring(parsingIndex, parsingIndex + length);
-        Date bookingDate = DateTimeUtils.date(datePart, BOOKING_DATE_FORMAT);
+        int length = BOOKING_DATES.getWidth();
+        Date bookingDate = BOOKING_DATES.parse(line, parsingIndex, parsingIndex + length);
         payment.setBookingDate(bookingDate);
         return parsingIndex + length;
     }
@@ -152,17 +239,22 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
     }
 
     protected int fillAmount(PaymentInfo payment, String line, int parsingIndex) {
-        String amountValue = parseAmount(line, parsingIndex);
-        payment.setAmount(new BigDecimal(amountValue.replace(",", ".")));
+        int amountStart = getAmountStartPosition(parsingIndex);
+        int amountEnd = BanksUtils.indexOfFirstLetter(line, amountStart + 1);
+        payment.setAmount(AmountDecoder.decode(line, amountStart, amountEnd));
+        // the amount ends at the first letter after it, unless the line has a letter where the amount was expected
+        if (amountStart == parsingIndex && !Character.isLetter(line.charAt(parsingIndex))) {
+            return amountEnd;
+        }
         return BanksUtils.indexOfFirstLetter(line, parsingIndex);
     }
 
     protected void fillOperation(PaymentInfo payment, String line, int parsingIndex) {
-        String transactionTypeIdentificationCode = line.substring(parsingIndex, parsingIndex + 1);
-        if (Arrays.asList(TRANSACTION_TYPE_IDENTIFICATION_CODE_N, TRANSACTION_TYPE_IDENTIFICATION_CODE_F)
-                .contains(transactionTypeIdentificationCode)) {
-            String transactionTypeCode = line.substring(parsingIndex + 1, parsingIndex + 4);
-            Mt940TransactionType type = Mt940TransactionType.findByCode(transactionTypeCode);
+        char transactionTypeIdentificationCode = line.charAt(parsingIndex);
+        if (TRANSACTION_TYPE_IDENTIFICATION_CODE_N.charAt(0) == transactionTypeIdentificationCode
+                || TRANSACTION_TYPE_IDENTIFICATION_CODE_F.charAt(0) == transactionTypeIdentificationCode) {
+            Preconditions.checkPositionIndexes(parsingIndex + 1, parsingIndex + 4, line.length());
+            Mt940TransactionType type = Mt940TransactionType.findByCode(line, parsingIndex + 1, parsingIndex + 4);
             if (type != null) {
                 payment.setBankOperationType(type.name());
                 payment.setBankOperationName(type.getDescription());
@@ -170,43 +262,49 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
         }
     }
 
-    protected String parseAmount(String statementLine, int transactionAmountStartPosition) {
-        int transactionAmountEndPosition = BanksUtils.indexOfFirstLetter(statementLine, transactionAmountStartPosition + 1);
-        return statementLine.substring(transactionAmountStartPosition, transactionAmountEndPosition);
+    /**
+     * @return where the amount starts, the amount ends at the first letter after its first character
+     */
+    protected int getAmountStartPosition(int transactionAmountStartPosition) {
+        return transactionAmountStartPosition;
     }
 
     protected boolean isCheckCurrencyRequired() {
         return true;
     }
 
-    protected String parseBankReference(List<String> statementLines) {
-        int bankReferenceLineIndex = indexOfFirstLineWithPrefix(statementLines, getBankReferenceFieldPrefix());
+    protected String parseBankReference(Mt940Fields fields) {
+        int bankReferenceLineIndex = fields.indexOf(getBankReferenceFieldPrefix());
         if (bankReferenceLineIndex > -1) {
-            String bankReferenceLine = getLineIfExists(getBankReferenceFieldPrefix(), statementLines, bankReferenceLineIndex);
+            String bankReferenceLine = fields.getLineIfExists(getBankReferenceFieldPrefix(), bankReferenceLineIndex);
             return parseFieldValue(getBankReferenceFieldPrefix(), bankReferenceLine);
         }
         return null;
     }
 
-    protected String parsePayerName(List<String> statementLines) {
-        String payedDetails = parsePayerDetails(statementLines);
+    protected String parsePayerName(Mt940Fields fields) {
+        String payedDetails = parsePayerDetails(fields);
         return preparePayerName(payedDetails);
     }
 
-    protected void fillPaymentOtherFieldsData(PaymentInfo payment, List<String> statementLines) {
-        String payerNameAndAddress = parsePayerDetails(statementLines);
-        String payerName = parsePayerName(statementLines);
+    protected void fillPaymentOtherFieldsData(PaymentInfo payment, Mt940Fields fields) {
+        String payerNameAndAddress = parsePayerDetails(fields);
+        PayerDetails payer = preparePayerDetails(payerNameAndAddress);
         AddressInfo addressInfo = new AddressInfo();
-        addressInfo.setLocation6(StringUtils.removeStart(payerNameAndAddress, payerName).trim());
+        addressInfo.setLocation6(payer.getAddressWithoutName());
         payment.setAccountHolderAddress(addressInfo);
-        payment.setAccountNumber(readAccountNumber(statementLines));
-        payment.setAccountHolderName(payerName);
-        String bankReference = parseBankReference(statementLines);
+        payment.setAccountNumber(readAccountNumber(fields));
+        payment.setAccountHolderName(payer.getName());
+        String bankReference = parseBankReference(fields);
         payment.setBankReference(prepareBankReference(bankReference, payment));
     }
 
     protected String preparePayerName(String payerDetails) {
-        return BanksUtils.parsePersonNameFromDetails(payerDetails);
+        return preparePayerDetails(payerDetails).getName();
+    }
+
+    protected PayerDetails preparePayerDetails(String payerDetails) {
+        return PayerDetailsCache.split(payerDetails);
     }
 
     protected String prepareAccountNumber(String payerIbanBranchCode, String payerClientAccountNumber) {
@@ -218,53 +316,36 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
         }
     }
 
-    protected String parsePayerDetails(List<String> lines) {
+    protected String parsePayerDetails(Mt940Fields fields) {
         return StringUtils.join(
-                new String[] { BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS1_FIELD_PREFIX_27),
-                        BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS2_FIELD_PREFIX_28), BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS3_FIELD_PREFIX_29) })
+                new String[] { fields.getValue(TRANSACTION_PAYER_DETAILS1_FIELD_PREFIX_27),
+                        fields.getValue(TRANSACTION_PAYER_DETAILS2_FIELD_PREFIX_28), fields.getValue(TRANSACTION_PAYER_DETAILS3_FIELD_PREFIX_29) })
                 .trim();
     }
 
     protected List<Mt940Payment> prepareMt940Payments(List<String> lines) {
-        List<String> headerLines = new ArrayList<String>();
-        List<String> statementLines = new ArrayList<String>();
-        String companyBankAccount = null;
         List<Mt940Payment> mt940Payments = new ArrayList<Mt940Payment>();
+        Mt940PaymentCollector collector = new Mt940PaymentCollector(mt940Payments::add);
+        lines.forEach(collector);
+        return mt940Payments;
+    }
 
-        boolean processHeaderCollection = true;
-
-        for (String currentLine : lines) {
-            if (processHeaderCollection) {
-                if (currentLine.startsWith(ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25)) {
-                    companyBankAccount = parseFieldValue(ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25, currentLine);
-                }
-                headerLines.add(currentLine);
-                if (isHeaderLastField(currentLine)) {
-                    headerLines.add(currentLine);
-                    processHeaderCollection = false;
-                }
-            } else {
-                if (currentLine.startsWith(TRANSACTION_FIELD_PREFIX_61) && !statementLines.isEmpty()) {
-                    mt940Payments.add(new Mt940Payment(companyBankAccount, headerLines, statementLines));
-                    statementLines = new ArrayList<String>();
-                    statementLines.add(currentLine);
-                } else if (isTransactionBlockLastField(currentLine)) {
-                    mt940Payments.add(new Mt940Payment(companyBankAccount, headerLines, statementLines));
-                    headerLines = new ArrayList<String>();
-                    statementLines = new ArrayList<String>();
-                    companyBankAccount = null;
-                    processHeaderCollection = true;
-                } else {
-                    statementLines.add(currentLine);
-                }
-            }
-
+    @Override
+    public int scoreContent(String statementHead) {
+        if (!containsLineStartingWith(statementHead, TRANSACTION_REFERENCE_FIELD_PREFIX_20)
+                || !containsLineStartingWith(statementHead, ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25)) {
+            return 0;
         }
-        return mt940Payments;
+        return MT940_HEADER_CONFIDENCE + (containsLineStartingWith(statementHead, SUB_FIELD_PREFIX) ? SUB_FIELD_CONFIDENCE : 0);
     }
 
     protected boolean isHeaderLastField(String line) {
-        return line.startsWith(getHeaderLastFieldPrefix());
+        for (String headerLastFieldPrefix : getHeaderLastFieldPrefixes()) {
+            if (line.startsWith(headerLastFieldPrefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     protected boolean isTransactionBlockLastField(String line) {
@@ -275,6 +356,10 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
         return HEADER_LAST_FIELD_60F;
     }
 
+    protected String[] getHeaderLastFieldPrefixes() {
+        return new String[] { getHeaderLastFieldPrefix() };
+    }
+
     protected String getTransactionBlockLastField1() {
         return CLOSING_BALANCE_FIELD_F;
     }
@@ -286,32 +371,44 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
     protected List<PaymentInfo> getPaymentsInfo(List<Mt940Payment> mt940Payments) {
         List<PaymentInfo> payments = new ArrayList<PaymentInfo>();
         for (Mt940Payment mt940Payment : mt940Payments) {
-            PaymentInfo payment = new PaymentInfo();
+            payments.add(getPaymentInfo(mt940Payment));
+        }
+
+        return payments;
+    }
 
-            payment.setDetails(prepareDetails(readDetailsFields(mt940Payment.getStatementLines())).trim());
-            payment.setCompanyBankAccount(prepareCompanyBankAccount(mt940Payment.getCompanyBankAccount()));
+    protected PaymentInfo getPaymentInfo(Mt940Payment mt940Payment) {
+        PaymentInfo payment = new PaymentInfo();
+        Mt940Fields fields = indexFields(mt940Payment.getStatementLines());
 
-            fillPaymentStatementFieldsData(payment, mt940Payment.getStatementLines().get(0));
-            fillPaymentOtherFieldsData(payment, mt940Payment.getStatementLines());
+        payment.setDetails(prepareDetails(readDetailsFields(fields)).trim());
+        payment.setCompanyBankAccount(prepareCompanyBankAccount(mt940Payment.getCompanyBankAccount()));
 
-            payments.add(payment);
-        }
+        fillPaymentStatementFieldsData(payment, mt940Payment.getStatementLines().get(0));
+        fillPaymentOtherFieldsData(payment, fields);
 
-        return payments;
+        return payment;
     }
 
-    protected String readAccountNumber(List<String> statementLines) {
-        int payerIbanBranchCodeLine = indexOfFirstLineWithPrefix(statementLines, ACCOUNT_NUMBER_FIRST_FIELD_PREFIX_30);
-        int payerClientAccountNumberLine = indexOfFirstLineWithPrefix(statementLines, ACCOUNT_NUMBER_SECOND_FIELD_PREFIX_31);
-        String payerIbanBranchCode = getLineIfExists(ACCOUNT_NUMBER_FIRST_FIELD_PREFIX_30, statementLines, payerIbanBranchCodeLine);
-        String payerClientAccountNumber = getLineIfExists(ACCOUNT_NUMBER_SECOND_FIELD_PREFIX_31, statementLines, payerClientAccountNumberLine);
+    /**
+     * Builds the sub-field index handed to the parsing hooks. Called once per transaction block.
+     */
+    protected Mt940Fields indexFields(List<String> statementLines) {
+        return new Mt940Fields(statementLines);
+    }
+
+    protected String readAccountNumber(Mt940Fields fields) {
+        int payerIbanBranchCodeLine = fields.indexOf(ACCOUNT_NUMBER_FIRST_FIELD_PREFIX_30);
+        int payerClientAccountNumberLine = fields.indexOf(ACCOUNT_NUMBER_SECOND_FIELD_PREFIX_31);
+        String payerIbanBranchCode = fields.getLineIfExists(ACCOUNT_NUMBER_FIRST_FIELD_PREFIX_30, payerIbanBranchCodeLine);
+        String payerClientAccountNumber = fields.getLineIfExists(ACCOUNT_NUMBER_SECOND_FIELD_PREFIX_31, payerClientAccountNumberLine);
         return prepareAccountNumber(payerIbanBranchCode, payerClientAccountNumber);
     }
 
-    protected String readDetailsFields(List<String> lines) {
-        int detailsPrefixFirstLine = indexOfFirstLineWithPrefix(lines, DETAILS_START_FIELD_PREFIX_20);
+    protected String readDetailsFields(Mt940Fields fields) {
+        int detailsPrefixFirstLine = fields.indexOf(DETAILS_START_FIELD_PREFIX_20);
 
-        return detailsPrefixFirstLine >= 0 ? joinFieldValuesFromTo(lines, SUB_FIELD_PREFIX, 20, detailsPrefixFirstLine, 7) : EMPTY;
+        return detailsPrefixFirstLine >= 0 ? joinFieldValuesFromTo(fields.getLines(), SUB_FIELD_PREFIX, 20, detailsPrefixFirstLine, 7) : EMPTY;
     }
 
     protected String prepareDetails(String unparsedDetails) {
@@ -334,4 +431,147 @@ public abstract class Mt940BankStatementParser implements BankStatementParser {
         return companyBankAccount;
     }
 
+    /**
+     * Converts transaction blocks to payments on the importing thread, in file order.
+     */
+    private class PaymentConversion implements Consumer<Mt940Payment> {
+
+        protected final Consumer<PaymentInfo> consumer;
+
+        private PaymentConversion(Consumer<PaymentInfo> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(Mt940Payment mt940Payment) {
+            consumer.accept(getPaymentInfo(mt940Payment));
+        }
+
+        void finish() {
+        }
+
+        /**
+         * Drops the blocks not handed over yet, called whether or not the import finished.
+         */
+        void cancel() {
+        }
+    }
+
+    /**
+     * Converts chunks of transaction blocks on the pool while the statement is still being split. At most two chunks
+     * per pool thread are in flight, and finished chunks are handed to the consumer in file order, so payments come out
+     * exactly as in the sequential mode. Every block carries its own header and company bank account, so chunks need
+     * no shared state.
+     */
+    private final class ParallelPaymentConversion extends PaymentConversion {
+
+        private final ForkJoinPool pool;
+
+        private final Deque<ForkJoinTask<List<PaymentInfo>>> pendingChunks = new ArrayDeque<ForkJoinTask<List<PaymentInfo>>>();
+
+        private List<Mt940Payment> chunk = new ArrayList<Mt940Payment>(PARALLEL_CHUNK_SIZE);
+
+        private ParallelPaymentConversion(ForkJoinPool pool, Consumer<PaymentInfo> consumer) {
+            super(consumer);
+            this.pool = pool;
+        }
+
+        @Override
+        public void accept(Mt940Payment mt940Payment) {
+            chunk.add(mt940Payment);
+            if (chunk.size() == PARALLEL_CHUNK_SIZE) {
+                submitChunk();
+            }
+        }
+
+        @Override
+        void finish() {
+            if (!chunk.isEmpty()) {
+                submitChunk();
+            }
+            while (!pendingChunks.isEmpty()) {
+                emitOldestChunk();
+            }
+        }
+
+        /**
+         * Keeps the pool from converting chunks of an import that failed, e.g. while the statement was being split.
+         */
+        @Override
+        void cancel() {
+            chunk.clear();
+            while (!pendingChunks.isEmpty()) {
+                pendingChunks.removeFirst().cancel(false);
+            }
+        }
+
+        private void submitChunk() {
+            final List<Mt940Payment> blocks = chunk;
+            chunk = new ArrayList<Mt940Payment>(PARALLEL_CHUNK_SIZE);
+            pendingChunks.addLast(pool.submit(() -> {
+                List<PaymentInfo> payments = new ArrayList<PaymentInfo>(blocks.size());
+                for (Mt940Payment block : blocks) {
+                    payments.add(getPaymentInfo(block));
+                }
+                return payments;
+            }));
+            if (pendingChunks.size() > 2 * pool.getParallelism()) {
+                emitOldestChunk();
+            }
+        }
+
+        private void emitOldestChunk() {
+            pendingChunks.removeFirst().join().forEach(consumer);
+        }
+    }
+
+    /**
+     * Splits statement lines into {@link Mt940Payment} blocks as they arrive, so a block is handed over as soon as its
+     * last line has been read.
+     */
+    private final class Mt940PaymentCollector implements Consumer<String> {
+
+        private final Consumer<Mt940Payment> consumer;
+
+        private List<String> headerLines = new ArrayList<String>();
+
+        private List<String> statementLines = new ArrayList<String>();
+
+        private String companyBankAccount = null;
+
+        private boolean processHeaderCollection = true;
+
+        private Mt940PaymentCollector(Consumer<Mt940Payment> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(String currentLine) {
+            if (processHeaderCollection) {
+                if (currentLine.startsWith(ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25)) {
+                    companyBankAccount = parseFieldValue(ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25, currentLine);
+                }
+                headerLines.add(currentLine);
+                if (isHeaderLastField(currentLine)) {
+                    headerLines.add(currentLine);
+                    processHeaderCollection = false;
+                }
+            } else {
+                if (currentLine.startsWith(TRANSACTION_FIELD_PREFIX_61) && !statementLines.isEmpty()) {
+                    consumer.accept(new Mt940Payment(companyBankAccount, headerLines, statementLines));
+                    statementLines = new ArrayList<String>();
+                    statementLines.add(currentLine);
+                } else if (isTransactionBlockLastField(currentLine)) {
+                    consumer.accept(new Mt940Payment(companyBankAccount, headerLines, statementLines));
+                    headerLines = new ArrayList<String>();
+                    statementLines = new ArrayList<String>();
+                    companyBankAccount = null;
+                    processHeaderCollection = true;
+                } else {
+                    statementLines.add(currentLine);
+                }
+            }
+        }
+    }
+
 }
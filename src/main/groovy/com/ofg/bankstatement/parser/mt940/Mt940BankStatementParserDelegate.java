@@ -14,6 +14,14 @@ public abstract class Mt940BankStatementParserDelegate extends Mt940BankStatemen
         return false;
     }
 
+    /**
+     * Delegates are only reached through {@link Mt940DelegatingBankStatementParser}, which scores their statements.
+     */
+    @Override
+    public final int scoreContent(String statementHead) {
+        return 0;
+    }
+
     public static class IsDelegateForPredicate implements Predicate<Mt940BankStatementParserDelegate> {
 
         private final String companyBankAccount;
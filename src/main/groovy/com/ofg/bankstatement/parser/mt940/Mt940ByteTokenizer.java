@@ -0,0 +1,225 @@
+package com.ofg.bankstatement.parser.mt940;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParser.Mt940Payment;
+
+/**
+ * Splits an MT940 statement held in a {@link ByteBuffer} (usually a memory-mapped file) into {@link Mt940Payment}
+ * blocks without decoding it up front.
+ * <p>
+ * Line boundaries and the structural tags (:25:, :61:, header and closing balance fields) are matched on the raw bytes,
+ * which is safe for Cp1250, Cp852 and UTF-8 since all tags are plain ASCII. Each line is kept as an offset/length view
+ * into the buffer and decoded only when a parser hook reads it, so header lines and sub-fields nobody asks for never
+ * become Strings.
+ */
+final class Mt940ByteTokenizer {
+
+    private static final byte[] ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25 = ascii(Mt940BankStatementParser.ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25);
+
+    private static final byte[] TRANSACTION_FIELD_PREFIX_61 = ascii(":61:");
+
+    private static final byte LINE_FEED = '\n';
+
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final int LAST_WHITESPACE_CHAR = ' ';
+
+    private final ByteBuffer statement;
+
+    private final Charset charset;
+
+    private final byte[][] headerLastFieldPrefixes;
+
+    private final byte[][] transactionBlockLastFieldPrefixes;
+
+    Mt940ByteTokenizer(ByteBuffer statement, Charset charset, String[] headerLastFieldPrefixes, String[] transactionBlockLastFieldPrefixes) {
+        this.statement = statement;
+        this.charset = charset;
+        this.headerLastFieldPrefixes = ascii(headerLastFieldPrefixes);
+        this.transactionBlockLastFieldPrefixes = ascii(transactionBlockLastFieldPrefixes);
+    }
+
+    /**
+     * Same block splitting rules as {@link Mt940BankStatementParser#prepareMt940Payments(java.util.List)}, applied to
+     * byte ranges instead of decoded lines.
+     */
+    void tokenize(Consumer<Mt940Payment> consumer) {
+        Lines headerLines = new Lines(statement, charset);
+        Lines statementLines = new Lines(statement, charset);
+        String companyBankAccount = null;
+
+        boolean processHeaderCollection = true;
+
+        int position = statement.position();
+        int end = statement.limit();
+        while (position < end) {
+            int lineEnd = indexOfLineEnd(position, end);
+            int length = lineEnd - position;
+            if (!isBlank(position, lineEnd)) {
+                if (processHeaderCollection) {
+                    if (startsWith(position, length, ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25)) {
+                        int prefixLength = ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25.length;
+                        companyBankAccount = decode(statement, position + prefixLength, length - prefixLength, charset);
+                    }
+                    headerLines.add(position, length);
+                    if (startsWithAny(position, length, headerLastFieldPrefixes)) {
+                        headerLines.add(position, length);
+                        processHeaderCollection = false;
+                    }
+                } else {
+                    if (startsWith(position, length, TRANSACTION_FIELD_PREFIX_61) && !statementLines.isEmpty()) {
+                        consumer.accept(new Mt940Payment(companyBankAccount, headerLines, statementLines));
+                        statementLines = new Lines(statement, charset);
+                        statementLines.add(position, length);
+                    } else if (startsWithAny(position, length, transactionBlockLastFieldPrefixes)) {
+                        consumer.accept(new Mt940Payment(companyBankAccount, headerLines, statementLines));
+                        headerLines = new Lines(statement, charset);
+                        statementLines = new Lines(statement, charset);
+                        companyBankAccount = null;
+                        processHeaderCollection = true;
+                    } else {
+                        statementLines.add(position, length);
+                    }
+                }
+            }
+            position = nextLineStart(lineEnd, end);
+        }
+    }
+
+    private int indexOfLineEnd(int position, int end) {
+        for (int i = position; i < end; i++) {
+            byte b = statement.get(i);
+            if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private int nextLineStart(int lineEnd, int end) {
+        if (lineEnd + 1 < end && statement.get(lineEnd) == CARRIAGE_RETURN && statement.get(lineEnd + 1) == LINE_FEED) {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    /**
+     * Mirrors {@link com.ofg.bankstatement.util.LineReader.Line#isBlank()}: in the
+     * supported encodings only bytes up to 0x20 decode to characters removed by trim.
+     */
+    private boolean isBlank(int position, int lineEnd) {
+        for (int i = position; i < lineEnd; i++) {
+            if ((statement.get(i) & 0xFF) > LAST_WHITESPACE_CHAR) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWithAny(int position, int length, byte[][] prefixes) {
+        for (byte[] prefix : prefixes) {
+            if (startsWith(position, length, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean startsWith(int position, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (statement.get(position + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer statement, int offset, int length, Charset charset) {
+        if (statement.hasArray()) {
+            return new String(statement.array(), statement.arrayOffset() + offset, length, charset);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = statement.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    private static byte[][] ascii(String[] values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = ascii(values[i]);
+        }
+        return bytes;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Lines of one block as offset/length views into the statement buffer. A line is decoded on first access and the
+     * String is kept, so hooks scanning the same line repeatedly do not decode it again.
+     */
+    private static final class Lines extends AbstractList<String> implements RandomAccess {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final ByteBuffer statement;
+
+        private final Charset charset;
+
+        private int[] offsets = new int[INITIAL_CAPACITY];
+
+        private int[] lengths = new int[INITIAL_CAPACITY];
+
+        private String[] decoded = new String[INITIAL_CAPACITY];
+
+        private int size;
+
+        private Lines(ByteBuffer statement, Charset charset) {
+            this.statement = statement;
+            this.charset = charset;
+        }
+
+        private void add(int offset, int length) {
+            if (size == offsets.length) {
+                int capacity = size * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                decoded = Arrays.copyOf(decoded, capacity);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        @Override
+        public String get(int index) {
+            Preconditions.checkElementIndex(index, size);
+            String line = decoded[index];
+            if (line == null) {
+                line = decode(statement, offsets[index], lengths[index], charset);
+                decoded[index] = line;
+            }
+            return line;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.ofg.bankstatement.parser.mt940;
+
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The fork/join pool every MT940 parser converts transaction blocks on when {@code bankstatement.mt940.parallelism} is
+ * above 1. One pool of a fixed size is shared by all banks' parsers, so the threads don't multiply with the number of
+ * banks, and it is shut down only with the application context, never while an import may still submit to it.
+ */
+@Component
+public class Mt940ConversionPool {
+
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public Mt940ConversionPool(@Value("${bankstatement.mt940.parallelism:1}") int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * @return whether blocks are converted on the pool, with a parallelism of 1 they are converted on the importing thread
+     */
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    ForkJoinPool getPool() {
+        Preconditions.checkState(pool != null, "MT940 conversion is not parallel");
+        return pool;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -3,55 +3,101 @@ package com.ofg.bankstatement.parser.mt940;
 import static com.google.common.collect.Iterables.*;
 import static com.google.common.collect.Lists.*;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
-import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.ofg.bankstatement.parser.FileNamePattern;
+import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.util.InputStreamUtils;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
-import com.ofg.loans.domain.util.InputStreamUtils;
-import com.ofg.loans.pl.banks.BankStatementByteStore;
 
 @Component
 class Mt940DelegatingBankStatementParser extends Mt940BankStatementParser {
 
     private static final String ENCODING_WINDOWS_1250 = "Cp1250";
 
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(FileNamePattern.ignoringCase("mt940", ".txt"));
+
+    /**
+     * The :25: tag sits in the first few header lines, so the routing decision never needs more than this prefix.
+     */
+    private static final int HEADER_PREFIX_LIMIT = 64 * 1024;
+
     @Autowired(required = false)
     private Collection<Mt940BankStatementParserDelegate> delegates = newArrayList();
 
     @Override
-    public List<PaymentInfo> importBankStatement(InputStream inputStream) {
-
-        BankStatementByteStore bankStatementByteStore = storeBankStatement(inputStream);
-
-        List<Mt940Payment> mt940Payments = prepareMt940Payments(readLines(bankStatementByteStore));
+    public void importBankStatement(InputStream inputStream, Consumer<PaymentInfo> consumer) {
 
-        Preconditions.checkState(!mt940Payments.isEmpty(), "No Mt940 payments found");
+        BufferedInputStream bufferedStatement = new BufferedInputStream(inputStream, HEADER_PREFIX_LIMIT);
 
-        String companyBankAccount = getCompanyBankAccount(mt940Payments);
+        String companyBankAccount = readCompanyBankAccount(InputStreamUtils.peek(bufferedStatement, HEADER_PREFIX_LIMIT));
 
         Mt940BankStatementParserDelegate applicableDelegate = findApplicableDelegate(companyBankAccount);
-        return applicableDelegate.importBankStatement(bankStatementByteStore.newInputStream());
+        CountingConsumer counter = new CountingConsumer(consumer);
+        applicableDelegate.importBankStatement(bufferedStatement, counter);
+        counter.checkNotEmpty();
 
     }
 
-    private BankStatementByteStore storeBankStatement(InputStream inputStream) {
-        return new BankStatementByteStore(inputStream);
+    @Override
+    public void importBankStatement(ByteBuffer statement, Consumer<PaymentInfo> consumer) {
+        byte[] headerPrefix = new byte[Math.min(HEADER_PREFIX_LIMIT, statement.remaining())];
+        statement.duplicate().get(headerPrefix);
+
+        Mt940BankStatementParserDelegate applicableDelegate = findApplicableDelegate(readCompanyBankAccount(headerPrefix));
+        CountingConsumer counter = new CountingConsumer(consumer);
+        applicableDelegate.importBankStatement(statement, counter);
+        counter.checkNotEmpty();
     }
 
-    private List<String> readLines(BankStatementByteStore bankStatementByteStore) {
-        return InputStreamUtils.readLines(bankStatementByteStore.newInputStream(), ENCODING_WINDOWS_1250);
+    /**
+     * A prefix of {@link #HEADER_PREFIX_LIMIT} bytes may end inside a line, which is left out, so a :25: line cut short
+     * never routes the statement by a part of the account. A header longer than the prefix fails as one without the
+     * account.
+     */
+    @VisibleForTesting
+    String readCompanyBankAccount(byte[] headerPrefix) {
+        String header = new String(headerPrefix, Charset.forName(ENCODING_WINDOWS_1250));
+        if (headerPrefix.length >= HEADER_PREFIX_LIMIT) {
+            header = header.substring(0, Math.max(header.lastIndexOf('\n'), header.lastIndexOf('\r')) + 1);
+        }
+        String companyBankAccount = findCompanyBankAccount(header);
+        return Preconditions.checkNotNull(companyBankAccount, "imported payment statement file not contain bank account");
     }
 
-    private String getCompanyBankAccount(List<Mt940Payment> payments) {
-        Mt940Payment firstPayment = payments.get(0);
-        return Preconditions.checkNotNull(firstPayment.getCompanyBankAccount(), "imported payment statement file not contain bank account");
+    private String findCompanyBankAccount(String header) {
+        String companyBankAccount = null;
+        try {
+            BufferedReader reader = new BufferedReader(new StringReader(header));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25)) {
+                    companyBankAccount = BanksUtils.parseFieldValue(ACCOUNT_IDENTIFICATION_FIELD_PREFIX_25, line);
+                    break;
+                }
+                if (isHeaderLastField(line)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return companyBankAccount;
     }
 
     private Mt940BankStatementParserDelegate findApplicableDelegate(String companyBankAccount) {
@@ -59,8 +105,44 @@ class Mt940DelegatingBankStatementParser extends Mt940BankStatementParser {
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return StringUtils.startsWithIgnoreCase(fileName, "mt940") && StringUtils.endsWithIgnoreCase(fileName, ".txt");
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
+    }
+
+    @Override
+    public int scoreContent(String statementHead) {
+        int score = super.scoreContent(statementHead);
+        if (score == 0) {
+            return 0;
+        }
+        // without a delegate for the statement account this parser can't import it at all
+        String companyBankAccount = findCompanyBankAccount(statementHead);
+        return any(delegates, new Mt940BankStatementParserDelegate.IsDelegateForPredicate(companyBankAccount)) ? score + BANK_LAYOUT_CONFIDENCE : 0;
+    }
+
+    /**
+     * Counts the payments a delegate passes on, the delegates themselves import a statement without transactions as
+     * an empty one.
+     */
+    private static final class CountingConsumer implements Consumer<PaymentInfo> {
+
+        private final Consumer<PaymentInfo> consumer;
+
+        private int payments;
+
+        CountingConsumer(Consumer<PaymentInfo> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(PaymentInfo payment) {
+            payments++;
+            consumer.accept(payment);
+        }
+
+        void checkNotEmpty() {
+            Preconditions.checkState(payments > 0, "No Mt940 payments found");
+        }
     }
 
     @VisibleForTesting
@@ -0,0 +1,85 @@
+package com.ofg.bankstatement.parser.mt940;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.base.Joiner;
+import com.ofg.bankstatement.util.BanksUtils;
+
+/**
+ * Statement lines of one MT940 transaction block together with an index of their sub-field codes.
+ * <p>
+ * The index maps the three character code every sub-field line starts with (e.g. {@code <27}, {@code ~29},
+ * {@code >31}) to the first line carrying it and is built in a single pass when the block is parsed. Lookups behave
+ * exactly like {@link BanksUtils#getFieldValue(List, String)} and friends, but no longer rescan the block for every
+ * field.
+ */
+public class Mt940Fields {
+
+    private static final int SUB_FIELD_CODE_LENGTH = 3;
+
+    private final List<String> lines;
+
+    private final Map<String, Integer> firstLineIndexBySubFieldCode;
+
+    private String joinedLines;
+
+    public Mt940Fields(List<String> lines) {
+        this.lines = lines;
+        this.firstLineIndexBySubFieldCode = new HashMap<String, Integer>(lines.size() * 2);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.length() >= SUB_FIELD_CODE_LENGTH) {
+                firstLineIndexBySubFieldCode.putIfAbsent(line.substring(0, SUB_FIELD_CODE_LENGTH), i);
+            }
+        }
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * @see BanksUtils#indexOfFirstLineWithPrefix(List, String)
+     */
+    public int indexOf(String prefix) {
+        if (prefix.length() != SUB_FIELD_CODE_LENGTH) {
+            return BanksUtils.indexOfFirstLineWithPrefix(lines, prefix);
+        }
+        Integer index = firstLineIndexBySubFieldCode.get(prefix);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @see BanksUtils#getFieldValue(List, String)
+     */
+    public String getValue(String prefix) {
+        int index = indexOf(prefix);
+        if (index > -1) {
+            return getLineIfExists(prefix, index);
+        } else {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * @see BanksUtils#getLineIfExists(String, List, int)
+     */
+    public String getLineIfExists(String prefix, int index) {
+        return BanksUtils.getLineIfExists(prefix, lines, index);
+    }
+
+    /**
+     * @see BanksUtils#getMultilineFieldValue(List, String, String)
+     */
+    public String getMultilineValue(String field, String nextField) {
+        if (joinedLines == null) {
+            joinedLines = Joiner.on("").join(lines);
+        }
+        return BanksUtils.getMultilineFieldValue(joinedLines, field, nextField);
+    }
+
+}
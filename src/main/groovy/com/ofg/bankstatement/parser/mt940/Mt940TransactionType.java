@@ -1,5 +1,7 @@
 package com.ofg.bankstatement.parser.mt940;
 
+import java.util.concurrent.atomic.LongAdder;
+
 public enum Mt940TransactionType {
 
     // @formatter:off
@@ -73,13 +75,61 @@ public enum Mt940TransactionType {
         return description;
     }
 
-    public static Mt940TransactionType findByCode(String code) {
+    private static final int CODE_LENGTH = 3;
+
+    private static final int LETTERS = 'Z' - 'A' + 1;
+
+    /**
+     * Every type at the index its code packs to, see {@link #packedCode(CharSequence, int, int)}.
+     */
+    private static final Mt940TransactionType[] BY_PACKED_CODE = new Mt940TransactionType[LETTERS * LETTERS * LETTERS];
+
+    private static final LongAdder UNKNOWN_CODES = new LongAdder();
+
+    static {
         for (Mt940TransactionType value : values()) {
-            if (value.name().equals(code)) {
-                return value;
+            BY_PACKED_CODE[packedCode(value.name(), 0, CODE_LENGTH)] = value;
+        }
+    }
+
+    public static Mt940TransactionType findByCode(String code) {
+        return code == null ? null : findByCode(code, 0, code.length());
+    }
+
+    /**
+     * Type of the code between {@code start} and {@code end} of the text, so a {@code :61:} line needs no substring.
+     *
+     * @return null when there is no such type, which is counted in {@link #unknownCodeCount()}
+     */
+    public static Mt940TransactionType findByCode(CharSequence text, int start, int end) {
+        int packedCode = end - start == CODE_LENGTH ? packedCode(text, start, end) : -1;
+        Mt940TransactionType type = packedCode == -1 ? null : BY_PACKED_CODE[packedCode];
+        if (type == null) {
+            UNKNOWN_CODES.increment();
+        }
+        return type;
+    }
+
+    /**
+     * @return number of codes looked up without finding a type since the application started
+     */
+    public static long unknownCodeCount() {
+        return UNKNOWN_CODES.sum();
+    }
+
+    /**
+     * @return the upper case letters read as a base 26 number, -1 when there is any other character
+     */
+    private static int packedCode(CharSequence text, int start, int end) {
+        int packedCode = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return -1;
             }
+            packedCode = packedCode * LETTERS + c - 'A';
         }
-        return null;
+        return packedCode;
     }
 
 }
\ No newline at end of file
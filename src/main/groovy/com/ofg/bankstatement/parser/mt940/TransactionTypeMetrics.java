@@ -0,0 +1,23 @@
+package com.ofg.bankstatement.parser.mt940;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.ofg.bankstatement.parser.mt940.kredyt.BZWBKBusinessCodeUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes how many transaction type and BZWBK business codes of {@code :61:} lines were not recognized.
+ */
+@Component
+class TransactionTypeMetrics {
+
+    private static final String METRIC_PREFIX = "bankstatement.parser.mt940.";
+
+    @Autowired
+    TransactionTypeMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.register(METRIC_PREFIX + "unknownTransactionTypes", (Gauge<Long>) Mt940TransactionType::unknownCodeCount);
+        metricRegistry.register(METRIC_PREFIX + "kredyt.unknownBusinessCodes", (Gauge<Long>) BZWBKBusinessCodeUtil::unknownCodeCount);
+    }
+
+}
@@ -4,10 +4,13 @@ import static org.apache.commons.lang.StringUtils.*;
 
 import java.util.List;
 
+import com.ofg.bankstatement.parser.FileNamePattern;
 import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParser;
-import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.parser.mt940.Mt940Fields;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
 import static com.ofg.bankstatement.util.BanksUtils.*;
 
 @Component
@@ -19,6 +22,8 @@ class AliorBankStatementParser extends Mt940BankStatementParser {
 
     private static final String HEADER_LAST_FIELD_13D = ":13D:";
 
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(FileNamePattern.ignoringCase("export20", ".sta"));
+
     private static final String ACCOUNT_NUMBER_FIELD_PREFIX_38 = "<38";
 
     @Override
@@ -37,28 +42,35 @@ class AliorBankStatementParser extends Mt940BankStatementParser {
     }
 
     @Override
-    protected String parsePayerDetails(List<String> lines) {
-        String firstLine = BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS1_FIELD_PREFIX_27);
+    protected String parsePayerDetails(Mt940Fields fields) {
+        String firstLine = fields.getValue(TRANSACTION_PAYER_DETAILS1_FIELD_PREFIX_27);
         firstLine = firstLine.endsWith(" ") ? firstLine : firstLine + " ";
 
         String details =
                 StringUtils.join(
-                        new String[] { firstLine, BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS2_FIELD_PREFIX_28),
-                                BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS3_FIELD_PREFIX_29) }).trim();
+                        new String[] { firstLine, fields.getValue(TRANSACTION_PAYER_DETAILS2_FIELD_PREFIX_28),
+                                fields.getValue(TRANSACTION_PAYER_DETAILS3_FIELD_PREFIX_29) }).trim();
 
         return details;
     }
 
     @Override
-    protected String readAccountNumber(List<String> lines) {
-        int payerAccountNumberLine = indexOfFirstLineWithPrefix(lines, ACCOUNT_NUMBER_FIELD_PREFIX_38);
+    protected String readAccountNumber(Mt940Fields fields) {
+        int payerAccountNumberLine = fields.indexOf(ACCOUNT_NUMBER_FIELD_PREFIX_38);
 
-        return payerAccountNumberLine > 0 ? BANK_ACCOUNT_PREFIX_PL + getLineIfExists(ACCOUNT_NUMBER_FIELD_PREFIX_38, lines, payerAccountNumberLine).trim() : EMPTY;
+        return payerAccountNumberLine > 0 ? BANK_ACCOUNT_PREFIX_PL + fields.getLineIfExists(ACCOUNT_NUMBER_FIELD_PREFIX_38, payerAccountNumberLine).trim() : EMPTY;
+    }
+
+    @Override
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return StringUtils.startsWithIgnoreCase(fileName, "export20") && StringUtils.endsWithIgnoreCase(fileName, ".sta");
+    public int scoreContent(String statementHead) {
+        int score = super.scoreContent(statementHead);
+        // Alior header closes with the :13D: date time indication instead of the opening balance
+        return score > 0 && containsLineStartingWith(statementHead, HEADER_LAST_FIELD_13D) ? score + BANK_LAYOUT_CONFIDENCE : score;
     }
 
 }
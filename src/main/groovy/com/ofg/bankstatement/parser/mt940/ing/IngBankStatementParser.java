@@ -2,11 +2,16 @@ package com.ofg.bankstatement.parser.mt940.ing;
 
 import java.util.List;
 
+import com.ofg.bankstatement.parser.FileNamePattern;
 import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParser;
+import com.ofg.bankstatement.parser.mt940.Mt940Fields;
 import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.util.PayerDetails;
+import com.ofg.bankstatement.util.PayerDetailsCache;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.ImmutableList;
 import com.ofg.loans.api.beans.AddressInfo;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
 import static com.ofg.bankstatement.util.BanksUtils.*;
@@ -16,6 +21,8 @@ class IngBankStatementParser extends Mt940BankStatementParser {
 
     private static final String SUB_FIELD_PREFIX_SYMBOL = "~";
 
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(FileNamePattern.ignoringCase("MT942_M_20", ".txt"));
+
     private static final String ACCOUNT_NUMBER_FIELD_29 = "~29";
 
     private static final String PAYER_DETAILS_FIELD_33 = "~33";
@@ -68,37 +75,36 @@ class IngBankStatementParser extends Mt940BankStatementParser {
     }
 
     @Override
-    protected String parseAmount(String statementLine, int transactionAmountStartPosition) {
-        transactionAmountStartPosition = INDEX_OF_AMOUNT_START;
-        int transactionAmountEndPosition = BanksUtils.indexOfFirstLetter(statementLine, INDEX_OF_AMOUNT_START + 1);
-        return statementLine.substring(transactionAmountStartPosition, transactionAmountEndPosition);
+    protected int getAmountStartPosition(int transactionAmountStartPosition) {
+        return INDEX_OF_AMOUNT_START;
+    }
+
+    @Override
+    protected Mt940Fields indexFields(List<String> statementLines) {
+        return new Mt940Fields(BanksUtils.extractOneSubFieldInOneLine(statementLines, SUB_FIELD_PREFIX_SYMBOL));
     }
 
     @Override
-    protected String readDetailsFields(List<String> lines) {
-        List<String> separatedFieldsLines = BanksUtils.extractOneSubFieldInOneLine(lines, SUB_FIELD_PREFIX_SYMBOL);
+    protected String readDetailsFields(Mt940Fields fields) {
         return StringUtils.join(
-                new String[] { BanksUtils.getFieldValue(separatedFieldsLines, DETAILS_FIELD_20), BanksUtils.getFieldValue(separatedFieldsLines, DETAILS_FIELD_21),
-                        BanksUtils.getFieldValue(separatedFieldsLines, DETAILS_FIELD_22), BanksUtils.getFieldValue(separatedFieldsLines, DETAILS_FIELD_23),
-                        BanksUtils.getFieldValue(separatedFieldsLines, DETAILS_FIELD_24) }).trim();
+                new String[] { fields.getValue(DETAILS_FIELD_20), fields.getValue(DETAILS_FIELD_21),
+                        fields.getValue(DETAILS_FIELD_22), fields.getValue(DETAILS_FIELD_23),
+                        fields.getValue(DETAILS_FIELD_24) }).trim();
     }
 
     @Override
-    protected void fillPaymentOtherFieldsData(PaymentInfo payment, List<String> statementLines) {
+    protected void fillPaymentOtherFieldsData(PaymentInfo payment, Mt940Fields fields) {
         AddressInfo addressInfo = new AddressInfo();
-        List<String> lines = BanksUtils.extractOneSubFieldInOneLine(statementLines, SUB_FIELD_PREFIX_SYMBOL);
 
-        payment.setAccountNumber(readAccountNumber(lines));
+        payment.setAccountNumber(readAccountNumber(fields));
 
-        int payerDetailsLineIndex = indexOfFirstLineWithPrefix(lines, PAYER_DETAILS_FIELD_31);
+        int payerDetailsLineIndex = fields.indexOf(PAYER_DETAILS_FIELD_31);
         if (payerDetailsLineIndex > 0) {
             String payerDetails =
-                    StringUtils.join(new String[] { BanksUtils.getFieldValue(lines, PAYER_DETAILS_FIELD_32), BanksUtils.getFieldValue(lines, PAYER_DETAILS_FIELD_33) });
-            String payerName = BanksUtils.parsePersonNameFromDetails(payerDetails);
-            payment.setAccountHolderName(payerName);
-
-            String payerAddress = payerDetails.substring(payerName.length(), payerDetails.length()).trim();
-            addressInfo.setLocation6(payerAddress);
+                    StringUtils.join(new String[] { fields.getValue(PAYER_DETAILS_FIELD_32), fields.getValue(PAYER_DETAILS_FIELD_33) });
+            PayerDetails payer = PayerDetailsCache.split(payerDetails);
+            payment.setAccountHolderName(payer.getName());
+            addressInfo.setLocation6(payer.getAddressAfterName());
         }
 
         payment.setAccountHolderAddress(addressInfo);
@@ -110,13 +116,19 @@ class IngBankStatementParser extends Mt940BankStatementParser {
     }
 
     @Override
-    protected String readAccountNumber(List<String> lines) {
-        return BANK_ACCOUNT_PREFIX_PL + BanksUtils.getFieldValue(lines, ACCOUNT_NUMBER_FIELD_29);
+    protected String readAccountNumber(Mt940Fields fields) {
+        return BANK_ACCOUNT_PREFIX_PL + fields.getValue(ACCOUNT_NUMBER_FIELD_29);
+    }
+
+    @Override
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return StringUtils.startsWithIgnoreCase(fileName, "MT942_M_20") && StringUtils.endsWithIgnoreCase(fileName, ".txt");
+    public int scoreContent(String statementHead) {
+        int score = super.scoreContent(statementHead);
+        return score > 0 && containsLineStartingWith(statementHead, SUB_FIELD_PREFIX_SYMBOL) ? score + BANK_LAYOUT_CONFIDENCE : score;
     }
 
 }
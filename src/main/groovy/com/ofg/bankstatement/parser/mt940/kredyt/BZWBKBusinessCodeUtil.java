@@ -2,17 +2,16 @@ package com.ofg.bankstatement.parser.mt940.kredyt;
 
 import com.google.common.collect.ImmutableMap;
 import com.ofg.bankstatement.parser.mt940.Mt940TransactionType;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
 
 // For details please search in Google:
 // "MT940- Pelen opis mapowania kodow PS i MB na kody biznesowe oraz 10-cyfrowe kody wewnetrzne"
 public class BZWBKBusinessCodeUtil {
 
-    private static final Logger log = LoggerFactory.getLogger(BZWBKBusinessCodeUtil.class);
-
     private static final Map<String, String> BUSINESS_CODE_2_SWIFT;
 
     static {
@@ -141,18 +140,126 @@ public class BZWBKBusinessCodeUtil {
                 .build();
     }
 
+    private static final int BUSINESS_CODE_LENGTH = 4;
+
+    private static final int NO_CODE = 0;
+
+    private static final long MULTIPLIER_SEED = 940L;
+
+    private static final int MULTIPLIERS_PER_TABLE_SIZE = 10000;
+
+    /**
+     * Perfect hash of the business codes packed by {@link #packedCode(CharSequence, int, int)}: a business code is
+     * known only if {@link #CODES} holds it at the slot {@link #slot(int)} gives, and then {@link #TYPES} holds its
+     * transaction type at that slot. Both tables are compiled from {@link #BUSINESS_CODE_2_SWIFT} at class load.
+     */
+    private static final int[] CODES;
+
+    private static final Mt940TransactionType[] TYPES;
+
+    private static final int MULTIPLIER;
+
+    private static final int SHIFT;
+
+    private static final LongAdder UNKNOWN_CODES = new LongAdder();
+
+    static {
+        int[] packedCodes = new int[BUSINESS_CODE_2_SWIFT.size()];
+        Mt940TransactionType[] types = new Mt940TransactionType[packedCodes.length];
+        int i = 0;
+        for (Map.Entry<String, String> entry : BUSINESS_CODE_2_SWIFT.entrySet()) {
+            packedCodes[i] = packedCode(entry.getKey(), 0, BUSINESS_CODE_LENGTH);
+            // The SWIFT code without its N/F identification code is the MT940 transaction type
+            types[i] = Mt940TransactionType.findByCode(entry.getValue().substring(1));
+            i++;
+        }
+
+        // A table at least 8 times the number of codes takes a few dozen random multipliers to find one that
+        // spreads every code to its own slot
+        int bits = Integer.SIZE - Integer.numberOfLeadingZeros(packedCodes.length * 8 - 1);
+        Random random = new Random(MULTIPLIER_SEED);
+        int[] codes;
+        int multiplier;
+        search:
+        while (true) {
+            codes = new int[1 << bits];
+            for (int attempt = 0; attempt < MULTIPLIERS_PER_TABLE_SIZE; attempt++) {
+                multiplier = random.nextInt() | 1;
+                Arrays.fill(codes, NO_CODE);
+                boolean perfect = true;
+                for (int packedCode : packedCodes) {
+                    int slot = (packedCode * multiplier) >>> (Integer.SIZE - bits);
+                    if (codes[slot] != NO_CODE) {
+                        perfect = false;
+                        break;
+                    }
+                    codes[slot] = packedCode;
+                }
+                if (perfect) {
+                    break search;
+                }
+            }
+            bits++;
+        }
+
+        CODES = codes;
+        MULTIPLIER = multiplier;
+        SHIFT = Integer.SIZE - bits;
+        TYPES = new Mt940TransactionType[codes.length];
+        for (i = 0; i < packedCodes.length; i++) {
+            TYPES[slot(packedCodes[i])] = types[i];
+        }
+    }
+
     private BZWBKBusinessCodeUtil() {
         // No constructor for util class
     }
 
     public static final Mt940TransactionType toMt940TransactionType(String businessCode) {
-        String swiftCode = BUSINESS_CODE_2_SWIFT.get(businessCode);
-        if (swiftCode == null) {
-            log.error("Cannot find such business code: {}", businessCode);
-            return null;
-        } else {
-            String mt940Code = swiftCode.substring(1);
-            return Mt940TransactionType.findByCode(mt940Code);
+        return businessCode == null ? null : toMt940TransactionType(businessCode, 0, businessCode.length());
+    }
+
+    /**
+     * Transaction type of the business code between {@code start} and {@code end} of the text, so a {@code :61:} line
+     * needs no substring.
+     *
+     * @return null for an unknown business code, which is counted in {@link #unknownCodeCount()}
+     */
+    public static Mt940TransactionType toMt940TransactionType(CharSequence text, int start, int end) {
+        int packedCode = end - start == BUSINESS_CODE_LENGTH ? packedCode(text, start, end) : NO_CODE;
+        if (packedCode != NO_CODE) {
+            int slot = slot(packedCode);
+            if (CODES[slot] == packedCode) {
+                return TYPES[slot];
+            }
+        }
+        UNKNOWN_CODES.increment();
+        return null;
+    }
+
+    /**
+     * @return number of business codes looked up without finding a transaction type since the application started
+     */
+    public static long unknownCodeCount() {
+        return UNKNOWN_CODES.sum();
+    }
+
+    private static int slot(int packedCode) {
+        return (packedCode * MULTIPLIER) >>> SHIFT;
+    }
+
+    /**
+     * @return the ASCII characters one per byte, {@link #NO_CODE} when there is a NUL or non ASCII character
+     */
+    private static int packedCode(CharSequence text, int start, int end) {
+        int packedCode = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == 0 || c > 0x7F) {
+                return NO_CODE;
+            }
+            packedCode = packedCode << Byte.SIZE | c;
         }
+        return packedCode;
     }
 }
@@ -1,17 +1,20 @@
 package com.ofg.bankstatement.parser.mt940.kredyt;
 
-        import static org.apache.commons.lang.StringUtils.endsWith;
+        import static com.ofg.bankstatement.util.BanksUtils.containsLineStartingWith;
         import static org.apache.commons.lang.StringUtils.isNotBlank;
         import static org.apache.commons.lang.StringUtils.startsWith;
 
-        import java.math.BigDecimal;
         import java.util.List;
 
+        import com.ofg.bankstatement.parser.FileNamePattern;
         import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParser;
+        import com.ofg.bankstatement.parser.mt940.Mt940Fields;
         import com.ofg.bankstatement.parser.mt940.Mt940TransactionType;
-        import com.ofg.bankstatement.util.BanksUtils;
+        import com.ofg.bankstatement.util.AmountDecoder;
         import org.springframework.stereotype.Component;
 
+        import com.google.common.base.Preconditions;
+        import com.google.common.collect.ImmutableList;
         import com.ofg.loans.api.beans.payment.PaymentInfo;
         import com.ofg.loans.api.beans.payment.PaymentType;
 
@@ -22,6 +25,15 @@ class KredytBankStatementParser extends Mt940BankStatementParser {
     private static final String ACCOUNT_NAME_SUB_FIELD = ">31";
     private static final String NAME_AND_ADDRESS_SUB_FIELD = ">32";
     private static final String HEADER_LAST_FIELD_60M = ":60M:";
+    // Quotation from BZWBK documentation:
+    // Nazwa pliku z ekstraktem z historii rachunku formatowana jest w następujący sposób:
+    // RACHWALUTA-DATA.MT np.: 60005341PLN-20040311.MT przy czym:
+    // RACH − pełny numer rachunku IBAN, dla którego generowany jest eksport;
+    // WALUTA − rachunku jw.;
+    // DATA w formacie: RRRRMMDD;
+    // MT − rozszerzenie pliku identyfikujące typ jako ekstrakt z historii rachunku w formacie MT940
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(
+            FileNamePattern.caseSensitive(KREDYT_ACCOUNT.substring(20), ".MT"));
 
     @Override
     protected int fillPaymentType(PaymentInfo payment, String line, int parsingIndex) {
@@ -39,8 +51,8 @@ class KredytBankStatementParser extends Mt940BankStatementParser {
     protected void fillOperation(PaymentInfo payment, String line, int parsingIndex) {
         // line example: :61:141025CN525,00B130NONREF
         int length = 4;
-        String businessCode = line.substring(parsingIndex, parsingIndex + length);
-        Mt940TransactionType type = BZWBKBusinessCodeUtil.toMt940TransactionType(businessCode);
+        Preconditions.checkPositionIndexes(parsingIndex, parsingIndex + length, line.length());
+        Mt940TransactionType type = BZWBKBusinessCodeUtil.toMt940TransactionType(line, parsingIndex, parsingIndex + length);
         if (type != null) {
             payment.setBankOperationType(type.name());
             payment.setBankOperationName(type.getDescription());
@@ -54,15 +66,13 @@ class KredytBankStatementParser extends Mt940BankStatementParser {
         // 80,0056C1NONREF <- Tricky case. 56 is not a part of amount
 
         int endOfAmount = line.indexOf(',', parsingIndex) + 2;
-        String amountValue = line.substring(parsingIndex, endOfAmount + 1);
-        BigDecimal amount = new BigDecimal(amountValue.replace(",", "."));
-        payment.setAmount(amount);
+        payment.setAmount(AmountDecoder.decode(line, parsingIndex, endOfAmount + 1));
         return endOfAmount + 1;
     }
 
     @Override
-    protected boolean isHeaderLastField(String line) {
-        return line.startsWith(getHeaderLastFieldPrefix()) || line.startsWith(getHeaderLastFieldPrefix2());
+    protected String[] getHeaderLastFieldPrefixes() {
+        return new String[] { getHeaderLastFieldPrefix(), getHeaderLastFieldPrefix2() };
     }
 
     private String getHeaderLastFieldPrefix2() {
@@ -70,13 +80,13 @@ class KredytBankStatementParser extends Mt940BankStatementParser {
     }
 
     @Override
-    protected String readDetailsFields(List<String> lines) {
-        return BanksUtils.getMultilineFieldValue(lines, TITLE_SUB_FIELD, ACCOUNT_NAME_SUB_FIELD);
+    protected String readDetailsFields(Mt940Fields fields) {
+        return fields.getMultilineValue(TITLE_SUB_FIELD, ACCOUNT_NAME_SUB_FIELD);
     }
 
     @Override
-    protected String readAccountNumber(List<String> lines) {
-        String accountNumber = BanksUtils.getMultilineFieldValue(lines, ACCOUNT_NAME_SUB_FIELD,
+    protected String readAccountNumber(Mt940Fields fields) {
+        String accountNumber = fields.getMultilineValue(ACCOUNT_NAME_SUB_FIELD,
                 NAME_AND_ADDRESS_SUB_FIELD);
         if (isNotBlank(accountNumber) && !startsWith(accountNumber, BANK_ACCOUNT_PREFIX_PL)) {
             accountNumber = BANK_ACCOUNT_PREFIX_PL + accountNumber;
@@ -85,20 +95,20 @@ class KredytBankStatementParser extends Mt940BankStatementParser {
     }
 
     @Override
-    protected String parsePayerDetails(List<String> lines) {
-        return BanksUtils.getMultilineFieldValue(lines, NAME_AND_ADDRESS_SUB_FIELD, null);
+    protected String parsePayerDetails(Mt940Fields fields) {
+        return fields.getMultilineValue(NAME_AND_ADDRESS_SUB_FIELD, null);
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        // Quotation from BZWBK documentation:
-        // Nazwa pliku z ekstraktem z historii rachunku formatowana jest w następujący sposób:
-        // RACHWALUTA-DATA.MT np.: 60005341PLN-20040311.MT przy czym:
-        // RACH − pełny numer rachunku IBAN, dla którego generowany jest eksport;
-        // WALUTA − rachunku jw.;
-        // DATA w formacie: RRRRMMDD;
-        // MT − rozszerzenie pliku identyfikujące typ jako ekstrakt z historii rachunku w formacie MT940
-        String accountNumberSuffix = KREDYT_ACCOUNT.substring(20);
-        return startsWith(fileName, accountNumberSuffix) && endsWith(fileName, ".MT");
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
+    }
+
+    @Override
+    public int scoreContent(String statementHead) {
+        int score = super.scoreContent(statementHead);
+        boolean bzwbkSubFields = containsLineStartingWith(statementHead, ACCOUNT_NAME_SUB_FIELD)
+                || containsLineStartingWith(statementHead, NAME_AND_ADDRESS_SUB_FIELD);
+        return score > 0 && bzwbkSubFields ? score + BANK_LAYOUT_CONFIDENCE : score;
     }
 }
@@ -4,8 +4,9 @@ import static org.apache.commons.lang.StringUtils.*;
 
 import java.util.List;
 
+import com.ofg.bankstatement.parser.FileNamePattern;
 import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParser;
-import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.parser.mt940.Mt940Fields;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.stereotype.Component;
 
@@ -15,6 +16,14 @@ import static com.ofg.bankstatement.util.BanksUtils.*;
 
 @Component
 class MilleniumBankStatementParser extends Mt940BankStatementParser {
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(FileNamePattern.ignoringCase("Historia_transakcji_", ".sta"));
+
+    /**
+     * Millenium statements keep the default MT940 layout, which Pocztowy statements share, so this signal is weaker than
+     * the bank specific ones.
+     */
+    private static final int DEFAULT_LAYOUT_CONFIDENCE = 20;
+
     private static final String DETAILS_FIELD_PREFIX_22 = "<22";
 
     private static final String DETAILS_FIELD_PREFIX_23 = "<23";
@@ -28,41 +37,49 @@ class MilleniumBankStatementParser extends Mt940BankStatementParser {
     private static final String ACCOUNT_NUMBER_FIELD_PREFIX_38 = "<38";
 
     @Override
-    protected String readDetailsFields(List<String> lines) {
-        int detailsPrefixFirstLine = indexOfFirstLineWithPrefix(lines, DETAILS_FIELD_PREFIX_22);
+    protected String readDetailsFields(Mt940Fields fields) {
+        int detailsPrefixFirstLine = fields.indexOf(DETAILS_FIELD_PREFIX_22);
         final List<String> result = Lists.newArrayList();
         if (detailsPrefixFirstLine >= 0) {
-            result.addAll(ImmutableList.of(getLineIfExists(DETAILS_FIELD_PREFIX_22, lines, detailsPrefixFirstLine),
-                    getLineIfExists(DETAILS_FIELD_PREFIX_23, lines, detailsPrefixFirstLine + 1), getLineIfExists(DETAILS_FIELD_PREFIX_24, lines, detailsPrefixFirstLine + 2),
-                    getLineIfExists(DETAILS_FIELD_PREFIX_25, lines, detailsPrefixFirstLine + 3), getLineIfExists(DETAILS_FIELD_PREFIX_26, lines, detailsPrefixFirstLine + 4)));
+            result.addAll(ImmutableList.of(fields.getLineIfExists(DETAILS_FIELD_PREFIX_22, detailsPrefixFirstLine),
+                    fields.getLineIfExists(DETAILS_FIELD_PREFIX_23, detailsPrefixFirstLine + 1), fields.getLineIfExists(DETAILS_FIELD_PREFIX_24, detailsPrefixFirstLine + 2),
+                    fields.getLineIfExists(DETAILS_FIELD_PREFIX_25, detailsPrefixFirstLine + 3), fields.getLineIfExists(DETAILS_FIELD_PREFIX_26, detailsPrefixFirstLine + 4)));
         }
 
         return StringUtils.join(result.toArray());
     }
 
     @Override
-    protected String readAccountNumber(List<String> lines) {
-        int payerAccountNumberLine = indexOfFirstLineWithPrefix(lines, ACCOUNT_NUMBER_FIELD_PREFIX_38);
+    protected String readAccountNumber(Mt940Fields fields) {
+        int payerAccountNumberLine = fields.indexOf(ACCOUNT_NUMBER_FIELD_PREFIX_38);
 
-        return payerAccountNumberLine > 0 ? BANK_ACCOUNT_PREFIX_PL + getLineIfExists(ACCOUNT_NUMBER_FIELD_PREFIX_38, lines, payerAccountNumberLine).trim() : EMPTY;
+        return payerAccountNumberLine > 0 ? BANK_ACCOUNT_PREFIX_PL + fields.getLineIfExists(ACCOUNT_NUMBER_FIELD_PREFIX_38, payerAccountNumberLine).trim() : EMPTY;
     }
 
     @Override
-    protected String parsePayerDetails(List<String> lines) {
-        String firstLine = BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS1_FIELD_PREFIX_27);
+    protected String parsePayerDetails(Mt940Fields fields) {
+        String firstLine = fields.getValue(TRANSACTION_PAYER_DETAILS1_FIELD_PREFIX_27);
         firstLine = firstLine.endsWith(" ") ? firstLine : firstLine + " ";
 
         String details =
                 StringUtils.join(
-                        new String[] { firstLine, BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS2_FIELD_PREFIX_28),
-                                BanksUtils.getFieldValue(lines, TRANSACTION_PAYER_DETAILS3_FIELD_PREFIX_29) }).trim();
+                        new String[] { firstLine, fields.getValue(TRANSACTION_PAYER_DETAILS2_FIELD_PREFIX_28),
+                                fields.getValue(TRANSACTION_PAYER_DETAILS3_FIELD_PREFIX_29) }).trim();
 
         return details;
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return StringUtils.startsWithIgnoreCase(fileName, "Historia_transakcji_") && StringUtils.endsWithIgnoreCase(fileName, ".sta");
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
+    }
+
+    @Override
+    public int scoreContent(String statementHead) {
+        int score = super.scoreContent(statementHead);
+        boolean defaultLayout = containsLineStartingWith(statementHead, getHeaderLastFieldPrefix())
+                && containsLineStartingWith(statementHead, SUB_FIELD_PREFIX);
+        return score > 0 && defaultLayout ? score + DEFAULT_LAYOUT_CONFIDENCE : score;
     }
 
 }
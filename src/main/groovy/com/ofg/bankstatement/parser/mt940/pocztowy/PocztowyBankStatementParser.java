@@ -1,11 +1,11 @@
 package com.ofg.bankstatement.parser.mt940.pocztowy;
 
 
-import java.math.BigDecimal;
-import java.util.List;
 import javax.annotation.CheckForNull;
 
 import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParserDelegate;
+import com.ofg.bankstatement.parser.mt940.Mt940Fields;
+import com.ofg.bankstatement.util.AmountDecoder;
 import org.springframework.stereotype.Component;
 
 import com.ofg.loans.api.beans.payment.PaymentInfo;
@@ -27,8 +27,7 @@ class PocztowyBankStatementParser extends Mt940BankStatementParserDelegate {
 
     @Override
     protected int fillAmount(PaymentInfo payment, String line, int parsingIndex) {
-        String amountValue = line.substring(parsingIndex, line.length());
-        payment.setAmount(new BigDecimal(amountValue.replace(",", ".")));
+        payment.setAmount(AmountDecoder.decode(line, parsingIndex, line.length()));
         return line.length();
     }
 
@@ -43,11 +42,11 @@ class PocztowyBankStatementParser extends Mt940BankStatementParserDelegate {
     }
 
     @Override
-    protected String readAccountNumber(List<String> lines) {
-        int payerAccountNumberLine = indexOfFirstLineWithPrefix(lines, ACCOUNT_NUMBER_FIELD_PREFIX_31);
+    protected String readAccountNumber(Mt940Fields fields) {
+        int payerAccountNumberLine = fields.indexOf(ACCOUNT_NUMBER_FIELD_PREFIX_31);
         String accountNumber = null;
         if (payerAccountNumberLine > 0) {
-            accountNumber = getLineIfExists(ACCOUNT_NUMBER_FIELD_PREFIX_31, lines, payerAccountNumberLine).trim();
+            accountNumber = fields.getLineIfExists(ACCOUNT_NUMBER_FIELD_PREFIX_31, payerAccountNumberLine).trim();
         }
         return ((accountNumber != null) && !accountNumber.matches("^[A-I].*$")) ? BANK_ACCOUNT_PREFIX_PL + accountNumber : null;
     }
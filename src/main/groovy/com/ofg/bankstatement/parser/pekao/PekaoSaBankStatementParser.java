@@ -3,13 +3,17 @@ package com.ofg.bankstatement.parser.pekao;
 
 import au.com.bytecode.opencsv.CSVReader;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.ofg.bankstatement.parser.FileNamePattern;
 import com.ofg.bankstatement.parser.BankStatementParser;
+import com.ofg.bankstatement.util.AmountDecoder;
+import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.util.FixedWidthDateParser;
+import com.ofg.bankstatement.util.PayerDetails;
+import com.ofg.bankstatement.util.PayerDetailsCache;
 import com.ofg.loans.api.beans.AddressInfo;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
 import com.ofg.loans.api.beans.payment.PaymentType;
-import com.ofg.loans.domain.services.BankStatementParser;
-import com.ofg.loans.pl.banks.BanksUtils;
-import com.ofg.loans.util.date.DateTimeUtils;
 import com.ofg.loans.util.numeric.BigDecimalUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -24,6 +28,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static au.com.bytecode.opencsv.CSVParser.DEFAULT_QUOTE_CHARACTER;
 
@@ -32,11 +37,15 @@ public class PekaoSaBankStatementParser implements BankStatementParser {
 
     private static final Logger log = LoggerFactory.getLogger(PekaoSaBankStatementParser.class.getName());
 
-    private static final String POINT_SYMBOL = ".";
+    private static final char FIELD_SEPARATOR_SYMBOL = ';';
 
-    private static final String COMMA_SYMBOL = ",";
+    private static final String QUOTED_FIELD_SEPARATOR = "\";\"";
 
-    private static final char FIELD_SEPARATOR_SYMBOL = ';';
+    private static final int MIN_QUOTED_FIELD_SEPARATORS = 5;
+
+    private static final int CSV_LAYOUT_CONFIDENCE = 70;
+
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(FileNamePattern.ignoringCase("export20", ".csv"));
 
     private static final String ENCODING = "ISO-8859-2";
 
@@ -46,10 +55,18 @@ public class PekaoSaBankStatementParser implements BankStatementParser {
 
     private static final String BOOKING_DATE_FORMAT = "yyyy-MM-dd";
 
+    private static final FixedWidthDateParser BOOKING_DATES = FixedWidthDateParser.dateTimeUtils(BOOKING_DATE_FORMAT);
+
     @Override
     public List<PaymentInfo> importBankStatement(InputStream is) {
-        Preconditions.checkNotNull(is, "can't import bank statement from null stream");
         List<PaymentInfo> paymentInfoList = new ArrayList<PaymentInfo>();
+        importBankStatement(is, paymentInfoList::add);
+        return paymentInfoList;
+    }
+
+    @Override
+    public void importBankStatement(InputStream is, Consumer<PaymentInfo> consumer) {
+        Preconditions.checkNotNull(is, "can't import bank statement from null stream");
 
         CSVReader reader = null;
         try {
@@ -59,7 +76,7 @@ public class PekaoSaBankStatementParser implements BankStatementParser {
             while ((nextLine = reader.readNext()) != null) {
 
                 final PaymentInfo paymentInfo = buildPaymentInfo(nextLine);
-                paymentInfoList.add(paymentInfo);
+                consumer.accept(paymentInfo);
             }
 
         } catch (IOException e) {
@@ -75,8 +92,6 @@ public class PekaoSaBankStatementParser implements BankStatementParser {
                 }
             }
         }
-
-        return paymentInfoList;
     }
 
     private PaymentInfo buildPaymentInfo(String[] tokens) {
@@ -84,10 +99,10 @@ public class PekaoSaBankStatementParser implements BankStatementParser {
 
         PaymentInfo paymentInfo = new PaymentInfo();
 
-        Date bookingDate = DateTimeUtils.date(tokens[2], BOOKING_DATE_FORMAT);
+        Date bookingDate = BOOKING_DATES.parse(tokens[2]);
         paymentInfo.setBookingDate(bookingDate);
 
-        BigDecimal amount = new BigDecimal(tokens[3].replaceAll(COMMA_SYMBOL, POINT_SYMBOL));
+        BigDecimal amount = AmountDecoder.decode(tokens[3]);
         paymentInfo.setAmount(amount.abs());
         paymentInfo.setType(BigDecimalUtils.isNegativeAmount(amount) ? PaymentType.OUTGOING : PaymentType.INCOMING);
 
@@ -100,11 +115,11 @@ public class PekaoSaBankStatementParser implements BankStatementParser {
         if (StringUtils.isNotEmpty(tokens[4])) {
             String payerDetails = (tokens[4] + tokens[0]).replaceAll("  ", " ");
 
-            String accountHolderName = BanksUtils.parsePersonNameFromDetails(payerDetails);
-            paymentInfo.setAccountHolderName(accountHolderName);
+            PayerDetails payer = PayerDetailsCache.split(payerDetails);
+            paymentInfo.setAccountHolderName(payer.getName());
 
             AddressInfo addressInfo = new AddressInfo();
-            addressInfo.setLocation6(payerDetails.substring(accountHolderName.length(), payerDetails.length()).trim());
+            addressInfo.setLocation6(payer.getAddressAfterName());
             paymentInfo.setAccountHolderAddress(addressInfo);
         }
         if (StringUtils.isNotEmpty(tokens[7])) {
@@ -125,7 +140,13 @@ public class PekaoSaBankStatementParser implements BankStatementParser {
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return StringUtils.startsWithIgnoreCase(fileName, "export20") && StringUtils.endsWithIgnoreCase(fileName, ".csv");
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
+    }
+
+    @Override
+    public int scoreContent(String statementHead) {
+        String firstRow = BanksUtils.firstLine(statementHead);
+        return StringUtils.countMatches(firstRow, QUOTED_FIELD_SEPARATOR) >= MIN_QUOTED_FIELD_SEPARATORS ? CSV_LAYOUT_CONFIDENCE : 0;
     }
 }
\ No newline at end of file
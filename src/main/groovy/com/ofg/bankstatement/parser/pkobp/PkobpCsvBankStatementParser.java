@@ -6,10 +6,19 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
 
 import com.ofg.bankstatement.parser.BankStatementParser;
+import com.ofg.bankstatement.parser.CompanyBankAccounts;
+import com.ofg.bankstatement.parser.FileNamePattern;
+import com.ofg.bankstatement.util.BanksUtils;
+import com.ofg.bankstatement.util.FixedWidthDateParser;
+import com.ofg.bankstatement.util.PayerDetails;
+import com.ofg.bankstatement.util.PayerDetailsCache;
+import com.ofg.bankstatement.util.LineReader;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,18 +26,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 import com.ofg.loans.api.beans.AddressInfo;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
 import com.ofg.loans.api.beans.payment.PaymentType;
-import com.ofg.loans.domain.model.payment.OperationalBank;
-import com.ofg.loans.domain.services.BankStatementParser;
-import com.ofg.loans.domain.util.InputStreamUtils;
-import com.ofg.loans.pl.banks.BankFinderPl;
-import com.ofg.loans.pl.banks.BanksUtils;
 import com.ofg.loans.pl.banks.ImmediateIdentificationPaymentInfoModifier;
-import com.ofg.loans.util.date.DateTimeUtils;
 import com.ofg.loans.util.numeric.BigDecimalUtils;
 
 @Component
@@ -36,10 +38,6 @@ public class PkobpCsvBankStatementParser implements BankStatementParser {
 
     private static final Logger log = LoggerFactory.getLogger(PkobpCsvBankStatementParser.class);
 
-    private static final String POINT_SYMBOL = ".";
-
-    private static final String COMMA_SYMBOL = ",";
-
     private static final String CURRENCY_MUST_BE_EQUALS_TO_PLN = "Currency must be equals to PLN!";
 
     private static final String PKOBP_BANK_IBAN_CODE = "102";
@@ -48,28 +46,18 @@ public class PkobpCsvBankStatementParser implements BankStatementParser {
 
     private static final String PAYER_ACCOUNT_NUMBER_TEXT_PREFIX = "Nr rach. przeciwst.:";
 
-    private static final String INCOMING_PAYMENT_OPERATION_TYPE1 = "Wpływ na rachunek";
-
-    private static final String INCOMING_PAYMENT_OPERATION_TYPE2 = "Przelew na rachunek";
-
-    private static final String OUTGOING_PAYMENT_OPERATION = "Przelew z rachunku";
-
-    private static final String CORRECTION_ON_ACCOUNT_OPERATION = "Korekta";
-
-    private static final String BANKING_FEE_OPERATION = "Opłata";
-
-    private static final String LOAD_OPERATION = "Obciążenie";
-
     private static final String DETAILS_PREFIX = "Tytuł:";
 
-    private static final String INCOMING_CASH_PAYMENT = "Wpłata gotówkowa w kasie";
-
     private static final String SHORT_TERM_PRODUCT_STATEMENT_FILE_PREFIX = "historia_120202010908_";
     
     private static final String LONG_TERM_PRODUCT_STATEMENT_FILE_PREFIX = "historia_160202354090_";
 
+    private static final List<FileNamePattern> FILE_NAME_PATTERNS = ImmutableList.of(
+            FileNamePattern.ignoringCase(SHORT_TERM_PRODUCT_STATEMENT_FILE_PREFIX, ".csv"),
+            FileNamePattern.ignoringCase(LONG_TERM_PRODUCT_STATEMENT_FILE_PREFIX, ".csv"));
+
     @Autowired
-    BankFinderPl bankFinder;
+    CompanyBankAccounts companyBankAccounts;
 
     ImmediateIdentificationPaymentInfoModifier paymentInfoModifier = new ImmediateIdentificationPaymentInfoModifier();
 
@@ -81,113 +69,117 @@ public class PkobpCsvBankStatementParser implements BankStatementParser {
 
     private static final String BOOKING_DATE_FORMAT = "yyyy-MM-dd";
 
-    private static final String CELL_DOUBLE_QUOTES = "\"";
+    private static final FixedWidthDateParser BOOKING_DATES = FixedWidthDateParser.dateTimeUtils(BOOKING_DATE_FORMAT);
+
+    private static final String QUOTED_CELL_SEPARATOR = "\",\"";
+
+    private static final int MIN_QUOTED_CELL_SEPARATORS = 5;
+
+    private static final int MIN_CELLS = 7;
+
+    private static final int OPERATION_CELL = 2;
+
+    private static final String HEADER_FIRST_CELL = "\"Data operacji\"";
+
+    private static final int CSV_LAYOUT_CONFIDENCE = 70;
+
+    private static final int HEADER_ROW_CONFIDENCE = 20;
 
     @Override
     public List<PaymentInfo> importBankStatement(InputStream is) {
-        List<String> lines = InputStreamUtils.readLines(is, ENCODING);
-        return getPaymentsInfo(lines, false);
+        List<PaymentInfo> payments = new ArrayList<PaymentInfo>();
+        importBankStatement(is, payments::add);
+        return payments;
+    }
+
+    @Override
+    public void importBankStatement(InputStream is, Consumer<PaymentInfo> consumer) {
+        LineReader.forEachNonBlankLine(is, ENCODING, new StatementRowConsumer(getCompanyBankAccount(), consumer));
     }
 
     public PaymentType parsePaymentType(String fieldValue) {
-        if (OUTGOING_PAYMENT_OPERATION.equals(fieldValue)) {
-            return PaymentType.OUTGOING;
-        } else if (INCOMING_PAYMENT_OPERATION_TYPE1.equals(fieldValue) || INCOMING_PAYMENT_OPERATION_TYPE2.equals(fieldValue)) {
-            return PaymentType.INCOMING;
-        } else if (INCOMING_CASH_PAYMENT.equals(fieldValue)) {
-            return PaymentType.INCOMING;
-        } else {
-            return null;
-        }
+        PkobpOperation operation = PkobpOperation.find(fieldValue);
+        return operation == null ? null : operation.getPaymentType();
     }
 
-    private List<PaymentInfo> getPaymentsInfo(List<String> lines, boolean oldVersoin) {
-        List<PaymentInfo> payments = new ArrayList<PaymentInfo>();
-        OperationalBank bank = bankFinder.findBankByIbanCode(PKOBP_BANK_IBAN_CODE);
-        String bankAccountNumber = bank != null && bank.getBankAccounts().size() > 0 ? bank.getBankAccounts().get(0).getAccountNumber() : "";
+    @PostConstruct
+    void registerCompanyBankAccount() {
+        companyBankAccounts.register(PKOBP_BANK_IBAN_CODE);
+    }
+
+    private String getCompanyBankAccount() {
+        String bankAccountNumber = companyBankAccounts.getAccountNumber(PKOBP_BANK_IBAN_CODE);
         Preconditions.checkState(!StringUtils.isEmpty(bankAccountNumber), "Bank Account for bank Iban code " + PKOBP_BANK_IBAN_CODE + " not found!");
+        return bankAccountNumber;
+    }
 
-        for (String currentLine : lines) {
-            if (lines.get(0).equals(currentLine)) {
-                // skip CSV header row
-                continue;
-            }
-            String[] tokens = splitRow(currentLine);
-            if (tokens.length < 7) {
-                log.error("Skiping payment, unsupported line: {}", currentLine);
-                continue;
-            }
+    /**
+     * @param row the tokenized row, its operation is known before any other cell becomes a String
+     */
+    private PaymentInfo parsePayment(PkobpCsvTokenizer row, PkobpOperation operation, String bankAccountNumber) {
+        PaymentInfo currentPayment = new PaymentInfo();
+        currentPayment.setCompanyBankAccount(bankAccountNumber);
 
-            PaymentInfo currentPayment = new PaymentInfo();
-            currentPayment.setCompanyBankAccount(bankAccountNumber);
-
-            Date bookingDate = DateTimeUtils.date(tokens[0], BOOKING_DATE_FORMAT);
-            currentPayment.setBookingDate(bookingDate);
-
-            String operationType = tokens[2];
-            if (CORRECTION_ON_ACCOUNT_OPERATION.equals(operationType) || BANKING_FEE_OPERATION.equals(operationType) || LOAD_OPERATION.equals(operationType)) {
-
-                BigDecimal amount = new BigDecimal(tokens[4].replaceAll(COMMA_SYMBOL, POINT_SYMBOL));
-                currentPayment.setAmount(amount.abs());
-                currentPayment.setType(BigDecimalUtils.isNegativeAmount(amount) ? PaymentType.OUTGOING : PaymentType.INCOMING);
-
-                currentPayment.setDetails(parseDetails(tokens[3] + ", " + tokens[6]));
-                Preconditions.checkState(CURRENCY_UNIT_PLN.equals(tokens[5]), CURRENCY_MUST_BE_EQUALS_TO_PLN);
-
-                currentPayment.setBankReference(BanksUtils.md5BankReference(currentPayment));
-            } else if (INCOMING_PAYMENT_OPERATION_TYPE1.equals(operationType) || INCOMING_PAYMENT_OPERATION_TYPE2.equals(operationType)
-                    || OUTGOING_PAYMENT_OPERATION.equals(operationType) || INCOMING_CASH_PAYMENT.equals(operationType)) {
-                PaymentType paymentType = parsePaymentType(operationType);
-                currentPayment.setType(paymentType);
-
-                if (INCOMING_CASH_PAYMENT.equals(operationType)) {
-                    fillStandartPaymentData(currentPayment, tokens, 3);
-                } else {
-                    if (!StringUtils.isEmpty(tokens[3])) {
-                        String senderAccountNumber = ACCOUNT_NUMBER_COUNTRY_PREFIX + tokens[3].substring(
-                                PAYER_ACCOUNT_NUMBER_TEXT_PREFIX.length(), tokens[3].length()).replaceAll(" ", "");
-                        currentPayment.setAccountNumber(senderAccountNumber);                       
-                    }
-                    fillStandartPaymentData(currentPayment, tokens, 4);
-                    paymentInfoModifier.alterPaymentTypeIfSentFromImmediateIdentificationProvider(currentPayment);
-                }
+        Date bookingDate = row.date(0, BOOKING_DATES);
+        currentPayment.setBookingDate(bookingDate);
+
+        if (operation.isSignedAmount()) {
+
+            BigDecimal amount = row.amount(4);
+            currentPayment.setAmount(amount.abs());
+            currentPayment.setType(BigDecimalUtils.isNegativeAmount(amount) ? PaymentType.OUTGOING : PaymentType.INCOMING);
+
+            currentPayment.setDetails(parseDetails(row.cell(3) + ", " + row.cell(6)));
+            Preconditions.checkState(CURRENCY_UNIT_PLN.equals(row.cell(5)), CURRENCY_MUST_BE_EQUALS_TO_PLN);
+
+            currentPayment.setBankReference(BanksUtils.md5BankReference(currentPayment));
+        } else {
+            currentPayment.setType(operation.getPaymentType());
+
+            if (operation == PkobpOperation.INCOMING_CASH_PAYMENT) {
+                fillStandartPaymentData(currentPayment, row, 3);
             } else {
-                continue;
+                if (!row.isEmpty(3)) {
+                    String payerAccount = row.cell(3);
+                    String senderAccountNumber = ACCOUNT_NUMBER_COUNTRY_PREFIX + payerAccount.substring(
+                            PAYER_ACCOUNT_NUMBER_TEXT_PREFIX.length(), payerAccount.length()).replaceAll(" ", "");
+                    currentPayment.setAccountNumber(senderAccountNumber);
+                }
+                fillStandartPaymentData(currentPayment, row, 4);
+                paymentInfoModifier.alterPaymentTypeIfSentFromImmediateIdentificationProvider(currentPayment);
             }
-            currentPayment.setUnit(CURRENCY_UNIT_PLN);
-
-            payments.add(currentPayment);
         }
+        currentPayment.setUnit(CURRENCY_UNIT_PLN);
 
-        return payments;
+        return currentPayment;
     }
 
-    private void fillStandartPaymentData(PaymentInfo currentPayment, String[] tokens, int startIndex) {
+    private void fillStandartPaymentData(PaymentInfo currentPayment, PkobpCsvTokenizer row, int startIndex) {
 
-        if (!StringUtils.isEmpty(tokens[startIndex])) {
-            String payerDetails = tokens[startIndex];
+        if (!row.isEmpty(startIndex)) {
+            String payerDetails = row.cell(startIndex);
             if (payerDetails.contains(PAYER_ADDRESS_TEXT_PREFIX)) {
                 payerDetails = payerDetails.substring(PAYER_ADDRESS_TEXT_PREFIX.length(), payerDetails.length()).replaceAll("  ", " ");
             }
 
-            String accountHolderName = BanksUtils.parsePersonNameFromDetails(payerDetails);
-            currentPayment.setAccountHolderName(accountHolderName);
+            PayerDetails payer = PayerDetailsCache.split(payerDetails);
+            currentPayment.setAccountHolderName(payer.getName());
 
             AddressInfo addressInfo = new AddressInfo();
-            addressInfo.setLocation6(payerDetails.substring(accountHolderName.length(), payerDetails.length()).trim());
+            addressInfo.setLocation6(payer.getAddressAfterName());
             currentPayment.setAccountHolderAddress(addressInfo);
         }
         startIndex++;
-        if (!StringUtils.isEmpty(tokens[startIndex])) {
-            currentPayment.setDetails(parseDetails(tokens[startIndex]));
+        if (!row.isEmpty(startIndex)) {
+            currentPayment.setDetails(parseDetails(row.cell(startIndex)));
         }
         startIndex++;
-        if (!StringUtils.isEmpty(tokens[startIndex])) {
-            BigDecimal amount = new BigDecimal(tokens[startIndex].replaceAll(COMMA_SYMBOL, POINT_SYMBOL));
+        if (!row.isEmpty(startIndex)) {
+            BigDecimal amount = row.amount(startIndex);
             currentPayment.setAmount(amount.abs());
         }
         startIndex++;
-        Preconditions.checkState(CURRENCY_UNIT_PLN.equals(tokens[startIndex]), CURRENCY_MUST_BE_EQUALS_TO_PLN);
+        Preconditions.checkState(CURRENCY_UNIT_PLN.equals(row.cell(startIndex)), CURRENCY_MUST_BE_EQUALS_TO_PLN);
         currentPayment.setBankReference(BanksUtils.md5BankReference(currentPayment));
     }
 
@@ -199,31 +191,53 @@ public class PkobpCsvBankStatementParser implements BankStatementParser {
         return details.trim();
     }
 
-    private String[] splitRow(String row) {
-
-        if (StringUtils.isBlank(row)) {
-            return new String[] {};
-        }
-
-        LinkedList<String> list = Lists.newLinkedList();
-        Iterable<String> cells = Splitter.on("\",\"").split(row);
-        for (String cell : cells) {
-            cell = StringUtils.removeStart(cell, ",");
-            cell = StringUtils.removeEnd(cell, ",");
-            cell = StringUtils.removeEnd(cell, CELL_DOUBLE_QUOTES);
-            cell = StringUtils.removeStart(cell, CELL_DOUBLE_QUOTES);
-            list.add(cell);
-        }
-        return list.toArray(new String[list.size()]);
+    @Override
+    public List<FileNamePattern> getFileNamePatterns() {
+        return FILE_NAME_PATTERNS;
     }
 
     @Override
-    public boolean isApplicableFor(String fileName) {
-        return startsWithAdequatePrefix(fileName) && endsWithIgnoreCase(fileName, ".csv");
+    public int scoreContent(String statementHead) {
+        String firstRow = BanksUtils.firstLine(statementHead);
+        if (countMatches(firstRow, QUOTED_CELL_SEPARATOR) < MIN_QUOTED_CELL_SEPARATORS) {
+            return 0;
+        }
+        return firstRow.startsWith(HEADER_FIRST_CELL) ? CSV_LAYOUT_CONFIDENCE + HEADER_ROW_CONFIDENCE : CSV_LAYOUT_CONFIDENCE;
     }
 
-    private boolean startsWithAdequatePrefix(String fileName) {
-        return StringUtils.startsWithIgnoreCase(fileName, SHORT_TERM_PRODUCT_STATEMENT_FILE_PREFIX) || StringUtils.startsWithIgnoreCase(fileName, LONG_TERM_PRODUCT_STATEMENT_FILE_PREFIX); 
+    private final class StatementRowConsumer implements Consumer<LineReader.Line> {
+
+        private final String bankAccountNumber;
+
+        private final Consumer<PaymentInfo> consumer;
+
+        private final PkobpCsvTokenizer row = new PkobpCsvTokenizer();
+
+        private String headerRow;
+
+        private StatementRowConsumer(String bankAccountNumber, Consumer<PaymentInfo> consumer) {
+            this.bankAccountNumber = bankAccountNumber;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(LineReader.Line currentLine) {
+            if (headerRow == null) {
+                headerRow = currentLine.toString();
+            }
+            if (headerRow.contentEquals(currentLine)) {
+                // skip CSV header row
+                return;
+            }
+            if (row.tokenize(currentLine) < MIN_CELLS) {
+                log.error("Skiping payment, unsupported line: {}", currentLine);
+                return;
+            }
+            PkobpOperation operation = row.operation(OPERATION_CELL);
+            if (operation != null) {
+                consumer.accept(parsePayment(row, operation, bankAccountNumber));
+            }
+        }
     }
 
 }
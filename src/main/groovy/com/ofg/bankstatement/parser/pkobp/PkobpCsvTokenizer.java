@@ -0,0 +1,134 @@
+package com.ofg.bankstatement.parser.pkobp;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.google.common.base.Preconditions;
+import com.ofg.bankstatement.util.AmountDecoder;
+import com.ofg.bankstatement.util.FixedWidthDateParser;
+
+/**
+ * Splits rows of the PKO BP history CSV, such as {@code "2014-10-01","2014-10-01","Wpływ na rachunek",...}, into
+ * cells in one walk over the row.
+ * <p>
+ * Cells are separated by {@code ","}, the rows' outer quotes and a stray comma next to a separator are not part of a
+ * cell. Only the cell boundaries are kept, in an index array reused for every row, so a cell becomes a String only when
+ * {@link #cell(int)} asks for it. The last row tokenized is valid only until the next call of
+ * {@link #tokenize(CharSequence)}, and a tokenizer is not thread safe.
+ */
+final class PkobpCsvTokenizer {
+
+    private static final char QUOTE = '"';
+
+    private static final char COMMA = ',';
+
+    private static final int INITIAL_CELLS = 8;
+
+    private static final int SEPARATOR_LENGTH = 3;
+
+    /**
+     * States of matching the {@code ","} separator, by how much of it the last characters matched.
+     */
+    private static final int NO_MATCH = 0;
+
+    private static final int QUOTE_MATCHED = 1;
+
+    private static final int QUOTE_COMMA_MATCHED = 2;
+
+    private CharSequence row;
+
+    /**
+     * Start and end of every cell, one pair after the other.
+     */
+    private int[] bounds = new int[INITIAL_CELLS * 2];
+
+    private int cellCount;
+
+    /**
+     * Splits the row the way splitting on {@code ","} and then stripping one leading comma, one trailing comma, one
+     * trailing quote and one leading quote off every cell would. A blank row has no cells.
+     *
+     * @return the number of cells
+     */
+    int tokenize(CharSequence row) {
+        this.row = row;
+        cellCount = 0;
+        boolean blank = true;
+        int state = NO_MATCH;
+        int cellStart = 0;
+        int length = row.length();
+        for (int i = 0; i < length; i++) {
+            char c = row.charAt(i);
+            blank = blank && Character.isWhitespace(c);
+            if (c == QUOTE) {
+                if (state == QUOTE_COMMA_MATCHED) {
+                    int separatorStart = i - SEPARATOR_LENGTH + 1;
+                    addCell(cellStart, separatorStart);
+                    cellStart = i + 1;
+                    state = NO_MATCH;
+                } else {
+                    state = QUOTE_MATCHED;
+                }
+            } else {
+                state = c == COMMA && state == QUOTE_MATCHED ? QUOTE_COMMA_MATCHED : NO_MATCH;
+            }
+        }
+        if (blank) {
+            cellCount = 0;
+            return 0;
+        }
+        addCell(cellStart, length);
+        return cellCount;
+    }
+
+    String cell(int index) {
+        Preconditions.checkElementIndex(index, cellCount);
+        return row.subSequence(bounds[index * 2], bounds[index * 2 + 1]).toString();
+    }
+
+    Date date(int index, FixedWidthDateParser dates) {
+        Preconditions.checkElementIndex(index, cellCount);
+        return dates.parse(row, bounds[index * 2], bounds[index * 2 + 1]);
+    }
+
+    BigDecimal amount(int index) {
+        Preconditions.checkElementIndex(index, cellCount);
+        return AmountDecoder.decode(row, bounds[index * 2], bounds[index * 2 + 1]);
+    }
+
+    boolean isEmpty(int index) {
+        Preconditions.checkElementIndex(index, cellCount);
+        return bounds[index * 2] == bounds[index * 2 + 1];
+    }
+
+    /**
+     * @return the operation the cell names, null for an operation the parser does not import
+     */
+    PkobpOperation operation(int index) {
+        Preconditions.checkElementIndex(index, cellCount);
+        return PkobpOperation.find(row, bounds[index * 2], bounds[index * 2 + 1]);
+    }
+
+    private void addCell(int start, int end) {
+        if (start < end && row.charAt(start) == COMMA) {
+            start++;
+        }
+        if (end > start && row.charAt(end - 1) == COMMA) {
+            end--;
+        }
+        if (end > start && row.charAt(end - 1) == QUOTE) {
+            end--;
+        }
+        if (start < end && row.charAt(start) == QUOTE) {
+            start++;
+        }
+        if (cellCount * 2 == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[cellCount * 2] = start;
+        bounds[cellCount * 2 + 1] = end;
+        cellCount++;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.ofg.bankstatement.parser.pkobp;
+
+import com.ofg.loans.api.beans.payment.PaymentType;
+
+/**
+ * Operation types of the PKO BP history CSV the parser imports, rows of any other type are skipped.
+ */
+enum PkobpOperation {
+
+    // @formatter:off
+    INCOMING_TRANSFER("Wpływ na rachunek", PaymentType.INCOMING),
+    INCOMING_TRANSFER_TO_ACCOUNT("Przelew na rachunek", PaymentType.INCOMING),
+    OUTGOING_TRANSFER("Przelew z rachunku", PaymentType.OUTGOING),
+    INCOMING_CASH_PAYMENT("Wpłata gotówkowa w kasie", PaymentType.INCOMING),
+    CORRECTION_ON_ACCOUNT("Korekta", null),
+    BANKING_FEE("Opłata", null),
+    LOAD("Obciążenie", null);
+    // @formatter:on
+
+    private static final PkobpOperation[] VALUES = values();
+
+    private final String label;
+
+    private final PaymentType paymentType;
+
+    PkobpOperation(String label, PaymentType paymentType) {
+        this.label = label;
+        this.paymentType = paymentType;
+    }
+
+    /**
+     * @return the type of a transfer or cash payment, null for the operations whose amount sign tells the type
+     */
+    PaymentType getPaymentType() {
+        return paymentType;
+    }
+
+    boolean isSignedAmount() {
+        return paymentType == null;
+    }
+
+    static PkobpOperation find(String label) {
+        return label == null ? null : find(label, 0, label.length());
+    }
+
+    /**
+     * Operation labelled by the characters between {@code start} and {@code end} of the text.
+     *
+     * @return null for an operation the parser does not import
+     */
+    static PkobpOperation find(CharSequence text, int start, int end) {
+        for (PkobpOperation operation : VALUES) {
+            if (operation.isLabelOf(text, start, end)) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    private boolean isLabelOf(CharSequence text, int start, int end) {
+        if (end - start != label.length()) {
+            return false;
+        }
+        for (int i = 0; i < label.length(); i++) {
+            if (text.charAt(start + i) != label.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
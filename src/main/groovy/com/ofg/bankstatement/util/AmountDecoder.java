@@ -0,0 +1,93 @@
+package com.ofg.bankstatement.util;
+
+import java.math.BigDecimal;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Decodes statement amounts such as {@code -48,20}, {@code 1234.56} or {@code 1 234,56} straight from the characters
+ * of a line, without the replaced copies {@code new BigDecimal(amount.replace(",", "."))} needs.
+ * <p>
+ * An optional sign, digits and one decimal comma or point are read into a scaled {@code long}, e.g. 4820 cents for
+ * {@code 48,20}. The scale is the number of digits after the separator, not always 2: an amount keeps the scale it was
+ * written with, which {@link BankReferenceHasher} hashes. Anything else, and amounts of more than {@link #MAX_DIGITS}
+ * digits, which might not fit a {@code long}, go through the replace and {@code new BigDecimal} as before, so they come
+ * out or fail exactly as they did.
+ */
+public final class AmountDecoder {
+
+    private static final int MAX_DIGITS = 18;
+
+    private static final int NO_SEPARATOR = -1;
+
+    private AmountDecoder() {
+    }
+
+    public static BigDecimal decode(String amount) {
+        return decode(amount, 0, amount.length());
+    }
+
+    /**
+     * Amount between {@code start} and {@code end} of the text, as {@code new BigDecimal(amount.replace(",", "."))}
+     * would decode it.
+     *
+     * @throws NumberFormatException when the text is not an amount
+     */
+    public static BigDecimal decode(CharSequence text, int start, int end) {
+        return decode(text, start, end, false);
+    }
+
+    /**
+     * Amount with spaces between thousands, as {@code new BigDecimal(amount.replace(",", ".").replace(" ", ""))}
+     * would decode it.
+     *
+     * @throws NumberFormatException when the text is not an amount
+     */
+    public static BigDecimal decodeIgnoringSpaces(String amount) {
+        return decode(amount, 0, amount.length(), true);
+    }
+
+    private static BigDecimal decode(CharSequence text, int start, int end, boolean ignoreSpaces) {
+        Preconditions.checkPositionIndexes(start, end, text.length());
+        long unscaled = 0;
+        int digits = 0;
+        int scale = NO_SEPARATOR;
+        boolean negative = false;
+        boolean signAllowed = true;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' && ignoreSpaces) {
+                continue;
+            }
+            if (signAllowed && (c == '-' || c == '+')) {
+                negative = c == '-';
+                signAllowed = false;
+                continue;
+            }
+            signAllowed = false;
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return fallback(text, start, end, ignoreSpaces);
+                }
+                unscaled = unscaled * 10 + c - '0';
+                if (scale != NO_SEPARATOR) {
+                    scale++;
+                }
+            } else if ((c == ',' || c == '.') && scale == NO_SEPARATOR) {
+                scale = 0;
+            } else {
+                return fallback(text, start, end, ignoreSpaces);
+            }
+        }
+        if (digits == 0) {
+            return fallback(text, start, end, ignoreSpaces);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    private static BigDecimal fallback(CharSequence text, int start, int end, boolean ignoreSpaces) {
+        String amount = text.subSequence(start, end).toString().replace(",", ".");
+        return new BigDecimal(ignoreSpaces ? amount.replace(" ", "") : amount);
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.ofg.bankstatement.util;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.ofg.loans.api.beans.payment.PaymentInfo;
+import com.ofg.loans.domain.util.MD5Utils;
+import com.ofg.loans.util.date.DateTimeUtils;
+
+/**
+ * Computes the bank reference of payments whose statement carries none: the MD5 of booking date, amount, account
+ * numbers and the details upper cased without whitespace.
+ * <p>
+ * Every thread reuses its own {@link MessageDigest} and byte buffer, the details are upper cased, stripped and UTF-8
+ * encoded in one pass. Input the single pass can't reproduce exactly (characters upper casing to several characters,
+ * surrogate pairs, Turkish, Azeri and Lithuanian default locales) goes through the original string based
+ * implementation.
+ */
+public final class BankReferenceHasher {
+
+    private static final String MD5 = "MD5";
+
+    private static final int MD5_LENGTH = 16;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Languages {@link String#toUpperCase()} upper cases with locale specific rules.
+     */
+    private static final Set<String> LOCALE_SENSITIVE_LANGUAGES = ImmutableSet.of("tr", "az", "lt");
+
+    /**
+     * Characters {@link String#toUpperCase()} maps differently than {@link Character#toUpperCase(char)}, mostly those
+     * whose upper case is longer than one character, e.g. {@code ß} becoming {@code SS}.
+     */
+    private static final BitSet EXPANDING_UPPER_CASE = expandingUpperCase();
+
+    private static final ThreadLocal<BankReferenceHasher> HASHERS = ThreadLocal.withInitial(BankReferenceHasher::new);
+
+    private final MessageDigest md5;
+
+    private final byte[] digest = new byte[MD5_LENGTH];
+
+    private final char[] hex = new char[2 * MD5_LENGTH];
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private int length;
+
+    private BankReferenceHasher() {
+        try {
+            md5 = MessageDigest.getInstance(MD5);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String md5BankReference(PaymentInfo paymentInfo) {
+        if (isLocaleSensitive(Locale.getDefault())) {
+            return legacyBankReference(paymentInfo);
+        }
+        String reference = HASHERS.get().hash(paymentInfo);
+        return reference != null ? reference : legacyBankReference(paymentInfo);
+    }
+
+    /**
+     * The original implementation, the single pass must give the same references.
+     */
+    @VisibleForTesting
+    static String legacyBankReference(PaymentInfo paymentInfo) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(DateTimeUtils.toDateString(paymentInfo.getBookingDate()));
+        sb.append(paymentInfo.getAmount().toString());
+        String accountNumber = paymentInfo.getAccountNumber();
+        if (StringUtils.isNotBlank(accountNumber)) {
+            sb.append(accountNumber);
+        }
+        String companyBankAccount = paymentInfo.getCompanyBankAccount();
+        if (StringUtils.isNotBlank(companyBankAccount)) {
+            sb.append(companyBankAccount);
+        }
+        String details = paymentInfo.getDetails();
+        if (StringUtils.isNotBlank(details)) {
+            sb.append(details.toUpperCase().replaceAll("\\s", ""));
+        }
+        return MD5Utils.generateMD5(sb.toString());
+    }
+
+    /**
+     * @return the reference, null when the payment needs the original implementation
+     */
+    @VisibleForTesting
+    String hash(PaymentInfo paymentInfo) {
+        length = 0;
+        boolean encoded = append(DateTimeUtils.toDateString(paymentInfo.getBookingDate()), false)
+                && append(paymentInfo.getAmount().toString(), false);
+        String accountNumber = paymentInfo.getAccountNumber();
+        if (encoded && StringUtils.isNotBlank(accountNumber)) {
+            encoded = append(accountNumber, false);
+        }
+        String companyBankAccount = paymentInfo.getCompanyBankAccount();
+        if (encoded && StringUtils.isNotBlank(companyBankAccount)) {
+            encoded = append(companyBankAccount, false);
+        }
+        String details = paymentInfo.getDetails();
+        if (encoded && StringUtils.isNotBlank(details)) {
+            encoded = append(details, true);
+        }
+        return encoded ? md5Hex() : null;
+    }
+
+    /**
+     * Appends the UTF-8 bytes of the text, upper cased and without {@code \s} characters when normalised.
+     *
+     * @return false when the text holds a character the single pass does not handle
+     */
+    private boolean append(String text, boolean normalise) {
+        ensureCapacity(3 * text.length());
+        byte[] bytes = buffer;
+        int end = length;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (normalise) {
+                if (isRegexWhitespace(c)) {
+                    continue;
+                }
+                if (EXPANDING_UPPER_CASE.get(c)) {
+                    return false;
+                }
+                c = Character.toUpperCase(c);
+            }
+            if (c < 0x80) {
+                bytes[end++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[end++] = (byte) (0xC0 | c >> 6);
+                bytes[end++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                return false;
+            } else {
+                bytes[end++] = (byte) (0xE0 | c >> 12);
+                bytes[end++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[end++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        length = end;
+        return true;
+    }
+
+    private String md5Hex() {
+        md5.reset();
+        md5.update(buffer, 0, length);
+        try {
+            md5.digest(digest, 0, MD5_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < MD5_LENGTH; i++) {
+            hex[2 * i] = HEX_DIGITS[digest[i] >> 4 & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private void ensureCapacity(int additional) {
+        if (length + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + additional));
+        }
+    }
+
+    /**
+     * Characters matched by the {@code \s} regex class: {@code [ \t\n\x0B\f\r]}.
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c >= '\t' && c <= '\r';
+    }
+
+    private static boolean isLocaleSensitive(Locale locale) {
+        return LOCALE_SENSITIVE_LANGUAGES.contains(locale.getLanguage());
+    }
+
+    private static BitSet expandingUpperCase() {
+        BitSet expanding = new BitSet(Character.MAX_VALUE + 1);
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            if (!Character.isSurrogate((char) c)) {
+                String upperCase = String.valueOf((char) c).toUpperCase(Locale.ROOT);
+                if (upperCase.length() != 1 || upperCase.charAt(0) != Character.toUpperCase((char) c)) {
+                    expanding.set(c);
+                }
+            }
+        }
+        return expanding;
+    }
+
+}
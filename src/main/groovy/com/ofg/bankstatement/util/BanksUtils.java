@@ -5,36 +5,19 @@ import com.google.common.base.Preconditions;
 import com.ofg.loans.api.beans.payment.PaymentInfo;
 import com.ofg.loans.domain.Iban;
 import com.ofg.loans.domain.model.client.ClientAddress;
-import com.ofg.loans.domain.util.MD5Utils;
-import com.ofg.loans.util.date.DateTimeUtils;
 import com.ofg.loans.util.numeric.BigDecimalUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class BanksUtils {
 
-    private static final String ONE_WHITE_SPACE = " ";
-
-    private static final String TWO_WHITE_SPACES = "  ";
-
     private static final String COUNTRY_CODE = "PL";
 
     private static final String QUOTATION_MARK = "\"";
 
-    private static final String ADDRESS_PREFIX_OS = "OS.";
-
-    private static final String ADDRESS_PREFIX_WS = "WS.";
-
-    private static final String ADDRESS_PREFIX_UL = "UL.";
-
-    private static final String MR_TITLE = "PAN";
-
-    private static final String MRS_TITLE = "PANI";
-
     public static String addValue(String val, String fieldSeparator, boolean addQotationMarks) {
         String additionalSymbol = addQotationMarks ? QUOTATION_MARK : "";
         return additionalSymbol + val + additionalSymbol + fieldSeparator;
@@ -93,11 +76,11 @@ public class BanksUtils {
 
     public static int indexOfFirstOccurrence(String string, int startFromIndex, boolean findDigitChar, boolean findLetterChar) {
         if (string != null && startFromIndex > -1) {
-            char[] chars = string.toCharArray();
-            for (int i = startFromIndex; i < chars.length; i++) {
-                if (findDigitChar && Character.isDigit(chars[i])) {
+            for (int i = startFromIndex; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (findDigitChar && Character.isDigit(c)) {
                     return i;
-                } else if (findLetterChar && Character.isLetter(chars[i])) {
+                } else if (findLetterChar && Character.isLetter(c)) {
                     return i;
                 }
             }
@@ -152,22 +135,7 @@ public class BanksUtils {
     }
 
     public static String md5BankReference(PaymentInfo paymentInfo) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(DateTimeUtils.toDateString(paymentInfo.getBookingDate()));
-        sb.append(paymentInfo.getAmount().toString());
-        String accountNumber = paymentInfo.getAccountNumber();
-        if (StringUtils.isNotBlank(accountNumber)) {
-            sb.append(accountNumber);
-        }
-        String companyBankAccount = paymentInfo.getCompanyBankAccount();
-        if (StringUtils.isNotBlank(companyBankAccount)) {
-            sb.append(companyBankAccount);
-        }
-        String details = paymentInfo.getDetails();
-        if (StringUtils.isNotBlank(details)) {
-            sb.append(details.toUpperCase().replaceAll("\\s", ""));
-        }
-        return MD5Utils.generateMD5(sb.toString());
+        return BankReferenceHasher.md5BankReference(paymentInfo);
     }
 
     public static boolean nextTwoCharsIsDigits(int index, String line) {
@@ -207,7 +175,14 @@ public class BanksUtils {
 
         Preconditions.checkArgument(field != null, "field cannot be null");
 
-        String joinedLines = Joiner.on("").join(lines);
+        return getMultilineFieldValue(Joiner.on("").join(lines), field, nextField);
+    }
+
+    public static String getMultilineFieldValue(
+            String joinedLines, String field, String nextField) {
+
+        Preconditions.checkArgument(field != null, "field cannot be null");
+
         int begin = joinedLines.indexOf(field);
         if (begin < 0) {
             return StringUtils.EMPTY;
@@ -238,67 +213,19 @@ public class BanksUtils {
         return -1;
     }
 
+    /**
+     * Person name at the start of payer details, without a leading {@code PAN}/{@code PANI} title: the details up to
+     * the address, which starts at {@code UL.}, {@code WS.} or {@code OS.}, at a double space or after the second word
+     * when a digit follows.
+     */
     public static String parsePersonNameFromDetails(String details) {
-        if (details == null) {
-            return "";
-        }
-
-        if (potentiallyHasTitle(details)) {
-            details = tryDropTitle(details);
-        }
-
-        int indexOfSecondWhiteSpace = BanksUtils.indexOfSecondWhiteSpace(details);
-        int indexOfSpecAddressSymbols = BanksUtils.indexOfText(details, Arrays.asList(ADDRESS_PREFIX_UL, ADDRESS_PREFIX_WS, ADDRESS_PREFIX_OS));
-        int indexOfTwoWhiteSpaces = details.indexOf(TWO_WHITE_SPACES);
-        int indexOfDigitSymbol = indexOfFirstOccurrence(details, 0, true, false);
-
-        int indexOfAddress = -1;
-        if (indexOfDigitSymbol == -1 && indexOfSpecAddressSymbols == -1 && indexOfTwoWhiteSpaces == -1 && found(indexOfSecondWhiteSpace)) {
-            indexOfAddress = indexOfSecondWhiteSpace;
-        }
-
-        indexOfDigitSymbol = indexOfDigitSymbol == -1 ? details.length() : indexOfDigitSymbol;
-        indexOfSpecAddressSymbols = indexOfSpecAddressSymbols == -1 ? details.length() : indexOfSpecAddressSymbols;
-        indexOfTwoWhiteSpaces = indexOfTwoWhiteSpaces == -1 ? details.length() : indexOfTwoWhiteSpaces;
-
-        if (indexOfSpecAddressSymbols < indexOfTwoWhiteSpaces && indexOfSpecAddressSymbols < indexOfDigitSymbol) {
-            indexOfAddress = indexOfSpecAddressSymbols;
-        } else if (indexOfTwoWhiteSpaces < indexOfSpecAddressSymbols && indexOfTwoWhiteSpaces < indexOfDigitSymbol) {
-            indexOfAddress = indexOfTwoWhiteSpaces;
-        } else if (indexOfDigitSymbol < indexOfSpecAddressSymbols && indexOfDigitSymbol < indexOfTwoWhiteSpaces) {
-            indexOfAddress = indexOfSecondWhiteSpace;
-        }
-
-        return details.substring(0, indexOfAddress == -1 ? details.length() : indexOfAddress).trim();
-    }
-
-    private static boolean potentiallyHasTitle(String text) {
-        return text.toUpperCase().startsWith(MR_TITLE);
-    }
-
-    private static String tryDropTitle(String details) {
-        int indexOfFirstSpace = details.indexOf(ONE_WHITE_SPACE);
-        if (found(indexOfFirstSpace)) {
-            String potentialTitle = extractPotentialTitle(details, indexOfFirstSpace);
-            if (isTitle(potentialTitle)) {
-                details = details.substring(indexOfFirstSpace).trim();
-            }
-        }
-        return details;
-    }
-
-    private static String extractPotentialTitle(String details, int endIndex) {
-        return details.substring(0, endIndex).trim();
+        return PersonNameParser.parsePersonName(details);
     }
 
     private static boolean found(int index) {
         return index != -1;
     }
 
-    private static boolean isTitle(String potentialTitle) {
-        return MR_TITLE.equalsIgnoreCase(potentialTitle) || MRS_TITLE.equalsIgnoreCase(potentialTitle);
-    }
-
     private static final String ADDRESS_FIELD_SEPARATOR = " ";
 
     public static String addressToSingleLine(ClientAddress address) {
@@ -321,4 +248,27 @@ public class BanksUtils {
             sb.append(value.trim());
         }
     }
+
+    /**
+     * Whether any line of the text starts with the prefix, e.g. an MT940 tag such as {@code :25:}.
+     */
+    public static boolean containsLineStartingWith(String text, String prefix) {
+        if (text.startsWith(prefix)) {
+            return true;
+        }
+        for (int lineEnd = text.indexOf('\n'); lineEnd != -1; lineEnd = text.indexOf('\n', lineEnd + 1)) {
+            if (text.startsWith(prefix, lineEnd + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First line of the text, without its line separator.
+     */
+    public static String firstLine(String text) {
+        int lineEnd = StringUtils.indexOfAny(text, "\r\n");
+        return lineEnd == -1 ? text : text.substring(0, lineEnd);
+    }
 }
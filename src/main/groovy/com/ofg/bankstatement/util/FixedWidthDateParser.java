@@ -0,0 +1,164 @@
+package com.ofg.bankstatement.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+import com.ofg.loans.util.date.DateTimeUtils;
+
+/**
+ * Parses booking dates of a fixed-width pattern such as {@code yyyy-MM-dd}, {@code yyMMdd} or {@code dd/MM/yy},
+ * remembering the dates and epoch days it parsed last: a statement has thousands of rows but only a handful of
+ * distinct dates.
+ * <p>
+ * A date of the pattern's shape is keyed by its digits, read straight from their positions in the text, and is
+ * parsed only when none of the last {@link #MEMO_SIZE} dates had those digits. The parsing itself is left to the
+ * function the parser used so far, so every date comes out as before, and text of any other shape goes to that
+ * function every time. Memoized dates are shared by all threads without locking: a slot holds an immutable entry,
+ * which a thread either sees whole or not at all.
+ */
+public final class FixedWidthDateParser {
+
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Slots of the direct-mapped memo, a few statements' worth of distinct dates.
+     */
+    static final int MEMO_SIZE = 1 << 6;
+
+    private static final int MEMO_SIZE_BITS = Integer.numberOfTrailingZeros(MEMO_SIZE);
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private static final int MAX_DIGITS = 18;
+
+    private static final Map<String, FixedWidthDateParser> DATE_TIME_UTILS_PARSERS = new ConcurrentHashMap<>();
+
+    private final String pattern;
+
+    private final Function<String, Date> parser;
+
+    private final Entry[] memo = new Entry[MEMO_SIZE];
+
+    /**
+     * @param pattern date pattern of letters for digits and any other characters for literal separators
+     * @param parser parses dates the memo does not hold, may return null or throw for a malformed date
+     */
+    public FixedWidthDateParser(String pattern, Function<String, Date> parser) {
+        Preconditions.checkArgument(digitCount(pattern) <= MAX_DIGITS, "Too many digits in date pattern %s", pattern);
+        this.pattern = pattern;
+        this.parser = parser;
+    }
+
+    /**
+     * @return the parser shared by everyone parsing the pattern with {@link DateTimeUtils#date(String, String)}
+     */
+    public static FixedWidthDateParser dateTimeUtils(String pattern) {
+        return DATE_TIME_UTILS_PARSERS.computeIfAbsent(pattern, key -> new FixedWidthDateParser(key, text -> DateTimeUtils.date(text, key)));
+    }
+
+    public int getWidth() {
+        return pattern.length();
+    }
+
+    public Date parse(String text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Date between {@code start} and {@code end} of the text, so a date in the middle of a line needs no substring.
+     *
+     * @return a new date, callers may change it
+     */
+    public Date parse(CharSequence text, int start, int end) {
+        Entry entry = entry(text, start, end);
+        return entry == null ? null : new Date(entry.time);
+    }
+
+    /**
+     * Same date as {@link #parse(CharSequence, int, int)} as days since 1970-01-01 in the default time zone.
+     *
+     * @return {@link #NO_DATE} when the date could not be parsed
+     */
+    public long parseEpochDay(CharSequence text, int start, int end) {
+        Entry entry = entry(text, start, end);
+        return entry == null ? NO_DATE : entry.epochDay;
+    }
+
+    private Entry entry(CharSequence text, int start, int end) {
+        Preconditions.checkPositionIndexes(start, end, text.length());
+        long key = key(text, start, end);
+        if (key == -1) {
+            Date date = parser.apply(text.subSequence(start, end).toString());
+            return date == null ? null : new Entry(key, date.getTime());
+        }
+        int slot = slot(key);
+        Entry entry = memo[slot];
+        if (entry == null || entry.key != key) {
+            Date date = parser.apply(text.subSequence(start, end).toString());
+            if (date == null) {
+                return null;
+            }
+            entry = new Entry(key, date.getTime());
+            memo[slot] = entry;
+        }
+        return entry;
+    }
+
+    /**
+     * @return the digits read as a number, -1 when the text does not have the pattern's shape
+     */
+    private long key(CharSequence text, int start, int end) {
+        if (end - start != pattern.length()) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = text.charAt(start + i);
+            char p = pattern.charAt(i);
+            if (Character.isLetter(p)) {
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                key = key * 10 + c - '0';
+            } else if (c != p) {
+                return -1;
+            }
+        }
+        return key;
+    }
+
+    private static int slot(long key) {
+        return (int) (key * GOLDEN_RATIO >>> Long.SIZE - MEMO_SIZE_BITS);
+    }
+
+    private static int digitCount(String pattern) {
+        int digits = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (Character.isLetter(pattern.charAt(i))) {
+                digits++;
+            }
+        }
+        return digits;
+    }
+
+    private static final class Entry {
+
+        private final long key;
+
+        private final long time;
+
+        private final long epochDay;
+
+        private Entry(long key, long time) {
+            this.key = key;
+            this.time = time;
+            this.epochDay = Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+        }
+    }
+
+}
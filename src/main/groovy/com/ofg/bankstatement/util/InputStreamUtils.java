@@ -1,33 +1,70 @@
 package com.ofg.bankstatement.util;
 
-import com.google.common.base.Predicate;
-import org.apache.commons.io.IOUtils;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
-import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Lists.newArrayList;
-import static org.apache.commons.lang.StringUtils.isEmpty;
+import java.util.function.Consumer;
 
 public class InputStreamUtils {
-    @SuppressWarnings("unchecked")
+
+    private static final int HASH_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Non blank lines of the stream, which is closed afterwards.
+     */
     public static List<String> readLines(InputStream is, String encoding) {
+        List<String> lines = new ArrayList<String>();
+        forEachLine(is, encoding, lines::add);
+        return lines;
+    }
+
+    /**
+     * Same filtering as {@link #readLines(InputStream, String)}, but lines are passed to the consumer one by one
+     * instead of being collected into a list. Parsers not keeping every line should use
+     * {@link LineReader#forEachNonBlankLine(InputStream, String, Consumer)} and skip the String copies.
+     */
+    public static void forEachLine(InputStream is, String encoding, Consumer<String> consumer) {
+        LineReader.forEachNonBlankLine(is, encoding, line -> consumer.accept(line.toString()));
+    }
+
+    /**
+     * Reads at most {@code limit} bytes from the beginning of the stream and rewinds it, so the next reader of the
+     * stream sees the same bytes again. The stream must support mark/reset with a buffer of at least {@code limit}.
+     */
+    public static byte[] peek(InputStream is, int limit) {
+        Preconditions.checkArgument(is.markSupported(), "stream must support mark/reset");
         try {
-            List<String> lines = IOUtils.readLines(is, encoding);
-            return newArrayList(filter(lines, new NotEmptyLinePredicate()));
+            is.mark(limit);
+            byte[] prefix = new byte[limit];
+            int length = ByteStreams.read(is, prefix, 0, limit);
+            is.reset();
+            return length == limit ? prefix : Arrays.copyOf(prefix, length);
         } catch (IOException e) {
             throw new RuntimeException(e);
-        } finally {
-            IOUtils.closeQuietly(is);
         }
     }
 
-    private static final class NotEmptyLinePredicate implements Predicate<String> {
-        @Override
-        public boolean apply(String input) {
-            return input != null && !isEmpty(input.trim());
+    /**
+     * Hex encoded SHA-256 of the rest of the stream, read chunk by chunk. The stream is left open.
+     */
+    public static String sha256Hex(InputStream is) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
+        return hasher.hash().toString();
     }
 }
@@ -0,0 +1,241 @@
+package com.ofg.bankstatement.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads lines of a statement without allocating per line: bytes are decoded chunk by chunk into one {@link CharBuffer}
+ * and every line is returned as the same {@link Line} view over that buffer. A view is valid only until the next read,
+ * callers keeping a line call {@link Line#toString()}.
+ * <p>
+ * Lines end with {@code \n}, {@code \r} or {@code \r\n}, like {@link java.io.BufferedReader#readLine()}. Malformed
+ * input is replaced, like {@link java.io.InputStreamReader} does.
+ */
+public final class LineReader implements Closeable {
+
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * Room for the longest multi-byte sequence, otherwise a split character could never be decoded.
+     */
+    private static final int MIN_BYTE_CHUNK_SIZE = 16;
+
+    private final ReadableByteChannel channel;
+
+    private final CharsetDecoder decoder;
+
+    private final ByteBuffer bytes;
+
+    /**
+     * Decoded characters, the unread ones between position and limit. Grows only for lines longer than the chunk size.
+     */
+    private CharBuffer chars;
+
+    private final Line line = new Line();
+
+    private boolean endOfInput;
+
+    private boolean decodingFinished;
+
+    private boolean skipLineFeed;
+
+    public LineReader(InputStream is, Charset charset) {
+        this(is, charset, DEFAULT_CHUNK_SIZE);
+    }
+
+    public LineReader(InputStream is, Charset charset, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "chunk size must be positive");
+        this.channel = Channels.newChannel(is);
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = (ByteBuffer) ByteBuffer.allocate(Math.max(chunkSize, MIN_BYTE_CHUNK_SIZE)).flip();
+        this.chars = (CharBuffer) CharBuffer.allocate(chunkSize).flip();
+    }
+
+    /**
+     * Passes every line containing more than whitespace to the consumer and closes the stream.
+     */
+    public static void forEachNonBlankLine(InputStream is, String encoding, Consumer<? super Line> consumer) {
+        try (LineReader reader = new LineReader(is, Charset.forName(encoding))) {
+            Line line;
+            while ((line = reader.readNonBlankLine()) != null) {
+                consumer.accept(line);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the next line without its terminator, null at the end of the stream
+     */
+    public Line readLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            char[] buffer = chars.array();
+            int start = chars.position();
+            int limit = chars.limit();
+            if (skipLineFeed && start < limit) {
+                skipLineFeed = false;
+                if (buffer[start] == '\n') {
+                    chars.position(++start);
+                }
+            }
+            for (int i = start + scanned; i < limit; i++) {
+                char c = buffer[i];
+                if (c == '\n' || c == '\r') {
+                    line.set(buffer, start, i - start);
+                    chars.position(i + 1);
+                    skipLineFeed = c == '\r';
+                    return line;
+                }
+            }
+            scanned = limit - start;
+            if (!fill()) {
+                if (scanned == 0) {
+                    return null;
+                }
+                // last line without a terminator, fill() moved it to the start of the buffer
+                line.set(chars.array(), chars.position(), scanned);
+                chars.position(chars.limit());
+                return line;
+            }
+        }
+    }
+
+    /**
+     * @return the next line containing more than whitespace, null at the end of the stream
+     */
+    public Line readNonBlankLine() throws IOException {
+        Line next;
+        do {
+            next = readLine();
+        } while (next != null && next.isBlank());
+        return next;
+    }
+
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(channel);
+    }
+
+    /**
+     * Decodes the next chunk behind the unread characters, which are moved to the start of the buffer first.
+     *
+     * @return false when the stream is exhausted
+     */
+    private boolean fill() throws IOException {
+        if (chars.position() == 0 && chars.limit() == chars.capacity()) {
+            chars = grow(chars);
+        } else {
+            chars.compact();
+        }
+        int unread = chars.position();
+        while (chars.position() == unread && !decodingFinished) {
+            if (!endOfInput) {
+                bytes.compact();
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+            }
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isOverflow() && chars.position() == unread) {
+                // the next character does not fit the free space, e.g. a surrogate pair behind a single free char
+                chars = grow((CharBuffer) chars.flip());
+            }
+            if (endOfInput && result.isUnderflow()) {
+                decoder.flush(chars);
+                decodingFinished = true;
+            }
+        }
+        boolean decoded = chars.position() > unread;
+        chars.flip();
+        return decoded;
+    }
+
+    /**
+     * @return buffer of twice the capacity holding the given characters, ready to decode behind them
+     */
+    private static CharBuffer grow(CharBuffer unread) {
+        CharBuffer grown = CharBuffer.allocate(unread.capacity() * 2);
+        grown.put(unread);
+        return grown;
+    }
+
+    /**
+     * Line view over the decoder buffer, reused for every line of a {@link LineReader}.
+     */
+    public static final class Line implements CharSequence {
+
+        private char[] buffer;
+
+        private int offset;
+
+        private int length;
+
+        private void set(char[] buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Preconditions.checkElementIndex(index, length);
+            return buffer[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            Preconditions.checkPositionIndexes(start, end, length);
+            return new String(buffer, offset + start, end - start);
+        }
+
+        public boolean startsWith(String prefix) {
+            if (prefix.length() > length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (buffer[offset + i] != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Same test as {@code toString().trim().isEmpty()}, without the copies.
+         */
+        public boolean isBlank() {
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, offset, length);
+        }
+    }
+
+}
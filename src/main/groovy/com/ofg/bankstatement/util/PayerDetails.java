@@ -0,0 +1,53 @@
+package com.ofg.bankstatement.util;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Payer details split into the person name and the address following it. Parsers derive the address in one of two
+ * ways, both kept so every parser gets the same address as before:
+ * <ul>
+ * <li>{@link #getAddressAfterName()}: the details past the first {@code name.length()} characters</li>
+ * <li>{@link #getAddressWithoutName()}: the details with the name removed from their start, when they start with it</li>
+ * </ul>
+ * They differ only when the name is not where the details start, e.g. after a dropped {@code PAN} title.
+ */
+public final class PayerDetails {
+
+    private final String name;
+
+    private final String addressAfterName;
+
+    private final String addressWithoutName;
+
+    private PayerDetails(String name, String addressAfterName, String addressWithoutName) {
+        this.name = name;
+        this.addressAfterName = addressAfterName;
+        this.addressWithoutName = addressWithoutName;
+    }
+
+    static PayerDetails split(String details) {
+        String name = BanksUtils.parsePersonNameFromDetails(details);
+        String addressAfterName = details.substring(name.length()).trim();
+        String addressWithoutName = StringUtils.removeStart(details, name).trim();
+        return new PayerDetails(name, addressAfterName, addressWithoutName.equals(addressAfterName) ? addressAfterName : addressWithoutName);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Same as {@code details.substring(name.length()).trim()}.
+     */
+    public String getAddressAfterName() {
+        return addressAfterName;
+    }
+
+    /**
+     * Same as {@code StringUtils.removeStart(details, name).trim()}.
+     */
+    public String getAddressWithoutName() {
+        return addressWithoutName;
+    }
+
+}
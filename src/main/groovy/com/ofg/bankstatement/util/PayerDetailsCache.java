@@ -0,0 +1,37 @@
+package com.ofg.bankstatement.util;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Payer details split by {@link PayerDetails#split(String)}, shared by all parsers. Customers repay monthly, so the
+ * same payer details come back in statement after statement and their split is computed once. Least recently used
+ * details are evicted beyond {@link #MAXIMUM_SIZE} entries.
+ */
+public final class PayerDetailsCache {
+
+    public static final long MAXIMUM_SIZE = 20000;
+
+    private static final LoadingCache<String, PayerDetails> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .recordStats()
+            .build(CacheLoader.from(PayerDetails::split));
+
+    private PayerDetailsCache() {
+    }
+
+    public static PayerDetails split(String details) {
+        return CACHE.getUnchecked(details);
+    }
+
+    public static CacheStats stats() {
+        return CACHE.stats();
+    }
+
+    public static long size() {
+        return CACHE.size();
+    }
+
+}
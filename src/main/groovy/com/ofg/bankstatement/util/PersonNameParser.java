@@ -0,0 +1,175 @@
+package com.ofg.bankstatement.util;
+
+/**
+ * Splits the person name off payer details such as {@code PAN JAN KOWALSKI UL. DLUGA 5 00-001 WARSZAWA}, see
+ * {@link BanksUtils#parsePersonNameFromDetails(String)}.
+ * <p>
+ * Every split candidate (second space, first {@code UL.}/{@code WS.}/{@code OS.}, first double space, first digit) is
+ * found in one walk over the characters, and the only string created is the returned name.
+ */
+final class PersonNameParser {
+
+    private static final String MR_TITLE = "PAN";
+
+    private static final String MRS_TITLE = "PANI";
+
+    /**
+     * In order of precedence: a {@code UL.} anywhere wins over an earlier {@code WS.}, which wins over {@code OS.}.
+     */
+    private static final String ADDRESS_PREFIX_UL = "UL.";
+
+    private static final String ADDRESS_PREFIX_WS = "WS.";
+
+    private static final String ADDRESS_PREFIX_OS = "OS.";
+
+    private static final int ADDRESS_PREFIX_LENGTH = 3;
+
+    private static final int NOT_FOUND = -1;
+
+    private PersonNameParser() {
+    }
+
+    static String parsePersonName(String details) {
+        if (details == null) {
+            return "";
+        }
+
+        // the details without a leading title, trimmed when the title was dropped
+        int start = 0;
+        int end = details.length();
+        int titleEnd = indexOfTitleEnd(details);
+        if (titleEnd != NOT_FOUND) {
+            start = skipWhitespace(details, titleEnd, end);
+            end = skipTrailingWhitespace(details, start, end);
+        }
+
+        int firstSpace = NOT_FOUND;
+        int secondSpace = NOT_FOUND;
+        int twoSpaces = NOT_FOUND;
+        int firstDigit = NOT_FOUND;
+        int ul = NOT_FOUND;
+        int ws = NOT_FOUND;
+        int os = NOT_FOUND;
+        for (int i = start; i < end; i++) {
+            char c = details.charAt(i);
+            if (c == ' ') {
+                if (firstSpace == NOT_FOUND) {
+                    firstSpace = i;
+                } else if (secondSpace == NOT_FOUND) {
+                    secondSpace = i;
+                }
+                if (twoSpaces == NOT_FOUND && i + 1 < end && details.charAt(i + 1) == ' ') {
+                    twoSpaces = i;
+                }
+            } else if (firstDigit == NOT_FOUND && Character.isDigit(c)) {
+                firstDigit = i;
+            }
+            if (i + ADDRESS_PREFIX_LENGTH <= end) {
+                switch (Character.toUpperCase(c)) {
+                    case 'U':
+                        ul = ul == NOT_FOUND && matchesIgnoreCase(details, i, ADDRESS_PREFIX_UL) ? i : ul;
+                        break;
+                    case 'W':
+                        ws = ws == NOT_FOUND && matchesIgnoreCase(details, i, ADDRESS_PREFIX_WS) ? i : ws;
+                        break;
+                    case 'O':
+                        os = os == NOT_FOUND && matchesIgnoreCase(details, i, ADDRESS_PREFIX_OS) ? i : os;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        int length = end - start;
+        // an empty remainder counts its second space at 0, as BanksUtils#indexOfSecondWhiteSpace does
+        int indexOfSecondWhiteSpace = length == 0 ? 0 : relative(secondSpace, start);
+        int indexOfSpecAddressSymbols = relative(ul != NOT_FOUND ? ul : ws != NOT_FOUND ? ws : os, start);
+        int indexOfTwoWhiteSpaces = relative(twoSpaces, start);
+        int indexOfDigitSymbol = relative(firstDigit, start);
+
+        int indexOfAddress = NOT_FOUND;
+        if (indexOfDigitSymbol == NOT_FOUND && indexOfSpecAddressSymbols == NOT_FOUND && indexOfTwoWhiteSpaces == NOT_FOUND
+                && indexOfSecondWhiteSpace != NOT_FOUND) {
+            indexOfAddress = indexOfSecondWhiteSpace;
+        }
+
+        indexOfDigitSymbol = indexOfDigitSymbol == NOT_FOUND ? length : indexOfDigitSymbol;
+        indexOfSpecAddressSymbols = indexOfSpecAddressSymbols == NOT_FOUND ? length : indexOfSpecAddressSymbols;
+        indexOfTwoWhiteSpaces = indexOfTwoWhiteSpaces == NOT_FOUND ? length : indexOfTwoWhiteSpaces;
+
+        if (indexOfSpecAddressSymbols < indexOfTwoWhiteSpaces && indexOfSpecAddressSymbols < indexOfDigitSymbol) {
+            indexOfAddress = indexOfSpecAddressSymbols;
+        } else if (indexOfTwoWhiteSpaces < indexOfSpecAddressSymbols && indexOfTwoWhiteSpaces < indexOfDigitSymbol) {
+            indexOfAddress = indexOfTwoWhiteSpaces;
+        } else if (indexOfDigitSymbol < indexOfSpecAddressSymbols && indexOfDigitSymbol < indexOfTwoWhiteSpaces) {
+            indexOfAddress = indexOfSecondWhiteSpace;
+        }
+
+        int nameEnd = start + (indexOfAddress == NOT_FOUND ? length : indexOfAddress);
+        int nameStart = skipWhitespace(details, start, nameEnd);
+        nameEnd = skipTrailingWhitespace(details, nameStart, nameEnd);
+        return nameStart == 0 && nameEnd == details.length() ? details : details.substring(nameStart, nameEnd);
+    }
+
+    /**
+     * @return index of the space ending a leading {@code PAN} or {@code PANI} title, -1 when there is no title
+     */
+    private static int indexOfTitleEnd(String details) {
+        if (details.length() < MR_TITLE.length() || !startsWithUpperCase(details, MR_TITLE)) {
+            return NOT_FOUND;
+        }
+        int firstSpace = details.indexOf(' ');
+        if (firstSpace == NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        int titleLength = skipTrailingWhitespace(details, 0, firstSpace);
+        boolean title = titleLength == MR_TITLE.length()
+                || titleLength == MRS_TITLE.length() && details.regionMatches(true, 0, MRS_TITLE, 0, titleLength);
+        return title ? firstSpace : NOT_FOUND;
+    }
+
+    /**
+     * Same as {@code text.toUpperCase().startsWith(prefix)} for a prefix of ASCII letters.
+     */
+    private static boolean startsWithUpperCase(String text, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toUpperCase(text.charAt(i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@code StringUtils.indexOfIgnoreCase} testing one position.
+     */
+    private static boolean matchesIgnoreCase(String text, int offset, String prefix) {
+        return text.regionMatches(true, offset, prefix, 0, prefix.length());
+    }
+
+    private static int relative(int index, int start) {
+        return index == NOT_FOUND ? NOT_FOUND : index - start;
+    }
+
+    /**
+     * @return first index from {@code start} on holding a character {@link String#trim()} keeps, {@code end} if none
+     */
+    private static int skipWhitespace(String text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return end of the range once the trailing characters {@link String#trim()} drops are cut off
+     */
+    private static int skipTrailingWhitespace(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+}
@@ -1,6 +1,11 @@
 package com.ofg.twitter.config
 
+import com.ofg.bankstatement.importing.StatementResultCache
 import net.sf.ehcache.config.CacheConfiguration
+import net.sf.ehcache.config.DiskStoreConfiguration
+import net.sf.ehcache.config.PersistenceConfiguration
+import net.sf.ehcache.config.SizeOfPolicyConfiguration
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.cache.CacheManager
 import org.springframework.cache.ehcache.EhCacheCacheManager
 import org.springframework.context.annotation.Bean
@@ -9,8 +14,20 @@ import org.springframework.context.annotation.Configuration
 @Configuration
 class CachingConfiguration {
 
+    /**
+     * Strings and their char arrays a cached payment adds to the object graph of its statement, at most.
+     */
+    private static final int SIZED_OBJECTS_PER_PAYMENT = 10
+
+    private static final int SIZED_OBJECTS_PER_STATEMENT = 1000
+
     @Bean
-    CacheManager cacheManager() {
+    CacheManager cacheManager(@Value('${bankstatement.cache.maxBytesLocalHeap:256m}') String statementCacheMaxBytes,
+                              @Value('${bankstatement.cache.maxPaymentsPerStatement:50000}') int maxPaymentsPerStatement,
+                              @Value('${bankstatement.cache.ttl.minutes:480}') long statementCacheTtlMinutes,
+                              @Value('${bankstatement.cache.disk.enabled:false}') boolean statementCacheOnDisk,
+                              @Value('${bankstatement.cache.disk.maxEntries:1000}') long statementCacheMaxEntriesOnDisk,
+                              @Value('${bankstatement.cache.disk.path:java.io.tmpdir}') String diskStorePath) {
         CacheConfiguration cacheConfiguration = new CacheConfiguration()
         cacheConfiguration.setName("cities")
         cacheConfiguration.setMemoryStoreEvictionPolicy("LRU")
@@ -18,6 +35,34 @@ class CachingConfiguration {
         cacheConfiguration.setTimeToLiveSeconds(60 * 10)
         net.sf.ehcache.config.Configuration config = new net.sf.ehcache.config.Configuration()
         config.addCache(cacheConfiguration)
+        config.addCache(statementCacheConfiguration(statementCacheMaxBytes, maxPaymentsPerStatement, statementCacheTtlMinutes,
+                statementCacheOnDisk, statementCacheMaxEntriesOnDisk))
+        if (statementCacheOnDisk) {
+            config.addDiskStore(new DiskStoreConfiguration().path(diskStorePath))
+        }
         return new EhCacheCacheManager(net.sf.ehcache.CacheManager.newInstance(config))
     }
+
+    /**
+     * Payments of whole statements, so entries are few and big and differ in size by orders of magnitude: the heap tier
+     * is bounded by the bytes its entries take, sized walking every object of a cached statement. The disk tier, when
+     * enabled, keeps the least recently used statements evicted from the heap until restart, serialized.
+     */
+    private static CacheConfiguration statementCacheConfiguration(String maxBytes, int maxPaymentsPerStatement, long ttlMinutes,
+                                                                  boolean onDisk, long maxEntriesOnDisk) {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration()
+        cacheConfiguration.setName(StatementResultCache.CACHE_NAME)
+        cacheConfiguration.setMemoryStoreEvictionPolicy("LRU")
+        cacheConfiguration.setMaxBytesLocalHeap(maxBytes)
+        cacheConfiguration.sizeOfPolicy(new SizeOfPolicyConfiguration()
+                .maxDepth(maxPaymentsPerStatement * SIZED_OBJECTS_PER_PAYMENT + SIZED_OBJECTS_PER_STATEMENT))
+        cacheConfiguration.setTimeToLiveSeconds(ttlMinutes * 60)
+        if (onDisk) {
+            cacheConfiguration.setMaxEntriesLocalDisk(maxEntriesOnDisk)
+            cacheConfiguration.persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.LOCALTEMPSWAP))
+        } else {
+            cacheConfiguration.persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
+        }
+        return cacheConfiguration
+    }
 }
@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS SEEN_PAYMENT (
+    ID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    COMPANY_BANK_ACCOUNT VARCHAR(34) NOT NULL,
+    BANK_REFERENCE VARCHAR(255) NOT NULL,
+    FIRST_SEEN TIMESTAMP NOT NULL,
+    CONSTRAINT UK_SEEN_PAYMENT UNIQUE (COMPANY_BANK_ACCOUNT, BANK_REFERENCE)
+);
+
+CREATE TABLE IF NOT EXISTS SEEN_STATEMENT (
+    CONTENT_HASH VARCHAR(64) PRIMARY KEY,
+    FILE_NAME VARCHAR(255),
+    STATE VARCHAR(16) NOT NULL,
+    IMPORTED TIMESTAMP NOT NULL
+);
+
+-- statements recorded before imports claimed them were all imported
+ALTER TABLE SEEN_STATEMENT ADD COLUMN IF NOT EXISTS STATE VARCHAR(16) DEFAULT 'IMPORTED' NOT NULL;
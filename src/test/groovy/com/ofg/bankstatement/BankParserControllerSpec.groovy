@@ -0,0 +1,125 @@
+package com.ofg.bankstatement
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.ofg.bankstatement.importing.StatementImportWorker
+import com.ofg.bankstatement.importing.StatementResultCache
+import com.ofg.bankstatement.parser.BankStatementParser
+import com.ofg.bankstatement.parser.BankStatementParserFactory
+import com.ofg.bankstatement.parser.DetectedStatement
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.mock.web.MockMultipartFile
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.RejectedExecutionException
+import java.util.function.Consumer
+
+class BankParserControllerSpec extends Specification {
+
+    private static final String FILE_NAME = 'export20141031.csv'
+
+    ObjectMapper objectMapper = new ObjectMapper()
+
+    StatementImportWorker statementImportWorker = Mock()
+
+    BankStatementParser parser
+
+    BankStatementParserFactory parserFactory = [detectParser: { String fileName, InputStream is -> detected(parser, is) }] as BankStatementParserFactory
+
+    BankParserController controller = new BankParserController(statementImportWorker, parserFactory, new StatementResultCache(null, false, 0),
+            objectMapper)
+
+    MockHttpServletResponse response = new MockHttpServletResponse()
+
+    @Unroll
+    def 'should end #payments streamed payments with the trailer of a complete statement'() {
+        given:
+            parser = new EmittingParser(payments, null)
+        when:
+            controller.parseBankStatement(upload(), response)
+        then:
+            List<String> lines = response.contentAsString.readLines()
+            lines.size() == payments + 1
+            lines.init().collect { objectMapper.readValue(it, Map).bankReference } == (0..<payments).collect { "REF-${it}".toString() }
+            objectMapper.readValue(lines.last(), Map) == [complete: true, payments: payments]
+            response.status == 200
+        where:
+            payments << [0, 3, 250]
+    }
+
+    def 'should answer a statement failing before any payment was sent with an error instead of a truncated body'() {
+        given:
+            parser = new EmittingParser(2, new IllegalStateException('truncated statement'))
+        when:
+            controller.parseBankStatement(upload(), response)
+        then:
+            IllegalStateException e = thrown()
+            e.message == 'truncated statement'
+            !response.committed
+            response.contentAsString.isEmpty()
+            response.contentType == null
+    }
+
+    def 'should end payments sent before a failure with the trailer of a truncated statement'() {
+        given:
+            parser = new EmittingParser(150, new IllegalStateException('truncated statement'))
+        when:
+            controller.parseBankStatement(upload(), response)
+        then:
+            List<String> lines = response.contentAsString.readLines()
+            lines.size() == 151
+            lines.init().collect { objectMapper.readValue(it, Map).bankReference } == (0..<150).collect { "REF-${it}".toString() }
+            objectMapper.readValue(lines.last(), Map) == [complete: false, payments: 150, error: 'truncated statement']
+    }
+
+    def 'should ask to retry an import later when the import queue is full'() {
+        when:
+            ResponseEntity<Map<String, Object>> answer = controller.importBankStatement(upload())
+        then:
+            1 * statementImportWorker.submit(FILE_NAME, _) >> { throw new RejectedExecutionException() }
+            answer.statusCode == HttpStatus.SERVICE_UNAVAILABLE
+            answer.headers.getFirst('Retry-After') == '30'
+            answer.body == [error: 'Too many statement imports in progress']
+    }
+
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile('file', FILE_NAME, 'text/csv', 'statement content'.bytes)
+    }
+
+    private static DetectedStatement detected(BankStatementParser parser, InputStream is) {
+        return DetectedStatement.getDeclaredConstructor(BankStatementParser, InputStream).with {
+            accessible = true
+            newInstance(parser, is)
+        }
+    }
+
+    private static class EmittingParser implements BankStatementParser {
+
+        private final int payments
+
+        private final RuntimeException failure
+
+        EmittingParser(int payments, RuntimeException failure) {
+            this.payments = payments
+            this.failure = failure
+        }
+
+        @Override
+        List<PaymentInfo> importBankStatement(InputStream is) {
+            List<PaymentInfo> parsed = []
+            importBankStatement(is, { parsed << it } as Consumer<PaymentInfo>)
+            return parsed
+        }
+
+        @Override
+        void importBankStatement(InputStream is, Consumer<PaymentInfo> consumer) {
+            payments.times { consumer.accept(new PaymentInfo(bankReference: "REF-${it}".toString())) }
+            if (failure != null) {
+                throw failure
+            }
+        }
+    }
+}
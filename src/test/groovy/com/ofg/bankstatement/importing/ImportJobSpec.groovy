@@ -0,0 +1,65 @@
+package com.ofg.bankstatement.importing
+
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ImportJobSpec extends Specification {
+
+    private static final int CHUNK = 1024
+
+    @Unroll
+    def 'should read #limit payments from #offset across sealed and pending payments'() {
+        given:
+            ImportJob job = importJob(CHUNK * 2 + 10)
+        expect:
+            job.getPayments(offset, limit)*.bankReference == references(expected)
+        where:
+            offset         | limit || expected
+            0              | 5     || 0..<5
+            CHUNK - 3      | 6     || (CHUNK - 3)..<(CHUNK + 3)
+            CHUNK          | 1     || CHUNK..<(CHUNK + 1)
+            CHUNK * 2 - 1  | 2     || (CHUNK * 2 - 1)..<(CHUNK * 2 + 1)
+            CHUNK * 2 + 5  | 100   || (CHUNK * 2 + 5)..<(CHUNK * 2 + 10)
+            0              | 10000 || 0..<(CHUNK * 2 + 10)
+            CHUNK * 2 + 10 | 10    || []
+            5000           | 10    || []
+    }
+
+    def 'should read the same payments once the last ones are sealed'() {
+        given:
+            ImportJob job = importJob(CHUNK + 10)
+            List<String> beforeSealing = job.getPayments(CHUNK - 3, 100)*.bankReference
+        when:
+            int sealed = job.sealPayments()*.size().sum() as int
+        then:
+            sealed == CHUNK + 10
+            job.getPayments(CHUNK - 3, 100)*.bankReference == beforeSealing
+            beforeSealing == references((CHUNK - 3)..<(CHUNK + 10))
+            job.getPayments(0, 10000)*.bankReference == references(0..<(CHUNK + 10))
+    }
+
+    def 'should tell which payment completed a chunk'() {
+        given:
+            ImportJob job = new ImportJob('job-1', 'export20141031.csv')
+        when:
+            List<Integer> completing = (0..<(CHUNK * 2 + 1)).findAll { job.addPayment(payment(it)) }
+        then:
+            completing == [CHUNK - 1, CHUNK * 2 - 1]
+            job.parsedPayments == CHUNK * 2 + 1
+    }
+
+    private static ImportJob importJob(int payments) {
+        ImportJob job = new ImportJob('job-1', 'export20141031.csv')
+        (0..<payments).each { job.addPayment(payment(it)) }
+        return job
+    }
+
+    private static List<String> references(Iterable<Integer> indexes) {
+        return indexes.collect { "REF-${it}".toString() }
+    }
+
+    private static PaymentInfo payment(int index) {
+        return new PaymentInfo(bankReference: "REF-${index}".toString(), amount: new BigDecimal('48.20'), bookingDate: new Date())
+    }
+}
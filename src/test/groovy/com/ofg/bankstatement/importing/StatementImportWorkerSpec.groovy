@@ -0,0 +1,182 @@
+package com.ofg.bankstatement.importing
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.util.concurrent.MoreExecutors
+import com.ofg.bankstatement.importing.dedup.PaymentIndex
+import com.ofg.bankstatement.parser.BankStatementParser
+import com.ofg.bankstatement.parser.BankStatementParserFactory
+import com.ofg.bankstatement.parser.DetectedStatement
+import com.ofg.bankstatement.parser.PaymentBatch
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.Consumer
+
+class StatementImportWorkerSpec extends Specification {
+
+    private static final String FILE_NAME = 'export20141031.csv'
+
+    PaymentIndex paymentIndex = Mock()
+
+    CountingParser parser = new CountingParser(3)
+
+    BankStatementParserFactory parserFactory = [detectParser: { String fileName, InputStream is -> detected(parser, is) }] as BankStatementParserFactory
+
+    Cache<String, ImportJob> jobs = CacheBuilder.newBuilder().build()
+
+    StatementImportWorker worker = new StatementImportWorker(parserFactory, MoreExecutors.newDirectExecutorService(), jobs, paymentIndex,
+            new StatementResultCache(null, false, 0))
+
+    Path statement = Files.createTempFile('statement-import-spec-', '.tmp')
+
+    def setup() {
+        Files.write(statement, 'statement content'.bytes)
+        paymentIndex.isEnabled() >> true
+    }
+
+    def cleanup() {
+        Files.deleteIfExists(statement)
+    }
+
+    def 'should claim the statement before parsing it and record its payments once imported'() {
+        when:
+            ImportJob job = worker.submit(FILE_NAME, statement)
+        then:
+            1 * paymentIndex.claim({ it ==~ /[0-9a-f]{64}/ }, FILE_NAME) >> true
+        then:
+            1 * paymentIndex.record({ it ==~ /[0-9a-f]{64}/ }, { it.sum { PaymentBatch batch -> batch.size() } == 3 })
+            0 * paymentIndex.release(_)
+            parser.imports == 1
+            job.status == ImportJobStatus.COMPLETED
+            job.parsedPayments == 3
+            !job.alreadyImported
+            !Files.exists(statement)
+    }
+
+    def 'should not parse a statement claimed by another import'() {
+        when:
+            ImportJob job = worker.submit(FILE_NAME, statement)
+        then:
+            1 * paymentIndex.claim(_, FILE_NAME) >> false
+            0 * paymentIndex.record(_, _)
+            0 * paymentIndex.release(_)
+            parser.imports == 0
+            job.status == ImportJobStatus.COMPLETED
+            job.alreadyImported
+            !Files.exists(statement)
+    }
+
+    def 'should release the claim when the import fails'() {
+        given:
+            parser = new CountingParser(3, new IllegalStateException('truncated statement'))
+        when:
+            ImportJob job = worker.submit(FILE_NAME, statement)
+        then:
+            1 * paymentIndex.claim(_, FILE_NAME) >> true
+            0 * paymentIndex.record(_, _)
+        then:
+            1 * paymentIndex.release({ it ==~ /[0-9a-f]{64}/ })
+            job.status == ImportJobStatus.FAILED
+            job.error == 'truncated statement'
+    }
+
+    def 'should release the claim when recording the payments fails'() {
+        when:
+            ImportJob job = worker.submit(FILE_NAME, statement)
+        then:
+            1 * paymentIndex.claim(_, FILE_NAME) >> true
+            1 * paymentIndex.record(_, _) >> { throw new IllegalStateException('database down') }
+        then:
+            1 * paymentIndex.release(_)
+            job.status == ImportJobStatus.COMPLETED
+            job.parsedPayments == 3
+    }
+
+    def 'should weigh a running job with every chunk of payments it seals'() {
+        given:
+            ImportJob finished = new ImportJob('finished', FILE_NAME)
+            600.times { finished.addPayment(new PaymentInfo()) }
+            Cache<String, ImportJob> weighedJobs = StatementImportConfiguration.importJobs(60, 1500)
+            weighedJobs.put(finished.id, finished)
+            List<Set<String>> retained = []
+            ObservingParser observingParser = new ObservingParser(1200, { int emitted ->
+                if (emitted == 1000 || emitted == 1100) {
+                    retained << new HashSet<String>(weighedJobs.asMap().keySet())
+                }
+            })
+            BankStatementParserFactory observingFactory =
+                    [detectParser: { String fileName, InputStream is -> detected(observingParser, is) }] as BankStatementParserFactory
+            StatementImportWorker weighingWorker = new StatementImportWorker(observingFactory, MoreExecutors.newDirectExecutorService(),
+                    weighedJobs, paymentIndex, new StatementResultCache(null, false, 0))
+            paymentIndex.claim(_, FILE_NAME) >> true
+        when:
+            ImportJob job = weighingWorker.submit(FILE_NAME, statement)
+        then:
+            retained == [[finished.id, job.id] as Set, [job.id] as Set]
+            job.status == ImportJobStatus.COMPLETED
+            weighedJobs.getIfPresent(job.id).is(job)
+    }
+
+    private static DetectedStatement detected(BankStatementParser parser, InputStream is) {
+        return DetectedStatement.getDeclaredConstructor(BankStatementParser, InputStream).with {
+            accessible = true
+            newInstance(parser, is)
+        }
+    }
+
+    private static class CountingParser implements BankStatementParser {
+
+        private final int payments
+
+        private final RuntimeException failure
+
+        int imports
+
+        CountingParser(int payments, RuntimeException failure = null) {
+            this.payments = payments
+            this.failure = failure
+        }
+
+        @Override
+        List<PaymentInfo> importBankStatement(InputStream is) {
+            imports++
+            if (failure != null) {
+                throw failure
+            }
+            return (0..<payments).collect { new PaymentInfo(bankReference: "REF-${it}".toString()) }
+        }
+    }
+
+    /**
+     * Streams the payments, calling back after each with the number emitted so far.
+     */
+    private static class ObservingParser implements BankStatementParser {
+
+        private final int payments
+
+        private final Closure<?> emitted
+
+        ObservingParser(int payments, Closure<?> emitted) {
+            this.payments = payments
+            this.emitted = emitted
+        }
+
+        @Override
+        List<PaymentInfo> importBankStatement(InputStream is) {
+            List<PaymentInfo> imported = []
+            importBankStatement(is, { imported << it } as Consumer<PaymentInfo>)
+            return imported
+        }
+
+        @Override
+        void importBankStatement(InputStream is, Consumer<PaymentInfo> consumer) {
+            for (int i = 0; i < payments; i++) {
+                consumer.accept(new PaymentInfo(bankReference: "REF-${i}".toString()))
+                emitted(i + 1)
+            }
+        }
+    }
+}
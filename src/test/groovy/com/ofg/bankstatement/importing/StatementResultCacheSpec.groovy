@@ -0,0 +1,173 @@
+package com.ofg.bankstatement.importing
+
+import com.ofg.bankstatement.parser.BankStatementParser
+import com.ofg.bankstatement.parser.PaymentBatch
+import com.ofg.bankstatement.parser.mt940.Mt940BankStatementParser
+import com.ofg.loans.api.beans.AddressInfo
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import com.ofg.loans.api.beans.payment.PaymentType
+import org.springframework.cache.concurrent.ConcurrentMapCache
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.Consumer
+
+class StatementResultCacheSpec extends Specification {
+
+    private static final String CONTENT_HASH = 'a3f1'
+
+    ConcurrentMapCache cache = new ConcurrentMapCache(StatementResultCache.CACHE_NAME)
+
+    def 'should hand over cached payments without parsing the statement again'() {
+        given:
+            CountingParser parser = parser(3)
+            StatementResultCache resultCache = new StatementResultCache(cache, true, 10)
+        when:
+            List<PaymentInfo> parsed = importStatement(resultCache, parser)
+            List<PaymentInfo> cached = importStatement(resultCache, parser)
+        then:
+            cached*.bankReference == ['REF-0', 'REF-1', 'REF-2']
+            cached.collect { fields(it) } == parsed.collect { fields(it) }
+            parser.imports == 1
+    }
+
+    def 'should cache the payments as they were parsed, whatever the importing code changes'() {
+        given:
+            BankStatementParser parser = parser(2)
+            StatementResultCache resultCache = new StatementResultCache(cache, true, 10)
+            List<List<Object>> parsedFields = []
+            Consumer<PaymentInfo> changingConsumer = { PaymentInfo payment ->
+                parsedFields << fields(payment)
+                payment.amount = BigDecimal.ZERO
+                payment.bookingDate.time = 0
+                payment.accountHolderAddress.location6 = 'changed'
+                payment.details = 'changed'
+            } as Consumer<PaymentInfo>
+        when:
+            resultCache.importBankStatement(CONTENT_HASH, parser, new ByteArrayInputStream(new byte[0]), changingConsumer)
+            List<PaymentInfo> first = importStatement(resultCache, parser)
+            first.each { it.details = 'changed again' }
+            List<PaymentInfo> second = importStatement(resultCache, parser)
+        then:
+            first.collect { fields(it) } == parsedFields
+            second.collect { fields(it) } == parsedFields
+            [first, second].transpose().every { List<PaymentInfo> pair -> !pair[0].is(pair[1]) }
+    }
+
+    def 'should not cache statements with more payments than the limit'() {
+        given:
+            CountingParser parser = parser(11)
+            StatementResultCache resultCache = new StatementResultCache(cache, true, 10)
+        when:
+            importStatement(resultCache, parser)
+            List<PaymentInfo> payments = importStatement(resultCache, parser)
+        then:
+            payments.size() == 11
+            parser.imports == 2
+            cache.nativeCache.isEmpty()
+    }
+
+    def 'should not cache a statement whose parsing failed'() {
+        given:
+            BankStatementParser parser = Stub(BankStatementParser) {
+                importBankStatement(_ as InputStream, _ as Consumer) >> { InputStream is, Consumer<PaymentInfo> consumer ->
+                    consumer.accept(payment(0))
+                    throw new IllegalStateException('truncated statement')
+                }
+            }
+            StatementResultCache resultCache = new StatementResultCache(cache, true, 10)
+        when:
+            importStatement(resultCache, parser)
+        then:
+            thrown(IllegalStateException)
+            cache.nativeCache.isEmpty()
+    }
+
+    def 'should cache payments the disk tier can serialize'() {
+        given:
+            StatementResultCache resultCache = new StatementResultCache(cache, true, 10)
+            List<PaymentInfo> parsed = importStatement(resultCache, parser(3))
+            PaymentBatch cached = cache.nativeCache.values().first() as PaymentBatch
+        when:
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream()
+            new ObjectOutputStream(serialized).withStream { it.writeObject(cached) }
+            PaymentBatch deserialized = new ObjectInputStream(new ByteArrayInputStream(serialized.toByteArray())).readObject() as PaymentBatch
+        then:
+            deserialized.asList().collect { fields(it) } == parsed.collect { fields(it) }
+    }
+
+    def 'should import a statement file through a stream unless it is MT940'() {
+        given:
+            Path statement = Files.write(Files.createTempFile('statement-', '.tmp'), 'statement content'.bytes)
+            CountingParser parser = parser(2)
+            List<Path> mappedFiles = []
+            Mt940BankStatementParser mt940Parser = new Mt940BankStatementParser() {
+                @Override
+                void importBankStatement(Path statementFile, Consumer<PaymentInfo> consumer) {
+                    mappedFiles << statementFile
+                    consumer.accept(payment(0))
+                }
+            }
+            StatementResultCache resultCache = new StatementResultCache(cache, true, 10)
+        when:
+            List<PaymentInfo> parsed = []
+            resultCache.importBankStatement(CONTENT_HASH, parser, statement, { parsed << it } as Consumer<PaymentInfo>)
+            List<PaymentInfo> mt940Parsed = []
+            resultCache.importBankStatement(CONTENT_HASH, mt940Parser, statement, { mt940Parsed << it } as Consumer<PaymentInfo>)
+        then:
+            parser.imports == 1
+            parsed*.bankReference == ['REF-0', 'REF-1']
+            mappedFiles == [statement]
+            mt940Parsed*.bankReference == ['REF-0']
+            cache.nativeCache.size() == 2
+        cleanup:
+            Files.deleteIfExists(statement)
+    }
+
+    private static List<PaymentInfo> importStatement(StatementResultCache resultCache, BankStatementParser parser) {
+        List<PaymentInfo> payments = []
+        resultCache.importBankStatement(CONTENT_HASH, parser, new ByteArrayInputStream(new byte[0]), { payments << it } as Consumer<PaymentInfo>)
+        return payments
+    }
+
+    private static CountingParser parser(int payments) {
+        return new CountingParser(payments)
+    }
+
+    private static PaymentInfo payment(int index) {
+        PaymentInfo payment = new PaymentInfo()
+        payment.amount = new BigDecimal("${index + 1}0.50")
+        payment.bookingDate = Date.parse('yyyy-MM-dd', '2014-10-01') + index
+        payment.type = PaymentType.INCOMING
+        payment.accountNumber = 'PL61109010140000071219812874'
+        payment.companyBankAccount = 'PL27114020040000300201355387'
+        payment.accountHolderName = "Jan Kowalski ${index}".toString()
+        payment.accountHolderAddress = new AddressInfo(location6: 'ul. Prosta 1, Warszawa')
+        payment.details = "Splata pozyczki ${index}".toString()
+        payment.bankReference = "REF-${index}".toString()
+        return payment
+    }
+
+    private static List<Object> fields(PaymentInfo payment) {
+        return [payment.amount, payment.bookingDate?.time, payment.type, payment.accountNumber, payment.companyBankAccount,
+                payment.accountHolderName, payment.accountHolderAddress?.location6, payment.details, payment.bankReference]
+    }
+
+    private static class CountingParser implements BankStatementParser {
+
+        private final int payments
+
+        int imports
+
+        CountingParser(int payments) {
+            this.payments = payments
+        }
+
+        @Override
+        List<PaymentInfo> importBankStatement(InputStream is) {
+            imports++
+            return (0..<payments).collect { payment(it) }
+        }
+    }
+}
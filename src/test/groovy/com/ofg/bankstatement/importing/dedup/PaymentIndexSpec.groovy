@@ -0,0 +1,163 @@
+package com.ofg.bankstatement.importing.dedup
+
+import com.ofg.bankstatement.parser.PaymentBatch
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.data.domain.PageImpl
+import org.springframework.data.domain.PageRequest
+import org.springframework.data.domain.Pageable
+import spock.lang.Specification
+
+class PaymentIndexSpec extends Specification {
+
+    private static final String COMPANY_ACCOUNT = 'PL27114020040000300201355387'
+
+    private static final String CONTENT_HASH = 'a3f1'
+
+    SeenPaymentRepository seenPayments = Mock()
+
+    SeenStatementRepository seenStatements = Mock()
+
+    PaymentIndex index = new PaymentIndex(seenPayments, seenStatements, true, 1000, 0.01)
+
+    def 'should not query the database for payments never recorded'() {
+        when:
+            boolean seen = index.isSeen(payment(COMPANY_ACCOUNT, 'REF-1'))
+        then:
+            !seen
+            0 * seenPayments._
+    }
+
+    def 'should confirm a recorded payment against the database'() {
+        given:
+            seenStatements.findOne(CONTENT_HASH) >> claimed()
+            index.record(CONTENT_HASH, [batch(payment(COMPANY_ACCOUNT, 'REF-1'))])
+        when:
+            boolean seen = index.isSeen(payment(COMPANY_ACCOUNT, 'REF-1'))
+        then:
+            1 * seenPayments.countByCompanyBankAccountAndBankReference(COMPANY_ACCOUNT, 'REF-1') >> 1
+            seen
+    }
+
+    def 'should not report a payment the database does not hold'() {
+        given:
+            seenStatements.findOne(CONTENT_HASH) >> claimed()
+            index.record(CONTENT_HASH, [batch(payment(COMPANY_ACCOUNT, 'REF-1'))])
+        when:
+            boolean seen = index.isSeen(payment(COMPANY_ACCOUNT, 'REF-1'))
+        then:
+            1 * seenPayments.countByCompanyBankAccountAndBankReference(COMPANY_ACCOUNT, 'REF-1') >> 0
+            !seen
+    }
+
+    def 'should record the indexable payments of every chunk and then the statement as imported'() {
+        given:
+            SeenStatement statement = claimed()
+            List<PaymentBatch> payments = [batch(payment(COMPANY_ACCOUNT, 'REF-1'), payment(null, 'REF-3')),
+                                           batch(payment(COMPANY_ACCOUNT, ' '), payment(COMPANY_ACCOUNT, 'REF-2'))]
+        when:
+            index.record(CONTENT_HASH, payments)
+        then:
+            1 * seenPayments.insertAbsent({ it*.bankReference == ['REF-1', 'REF-2'] && it*.companyBankAccount == [COMPANY_ACCOUNT] * 2 })
+        then:
+            1 * seenStatements.findOne(CONTENT_HASH) >> statement
+            1 * seenStatements.save({ it.is(statement) && it.state == SeenStatement.IMPORTED })
+            0 * seenPayments.save(_)
+            0 * seenPayments.countByCompanyBankAccountAndBankReference(_, _)
+    }
+
+    def 'should record the payments in bounded batches'() {
+        given:
+            seenStatements.findOne(CONTENT_HASH) >> claimed()
+            int count = PaymentIndex.RECORD_BATCH_SIZE * 2 + 1
+            List<PaymentInfo> recorded = (1..count).collect { payment(COMPANY_ACCOUNT, "REF-${it}".toString()) }
+            List<PaymentBatch> payments = recorded.collate(700).collect { batch(*it) }
+        when:
+            index.record(CONTENT_HASH, payments)
+        then:
+            2 * seenPayments.insertAbsent({ it.size() == PaymentIndex.RECORD_BATCH_SIZE })
+        then:
+            1 * seenPayments.insertAbsent({ it*.bankReference == ["REF-${count}".toString()] })
+        when:
+            boolean seen = index.isSeen(payment(COMPANY_ACCOUNT, 'REF-1500'))
+        then:
+            1 * seenPayments.countByCompanyBankAccountAndBankReference(COMPANY_ACCOUNT, 'REF-1500') >> 1
+            seen
+    }
+
+    def 'should claim a statement not claimed before'() {
+        when:
+            boolean claimed = index.claim(CONTENT_HASH, 'export20141031.csv')
+        then:
+            1 * seenStatements.saveAndFlush({
+                it.contentHash == CONTENT_HASH && it.fileName == 'export20141031.csv' && it.state == SeenStatement.IMPORTING && it.isNew()
+            })
+            claimed
+    }
+
+    def 'should not claim a statement imported before or being imported'() {
+        when:
+            boolean claimed = index.claim(CONTENT_HASH, 'export20141031.csv')
+        then:
+            1 * seenStatements.saveAndFlush(_ as SeenStatement) >> { throw new DataIntegrityViolationException('SEEN_STATEMENT primary key') }
+            !claimed
+    }
+
+    def 'should release the claim of a failed import'() {
+        when:
+            index.release(CONTENT_HASH)
+        then:
+            1 * seenStatements.delete(CONTENT_HASH)
+    }
+
+    def 'should drop interrupted claims and load every page of recorded payments into the Bloom filter'() {
+        given:
+            Pageable first = new PageRequest(0, 10000)
+            List<SeenPayment> recorded = (1..3).collect { new SeenPayment(COMPANY_ACCOUNT, "REF-${it}".toString(), new Date()) }
+        when:
+            index.load()
+        then:
+            1 * seenStatements.deleteByState(SeenStatement.IMPORTING) >> 1
+        then:
+            1 * seenPayments.findAll(first) >> new PageImpl<>(recorded.subList(0, 2), first, 10001)
+            1 * seenPayments.findAll(first.next()) >> new PageImpl<>(recorded.subList(2, 3), first.next(), 10001)
+        when:
+            boolean seen = index.isSeen(payment(COMPANY_ACCOUNT, 'REF-3'))
+        then:
+            1 * seenPayments.countByCompanyBankAccountAndBankReference(COMPANY_ACCOUNT, 'REF-3') >> 1
+            seen
+    }
+
+    def 'should neither know nor record anything when disabled'() {
+        given:
+            PaymentIndex disabled = new PaymentIndex(seenPayments, seenStatements, false, 1000, 0.01)
+        when:
+            disabled.load()
+            boolean claimed = disabled.claim(CONTENT_HASH, 'export20141031.csv')
+            disabled.record(CONTENT_HASH, [batch(payment(COMPANY_ACCOUNT, 'REF-1'))])
+            disabled.release(CONTENT_HASH)
+            boolean seen = disabled.isSeen(payment(COMPANY_ACCOUNT, 'REF-1'))
+        then:
+            claimed
+            !seen
+            0 * seenPayments._
+            0 * seenStatements._
+    }
+
+    private static SeenStatement claimed() {
+        return new SeenStatement(CONTENT_HASH, 'export20141031.csv', SeenStatement.IMPORTING, new Date())
+    }
+
+    private static PaymentBatch batch(PaymentInfo... payments) {
+        PaymentBatch.Builder batch = PaymentBatch.builder()
+        payments.each { batch.add(it) }
+        return batch.build()
+    }
+
+    private static PaymentInfo payment(String companyBankAccount, String bankReference) {
+        PaymentInfo payment = new PaymentInfo()
+        payment.companyBankAccount = companyBankAccount
+        payment.bankReference = bankReference
+        return payment
+    }
+}
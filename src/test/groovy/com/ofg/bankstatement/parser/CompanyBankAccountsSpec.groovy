@@ -0,0 +1,161 @@
+package com.ofg.bankstatement.parser
+
+import com.ofg.loans.domain.model.payment.OperationalBank
+import com.ofg.loans.pl.banks.BankFinderPl
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CountDownLatch
+
+class CompanyBankAccountsSpec extends Specification {
+
+    private static final String PKOBP = '102'
+
+    private static final String BRE = '114'
+
+    private static final String ACCOUNT = 'PL27114020040000300201355387'
+
+    private static final String REFRESHED_ACCOUNT = 'PL61109010140000071219812874'
+
+    private static final String BRE_ACCOUNT = 'PL83114020040000330201366112'
+
+    BankFinderPl bankFinder = Mock()
+
+    CompanyBankAccounts accounts = new CompanyBankAccounts(bankFinder, 0)
+
+    def 'should look up the account of a bank once'() {
+        when:
+            List<String> found = (1..3).collect { accounts.getAccountNumber(PKOBP) }
+        then:
+            1 * bankFinder.findBankByIbanCode(PKOBP) >> bank(ACCOUNT)
+            found == [ACCOUNT] * 3
+            accounts.size() == 1
+    }
+
+    def 'should look up a bank without an account again until it has one'() {
+        when:
+            List<String> found = (1..3).collect { accounts.getAccountNumber(PKOBP) }
+        then:
+            3 * bankFinder.findBankByIbanCode(PKOBP) >>> [null, bank(null), bank(ACCOUNT)]
+            found == ['', '', ACCOUNT]
+        when:
+            String cached = accounts.getAccountNumber(PKOBP)
+        then:
+            0 * bankFinder._
+            cached == ACCOUNT
+    }
+
+    def 'should not give up on a bank whose registration failed'() {
+        given:
+            OperationalBank bank = bank(ACCOUNT)
+            int lookups = 0
+        when:
+            accounts.register(PKOBP)
+            String found = accounts.getAccountNumber(PKOBP)
+        then:
+            2 * bankFinder.findBankByIbanCode(PKOBP) >> {
+                if (lookups++ == 0) {
+                    throw new IllegalStateException('database down')
+                }
+                return bank
+            }
+            found == ACCOUNT
+    }
+
+    def 'should swap the refreshed accounts in'() {
+        given:
+            bankFinder.findBankByIbanCode(PKOBP) >> bank(ACCOUNT)
+            accounts.register(PKOBP)
+        when:
+            accounts.refresh()
+            String found = accounts.getAccountNumber(PKOBP)
+        then:
+            1 * bankFinder.findBankByIbanCode(PKOBP) >> bank(REFRESHED_ACCOUNT)
+            found == REFRESHED_ACCOUNT
+            accounts.refreshFailures == 0
+    }
+
+    def 'should keep the previous accounts when a refresh fails'() {
+        given:
+            bankFinder.findBankByIbanCode(PKOBP) >> bank(ACCOUNT)
+            bankFinder.findBankByIbanCode(BRE) >> bank(BRE_ACCOUNT)
+            accounts.register(PKOBP)
+            accounts.register(BRE)
+        when:
+            accounts.refresh()
+            List<String> found = [accounts.getAccountNumber(PKOBP), accounts.getAccountNumber(BRE)]
+        then:
+            _ * bankFinder.findBankByIbanCode(PKOBP) >> bank(REFRESHED_ACCOUNT)
+            1 * bankFinder.findBankByIbanCode(BRE) >> { throw new IllegalStateException('database down') }
+            found == [ACCOUNT, BRE_ACCOUNT]
+            accounts.refreshFailures == 1
+    }
+
+    def 'should drop a bank whose account is gone and look it up again'() {
+        given:
+            bankFinder.findBankByIbanCode(PKOBP) >> bank(ACCOUNT)
+            accounts.register(PKOBP)
+        when:
+            accounts.refresh()
+        then:
+            1 * bankFinder.findBankByIbanCode(PKOBP) >> bank(null)
+            accounts.size() == 0
+        when:
+            String found = accounts.getAccountNumber(PKOBP)
+        then:
+            1 * bankFinder.findBankByIbanCode(PKOBP) >> bank(REFRESHED_ACCOUNT)
+            found == REFRESHED_ACCOUNT
+    }
+
+    @Timeout(5)
+    def 'should answer lookups from the previous accounts while a refresh runs'() {
+        given:
+            OperationalBank bank = bank(ACCOUNT)
+            OperationalBank refreshedBank = bank(REFRESHED_ACCOUNT)
+            OperationalBank breBank = bank(BRE_ACCOUNT)
+            CountDownLatch refreshing = new CountDownLatch(1)
+            CountDownLatch released = new CountDownLatch(1)
+            int lookups = 0
+            BankFinderPl slowBankFinder = Stub(BankFinderPl) {
+                findBankByIbanCode(PKOBP) >> {
+                    if (lookups++ == 0) {
+                        return bank
+                    }
+                    refreshing.countDown()
+                    released.await()
+                    return refreshedBank
+                }
+                findBankByIbanCode(BRE) >> breBank
+            }
+            CompanyBankAccounts slowAccounts = new CompanyBankAccounts(slowBankFinder, 0)
+            slowAccounts.register(PKOBP)
+        when:
+            Thread refresh = Thread.start { slowAccounts.refresh() }
+            refreshing.await()
+            List<String> duringRefresh = [slowAccounts.getAccountNumber(PKOBP), slowAccounts.getAccountNumber(BRE)]
+            released.countDown()
+            refresh.join()
+        then:
+            duringRefresh == [ACCOUNT, BRE_ACCOUNT]
+            slowAccounts.getAccountNumber(PKOBP) == REFRESHED_ACCOUNT
+            slowAccounts.getAccountNumber(BRE) == BRE_ACCOUNT
+            slowAccounts.size() == 2
+    }
+
+    /**
+     * @param accountNumber the first account of the bank, null for a bank without accounts
+     */
+    private OperationalBank bank(String accountNumber) {
+        List<Object> bankAccounts = accountNumber == null ? [] : [bankAccount(accountNumber)]
+        return Stub(OperationalBank) {
+            getBankAccounts() >> bankAccounts
+        }
+    }
+
+    private Object bankAccount(String accountNumber) {
+        Class<?> accountType = OperationalBank.getMethod('getBankAccounts').genericReturnType.actualTypeArguments[0] as Class<?>
+        return Stub(accountType) {
+            getAccountNumber() >> accountNumber
+        }
+    }
+}
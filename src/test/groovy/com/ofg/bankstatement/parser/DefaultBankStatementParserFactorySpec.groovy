@@ -0,0 +1,149 @@
+package com.ofg.bankstatement.parser
+
+import org.springframework.test.util.ReflectionTestUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static com.ofg.bankstatement.parser.StatementParsers.*
+import static com.ofg.loans.pl.db.MiniCreditProductBankAccountsFixture.POCZTOWY_ACCOUNT
+
+class DefaultBankStatementParserFactorySpec extends Specification {
+
+    private static final String UNKNOWN_FILE_NAME = 'upload.tmp'
+
+    private static final String ACCOUNT = '61109010140000071219812874'
+
+    private static final String PKOBP_HEADER = '"Data operacji","Data waluty","Typ transakcji","Opis transakcji","Dane kontrahenta","Tytu\u0142","Kwota"'
+
+    private static final String PKOBP_ROW = '"2014-10-31","2014-10-31","Wp\u0142yw na rachunek","Nr rach. przeciwst.: 1","","TYTUL","+48.20"'
+
+    private static final List<String> MT940_TRANSACTION = [':61:1410311031CN48,20NTRFNONREF', ':86:051', '<00PRZELEW KRAJOWY',
+                                                           '<20TYTUL', '<38PL27114020040000300201355387']
+
+    @Unroll
+    def 'should detect #expectedParser from a #format statement head'() {
+        given:
+            DefaultBankStatementParserFactory factory = factory(registered())
+        when:
+            DetectedStatement detected = factory.detectParser(UNKNOWN_FILE_NAME, new ByteArrayInputStream(head.getBytes('ISO-8859-2')))
+        then:
+            detected.parser.getClass().name == expectedParser
+        where:
+            format      | head                                                                           || expectedParser
+            'Pekao'     | lines('"ul. Prosta 1";"2014-10-31";"2014-10-31";"48,20";"PLN";"Jan Kowalski"') || PEKAO
+            'PKO BP'    | lines(PKOBP_HEADER, PKOBP_ROW)                                                || PKOBP
+            'BRE'       | lines("0001 | 2014.10.31 | ${ACCOUNT} | 48,20 | PLN | JAN KOWALSKI | TYTUL")    || BRE
+            'Getin day' | lines('<?xml version="1.0" encoding="ISO-8859-2"?>', '<OPERACJE num="1">')    || GETIN_DAY
+            'Getin'     | lines('<?xml version="1.0" encoding="ISO-8859-2"?>', '<WYCIAGI data_od="2014-10-01">') || GETIN_MONTH
+            'ING'       | lines(':20:MT942', ":25:/PL${ACCOUNT}", ':28C:1', ':13:1410310000', ':86:051~00TRF', '~20TYTUL') || ING
+            'Alior'     | lines([':20:ST141031', ":25:/PL${ACCOUNT}", ':28C:00001', ':13D:1410310000+0100'] + MT940_TRANSACTION) || ALIOR
+            'Millenium' | lines([':20:ST141031', ":25:/PL${ACCOUNT}", ':28C:00001', ':60F:C141001PLN0,00'] + MT940_TRANSACTION) || MILLENIUM
+            'Kredyt'    | lines(':20:ST141031', ":25:/PL${ACCOUNT}", ':28C:00001', ':60F:C141001PLN0,00', ':86:>20TYTUL', '>31PL27') || KREDYT
+            'Pocztowy'  | lines([':20:MT940', ":25:${POCZTOWY_ACCOUNT.substring(2)}", ':28C:00001', ':60F:C141001PLN0,00'] + MT940_TRANSACTION) || MT940_DELEGATING
+    }
+
+    @Unroll
+    def 'should not detect a statement whose best score is #scores'() {
+        given:
+            DefaultBankStatementParserFactory factory = factory(scores.collect { scoring(it) })
+        when:
+            factory.detectParser(UNKNOWN_FILE_NAME, new ByteArrayInputStream('head'.bytes))
+        then:
+            thrown(RuntimeException)
+        where:
+            scores << [[], [0], [49], [49, 30], [70, 70], [30, 60, 60], [60, 60, 0]]
+    }
+
+    @Unroll
+    def 'should detect the parser with a unique top score among #scores'() {
+        given:
+            List<BankStatementParser> parsers = scores.collect { scoring(it) }
+            DefaultBankStatementParserFactory factory = factory(parsers)
+        when:
+            DetectedStatement detected = factory.detectParser(UNKNOWN_FILE_NAME, new ByteArrayInputStream('head'.bytes))
+        then:
+            detected.parser.is(parsers[expectedIndex])
+        where:
+            scores           || expectedIndex
+            [50]             || 0
+            [49, 50]         || 1
+            [90, 70, 70]     || 0
+            [70, 70, 80]     || 2
+            [60, 100, 0, 60] || 1
+    }
+
+    @Unroll
+    def 'should replay the inspected head of a #length bytes statement'() {
+        given:
+            byte[] bytes = statement(length)
+            DefaultBankStatementParserFactory factory = factory([scoring(70)])
+        when:
+            DetectedStatement detected = factory.detectParser(UNKNOWN_FILE_NAME, stream(bytes, markSupported))
+        then:
+            detected.statement.bytes == bytes
+        where:
+            length          | markSupported
+            0               | true
+            100             | true
+            8 * 1024        | false
+            8 * 1024 + 1    | false
+            100 * 1024      | true
+            100 * 1024      | false
+    }
+
+    def 'should pass the statement stream of a parser matched by file name without reading it'() {
+        given:
+            BankStatementParser bre = instantiate(BRE)
+            DefaultBankStatementParserFactory factory = factory([bre, scoring(100)])
+            InputStream is = new ByteArrayInputStream(lines('<WYCIAGI>').bytes)
+        when:
+            DetectedStatement detected = factory.detectParser('historia_20141031.dat', is)
+        then:
+            detected.parser.is(bre)
+            detected.statement.is(is)
+            is.available() == lines('<WYCIAGI>').bytes.length
+    }
+
+    def 'should not inspect the content when content detection is disabled'() {
+        given:
+            DefaultBankStatementParserFactory factory = factory([scoring(100)])
+            ReflectionTestUtils.setField(factory, 'contentDetection', false)
+        when:
+            factory.detectParser(UNKNOWN_FILE_NAME, new ByteArrayInputStream('head'.bytes))
+        then:
+            thrown(RuntimeException)
+    }
+
+    private DefaultBankStatementParserFactory factory(List<BankStatementParser> parsers) {
+        DefaultBankStatementParserFactory factory = new DefaultBankStatementParserFactory()
+        parsers.each { factory.addBankStatementParser(it) }
+        return factory
+    }
+
+    private BankStatementParser scoring(int score) {
+        return Stub(BankStatementParser) {
+            scoreContent(_) >> score
+        }
+    }
+
+    private static String lines(Object... lines) {
+        return lines.flatten().join('\r\n') + '\r\n'
+    }
+
+    private static byte[] statement(int length) {
+        byte[] bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+        return bytes
+    }
+
+    private static InputStream stream(byte[] bytes, boolean markSupported) {
+        InputStream is = new ByteArrayInputStream(bytes)
+        return markSupported ? is : new FilterInputStream(is) {
+            @Override
+            boolean markSupported() {
+                return false
+            }
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.ofg.bankstatement.parser
+
+import org.apache.commons.lang.StringUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static com.ofg.bankstatement.parser.StatementParsers.*
+
+class FileNameRoutingIndexSpec extends Specification {
+
+    @Unroll
+    def 'should route #fileName to #expectedParser'() {
+        given:
+            FileNameRoutingIndex index = new FileNameRoutingIndex()
+            registered().each { index.register(it) }
+        expect:
+            index.find(fileName)?.getClass()?.name == expectedParser
+        where:
+            fileName                                || expectedParser
+            'export20141031.csv'                    || PEKAO
+            'EXPORT20141031.CSV'                    || PEKAO
+            'export20.csv'                          || PEKAO
+            'export20141031.sta'                    || ALIOR
+            'historia_120202010908_20141031.csv'    || PKOBP
+            'historia_160202354090_20141031.csv'    || PKOBP
+            'historia_20141031.dat'                 || BRE
+            'Historia_transakcji_20141031.sta'      || MILLENIUM
+            'MT942_M_20141031.txt'                  || ING
+            'mt940_20141031.txt'                    || MT940_DELEGATING
+            'statement_20141031.xml'                || GETIN_MONTH
+            'wyciagi_20141031.xml'                  || GETIN_MONTH
+            'wyciagi_biezace_20141031.xml'          || GETIN_DAY
+            'wyciagi__biezace_20141031.xml'         || GETIN_DAY
+            'historia_20141031.csv'                 || null
+            'export2014.csv'                        || null
+            'export20141031.csv.gz'                 || null
+            'export20141031'                        || null
+            'x_export20141031.csv'                  || null
+            ''                                      || null
+            null                                    || null
+    }
+
+    @Unroll
+    def 'should route #fileName to Kredyt as the case-sensitive isApplicableFor did'() {
+        given:
+            BankStatementParser kredyt = instantiate(KREDYT)
+            FileNameRoutingIndex index = new FileNameRoutingIndex()
+            registered().each { index.register(it) }
+            String accountSuffix = kredyt.fileNamePatterns.first().prefix
+            String name = fileName.replace('ACCOUNT', accountSuffix)
+        expect:
+            (index.find(name)?.getClass()?.name == KREDYT) == legacyIsApplicableFor(accountSuffix, name)
+        where:
+            fileName << ['ACCOUNT.MT', 'ACCOUNTPLN-20141031.MT', 'ACCOUNTPLN-20141031.mt', 'ACCOUNTPLN-20141031.Mt',
+                         'ACCOUNTPLN-20141031.MT.bak', 'ACCOUNTPLN-20141031.txt', 'xACCOUNTPLN-20141031.MT', 'ACCOUNT',
+                         '.MT', 'PLN-20141031.MT']
+    }
+
+    def 'should reject patterns of two parsers matching the same file names'() {
+        given:
+            FileNameRoutingIndex index = new FileNameRoutingIndex()
+            index.register(parser(FileNamePattern.ignoringCase('export20', '.csv')))
+        when:
+            index.register(parser(FileNamePattern.caseSensitive('EXPORT2014', '.CSV')))
+        then:
+            IllegalStateException e = thrown()
+            e.message.contains('overlaps pattern [export20*.csv (ignoring case)]')
+    }
+
+    def 'should accept overlapping patterns of one parser and prefixes of other extensions'() {
+        given:
+            FileNameRoutingIndex index = new FileNameRoutingIndex()
+            BankStatementParser csv = parser(FileNamePattern.ignoringCase('export', '.csv'), FileNamePattern.ignoringCase('export20', '.csv'))
+            BankStatementParser sta = parser(FileNamePattern.ignoringCase('export20', '.sta'))
+        when:
+            index.register(csv)
+            index.register(sta)
+        then:
+            index.size() == 3
+            index.find('export2014.csv').is(csv)
+            index.find('export20.sta').is(sta)
+            index.find('export.sta') == null
+    }
+
+    def 'should match case-sensitive patterns only in their case'() {
+        given:
+            FileNameRoutingIndex index = new FileNameRoutingIndex()
+            BankStatementParser upper = parser(FileNamePattern.caseSensitive('ABC', '.MT'))
+        when:
+            index.register(upper)
+        then:
+            index.find('ABC1.MT').is(upper)
+            index.find('abc1.MT') == null
+            index.find('ABC1.mt') == null
+            index.find('AB.MT') == null
+    }
+
+    private BankStatementParser parser(FileNamePattern... patterns) {
+        return Stub(BankStatementParser) {
+            getFileNamePatterns() >> (patterns as List<FileNamePattern>)
+        }
+    }
+
+    private static boolean legacyIsApplicableFor(String accountNumberSuffix, String fileName) {
+        return StringUtils.startsWith(fileName, accountNumberSuffix) && StringUtils.endsWith(fileName, '.MT')
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.ofg.bankstatement.parser
+
+import com.ofg.loans.api.beans.AddressInfo
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import com.ofg.loans.api.beans.payment.PaymentType
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.function.Consumer
+
+class PaymentBatchSpec extends Specification {
+
+    private static final Date BOOKING_DAY = Date.parse('yyyy-MM-dd', '2014-10-31')
+
+    private static final BigInteger OVER_63_BITS = BigInteger.ONE.shiftLeft(63)
+
+    @Unroll
+    def 'should give back the #kind payment it was built from'() {
+        given:
+            List<PaymentInfo> payments = [payment(0), irregular, payment(2)]
+        when:
+            PaymentBatch batch = build(payments)
+        then:
+            (0..<batch.size()).collect { fields(batch.get(it)) } == payments.collect { fields(it) }
+            batch.asList().collect { fields(it) } == payments.collect { fields(it) }
+            readAll(batch).collect { fields(it) } == payments.collect { fields(it) }
+            serialized(batch).asList().collect { fields(it) } == payments.collect { fields(it) }
+        where:
+            kind                       | irregular
+            'regular'                  | payment(1)
+            'null amount'              | payment(1, [amount: null])
+            'whole amount'             | payment(1, [amount: new BigDecimal('48')])
+            'amount of scale 3'        | payment(1, [amount: new BigDecimal('48.205')])
+            'amount of scale 1'        | payment(1, [amount: new BigDecimal('-48.2')])
+            'amount over 63 bits'      | payment(1, [amount: new BigDecimal(OVER_63_BITS, 2)])
+            'negative over 63 bits'    | payment(1, [amount: new BigDecimal(OVER_63_BITS.negate(), 2)])
+            'amount of 63 bits'        | payment(1, [amount: new BigDecimal(BigInteger.valueOf(Long.MAX_VALUE), 2)])
+            'null booking date'        | payment(1, [bookingDate: null])
+            'time of day booking date' | payment(1, [bookingDate: new Date(BOOKING_DAY.time + 13 * 3600 * 1000 + 1)])
+            'far booking date'         | payment(1, [bookingDate: new Date(Long.MAX_VALUE)])
+            'pre-epoch booking date'   | payment(1, [bookingDate: Date.parse('yyyy-MM-dd', '1900-01-01')])
+            'null type'                | payment(1, [type: null])
+            'null address'             | payment(1, [accountHolderAddress: null])
+            'empty address'            | payment(1, [accountHolderAddress: new AddressInfo()])
+            'null strings'             | payment(1, [accountNumber: null, companyBankAccount: null, unit: null, bankOperationType: null,
+                                                       bankOperationName: null, accountHolderName: null, details: null, bankReference: null])
+    }
+
+    def 'should answer cents and epoch days only from the columns'() {
+        given:
+            PaymentBatch batch = build([payment(0), payment(1, [amount: new BigDecimal('48.205'), bookingDate: null]),
+                                        payment(2, [amount: null, bookingDate: new Date(BOOKING_DAY.time + 1)])])
+        expect:
+            (0..2).collect { batch.getAmountInCents(it) } == [1050L, Long.MIN_VALUE, Long.MIN_VALUE]
+            (0..2).collect { batch.getBookingEpochDay(it) } == [epochDay(BOOKING_DAY), Integer.MIN_VALUE, epochDay(BOOKING_DAY)]
+    }
+
+    def 'should create a new payment on every read'() {
+        given:
+            PaymentBatch batch = build([payment(0)])
+            List<Object> added = fields(payment(0))
+        when:
+            PaymentInfo first = batch.get(0)
+            first.amount = BigDecimal.ZERO
+            first.bookingDate.time = 0
+            first.accountHolderAddress.location6 = 'changed'
+            PaymentInfo second = batch.asList().get(0)
+        then:
+            !first.is(second)
+            fields(second) == added
+            fields(batch.get(0)) == added
+    }
+
+    def 'should not be changed by the payments it was built from or its builder'() {
+        given:
+            PaymentInfo source = payment(0)
+            PaymentBatch.Builder builder = PaymentBatch.builder().add(source)
+            PaymentBatch batch = builder.build()
+        when:
+            source.details = 'changed'
+            source.bookingDate.time = 0
+            builder.add(payment(1))
+        then:
+            batch.size() == 1
+            fields(batch.get(0)) == fields(payment(0))
+    }
+
+    def 'should keep every payment of a batch larger than the initial capacity'() {
+        given:
+            List<PaymentInfo> payments = (0..<1000).collect { payment(it) }
+        when:
+            PaymentBatch batch = build(payments)
+        then:
+            batch.size() == 1000
+            batch.asList().collect { fields(it) } == payments.collect { fields(it) }
+    }
+
+    def 'should reject indexes outside the batch'() {
+        given:
+            PaymentBatch batch = build([payment(0)])
+        when:
+            batch.asList().get(1)
+        then:
+            thrown(IndexOutOfBoundsException)
+        when:
+            batch.get(-1)
+        then:
+            thrown(IndexOutOfBoundsException)
+    }
+
+    private static PaymentBatch build(List<PaymentInfo> payments) {
+        PaymentBatch.Builder builder = PaymentBatch.builder()
+        payments.each { builder.add(it) }
+        return builder.build()
+    }
+
+    private static List<PaymentInfo> readAll(PaymentBatch batch) {
+        List<PaymentInfo> payments = []
+        batch.forEach({ payments << it } as Consumer<PaymentInfo>)
+        return payments
+    }
+
+    private static PaymentBatch serialized(PaymentBatch batch) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        new ObjectOutputStream(bytes).withStream { it.writeObject(batch) }
+        return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject() as PaymentBatch
+    }
+
+    private static int epochDay(Date date) {
+        return date.toInstant().atZone(TimeZone.default.toZoneId()).toLocalDate().toEpochDay() as int
+    }
+
+    private static PaymentInfo payment(int index, Map<String, Object> changes = [:]) {
+        PaymentInfo payment = new PaymentInfo()
+        payment.amount = new BigDecimal("${index + 1}0.50")
+        payment.bookingDate = BOOKING_DAY + index
+        payment.type = index % 2 == 0 ? PaymentType.INCOMING : PaymentType.OUTGOING
+        payment.accountNumber = 'PL61109010140000071219812874'
+        payment.companyBankAccount = 'PL27114020040000300201355387'
+        payment.unit = 'PLN'
+        payment.bankOperationType = '051'
+        payment.bankOperationName = 'PRZELEW KRAJOWY'
+        payment.accountHolderName = "Jan Kowalski ${index}".toString()
+        payment.accountHolderAddress = new AddressInfo(location6: 'ul. Prosta 1, Warszawa')
+        payment.details = "Splata pozyczki ${index}".toString()
+        payment.bankReference = "REF-${index}".toString()
+        changes.each { String field, Object value -> payment[field] = value }
+        return payment
+    }
+
+    /**
+     * @return the fields a batch keeps, the amount with its scale, which {@code ==} of BigDecimals ignores
+     */
+    private static List<Object> fields(PaymentInfo payment) {
+        return [payment.amount?.toPlainString(), payment.amount?.scale(), payment.bookingDate?.time, payment.type, payment.accountNumber,
+                payment.companyBankAccount, payment.unit, payment.bankOperationType, payment.bankOperationName, payment.accountHolderName,
+                payment.accountHolderAddress == null, payment.accountHolderAddress?.location6, payment.details, payment.bankReference]
+    }
+}
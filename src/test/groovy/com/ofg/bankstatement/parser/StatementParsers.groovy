@@ -0,0 +1,40 @@
+package com.ofg.bankstatement.parser
+
+import org.springframework.test.util.ReflectionTestUtils
+
+import java.lang.reflect.Constructor
+
+/**
+ * Parsers as the application registers them, created reflectively since most of them are package-private beans.
+ */
+class StatementParsers {
+
+    static final String PEKAO = 'com.ofg.bankstatement.parser.pekao.PekaoSaBankStatementParser'
+    static final String PKOBP = 'com.ofg.bankstatement.parser.pkobp.PkobpCsvBankStatementParser'
+    static final String BRE = 'com.ofg.bankstatement.parser.bre.BreBankStatementParser'
+    static final String GETIN_MONTH = 'com.ofg.bankstatement.parser.getin.GetinBankMonthStatementParser'
+    static final String GETIN_DAY = 'com.ofg.bankstatement.parser.getin.GetinBankDayStatementParser'
+    static final String ING = 'com.ofg.bankstatement.parser.mt940.ing.IngBankStatementParser'
+    static final String ALIOR = 'com.ofg.bankstatement.parser.mt940.alior.AliorBankStatementParser'
+    static final String MILLENIUM = 'com.ofg.bankstatement.parser.mt940.millenium.MilleniumBankStatementParser'
+    static final String KREDYT = 'com.ofg.bankstatement.parser.mt940.kredyt.KredytBankStatementParser'
+    static final String MT940_DELEGATING = 'com.ofg.bankstatement.parser.mt940.Mt940DelegatingBankStatementParser'
+    static final String POCZTOWY = 'com.ofg.bankstatement.parser.mt940.pocztowy.PocztowyBankStatementParser'
+
+    static final List<String> REGISTERED = [PEKAO, PKOBP, BRE, GETIN_MONTH, GETIN_DAY, ING, ALIOR, MILLENIUM, KREDYT, MT940_DELEGATING]
+
+    static List<BankStatementParser> registered() {
+        return REGISTERED.collect { instantiate(it) }
+    }
+
+    static BankStatementParser instantiate(String className) {
+        Constructor<?> constructor = Class.forName(className).getDeclaredConstructor()
+        constructor.accessible = true
+        BankStatementParser parser = constructor.newInstance() as BankStatementParser
+        if (className == MT940_DELEGATING) {
+            (ReflectionTestUtils.getField(parser, 'delegates') as Collection<BankStatementParser>).add(instantiate(POCZTOWY))
+        }
+        return parser
+    }
+
+}
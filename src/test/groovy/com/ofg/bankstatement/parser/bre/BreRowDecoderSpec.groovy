@@ -0,0 +1,177 @@
+package com.ofg.bankstatement.parser.bre
+
+import com.google.common.base.Splitter
+import com.ofg.bankstatement.util.BanksUtils
+import com.ofg.loans.api.beans.AddressInfo
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import com.ofg.loans.api.beans.payment.PaymentType
+import org.apache.commons.lang.StringUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.text.ParseException
+import java.text.SimpleDateFormat
+
+class BreRowDecoderSpec extends Specification {
+
+    private static final String HEAD = '0001 | 31/10/14 | 27114020040000300201355387 | 48,20 | PLN | '
+
+    private static final String TNR = 'TNR: 141031123456789012345678'
+
+    private static final long SEED = 22
+
+    @Unroll
+    def 'should decode the BRE row [#row] as before'() {
+        expect:
+            decoded { BreRowDecoder.forCurrentThread().decode(row) } == decoded { legacy(row) }
+        where:
+            row << [
+                    HEAD + "PRZELEW PRZYCHODZ\u0104CY z rach.: 61109010140000071219812874; od: JAN KOWALSKI UL. PROSTA 1; tyt.: SPLATA 123; ${TNR};",
+                    '0002 | 31/10/14 | 27114020040000300201355387 | -48,20 | PLN | ' +
+                            "PRZELEW WYCHODZ\u0104CY na rach.: 61109010140000071219812874; dla: JAN KOWALSKI; tyt.: ZWROT; ${TNR};",
+                    HEAD + "z rach.: 61109010140000071219812874; od: JAN KOWALSKI; tyt.: SPLATA; ${TNR};",
+                    HEAD + "PRZELEW z rach.: 61109010140000071219812874; na rach.: 27114020040000300201355387; od: JAN; dla: FIRMA; ${TNR};",
+                    HEAD + "na rach.: 27114020040000300201355387; PRZELEW z rach.: 61109010140000071219812874; od: JAN; ${TNR};",
+                    HEAD + "z rach.: 61109010140000071219812874; PRZELEW na rach.: 27114020040000300201355387; od: JAN; ${TNR};",
+                    HEAD + "tyt.: SPLATA; PRZELEW z rach.: 61109010140000071219812874; od: JAN; ${TNR};",
+                    HEAD + "od: JAN KOWALSKI; PRZELEW z rach.: 61109010140000071219812874; dla: FIRMA; ${TNR};",
+                    HEAD + "od: JAN KOWALSKI; PRZELEW z rach.: 61109010140000071219812874; tyt.: SPLATA; ${TNR};",
+                    HEAD + "OPLATA ZA PRZELEW; ${TNR};",
+                    HEAD + "${TNR}; PRZELEW z rach.: 61109010140000071219812874; od: JAN;"
+            ]*.toString()
+    }
+
+    @Unroll
+    def 'should read the reference from the fifth character of [#description] without TNR as before'() {
+        given:
+            String row = HEAD + description
+        expect:
+            decoded { BreRowDecoder.forCurrentThread().decode(row) } == decoded { legacy(row) }
+            BreRowDecoder.forCurrentThread().decode(row).bankReference == description.substring(4, 26)
+        where:
+            description << ['OPLATA ZA PROWADZENIE RACHUNKU 10/2014', 'PRZELEW z rach.: 61109010140000071219812874; od: JAN KOWALSKI;']
+    }
+
+    @Unroll
+    def 'should fail on the BRE row [#row] as before'() {
+        expect:
+            decoded { BreRowDecoder.forCurrentThread().decode(row) } == IndexOutOfBoundsException
+            decoded { legacy(row) } == IndexOutOfBoundsException
+        where:
+            row << [
+                    HEAD + 'OPLATA',
+                    HEAD + "PRZELEW z rach.: 61109010140000071219812874 ${TNR}",
+                    HEAD + "PRZELEW na rach.: 61109010140000071219812874 ${TNR}",
+                    HEAD + "PRZELEW z rach.: 61109010140000071219812874; tyt.: SPLATA ${TNR}",
+                    HEAD + "PRZELEW z rach.: 61109010140000071219812874; od: JAN KOWALSKI ${TNR}",
+                    HEAD + 'PRZELEW z rach.: 61109010140000071219812874; TNR: 1410311234',
+                    '0001 | 31/10/14 | 27114020040000300201355387 | 48,20 | PLN',
+                    ''
+            ]*.toString()
+    }
+
+    @Unroll
+    def 'should trim the control characters and spaces around [#cell] as before'() {
+        given:
+            String row = "0001 |${cell}| ${cell}27114020040000300201355387${cell} |${cell}48,20${cell}|${cell}PLN${cell}|${cell}" +
+                    "PRZELEW z rach.: 61109010140000071219812874; od: JAN; tyt.: SPLATA; ${TNR};${cell}"
+        expect:
+            decoded { BreRowDecoder.forCurrentThread().decode(row) } == decoded { legacy(row) }
+        where:
+            cell << ['', ' ', '\t', '\u0000', '\u0001\u001F ', '  ', '\u00A0', '\u2003']
+    }
+
+    def 'should decode random BRE rows as before'() {
+        given:
+            Random random = new Random(SEED)
+            List<String> fragments = ['TNR: ', 'z rach.: ', 'na rach.: ', 'tyt.: ', 'od: ', 'dla: ', ';', '; ', ' ', '\t', 'JAN', 'KOWALSKI',
+                                      '61109010140000071219812874', '141031123456789012345678', '|', 'T', 'z', 'tyt.:', 'od:']
+            List<String> dates = ['31/10/14', '1/1/14', '31/10/2014', 'xx', '']
+            List<String> companyAccounts = ['27114020040000300201355387', '1', '', ' \u0001X']
+            List<String> amounts = ['48,20', '-48,20', '+48.20', '-', '1 234,50', '\u000148,20\t']
+        expect:
+            (1..100000).every {
+                StringBuilder description = new StringBuilder()
+                random.nextInt(14).times { description.append(fragments[random.nextInt(fragments.size())]) }
+                String row = "0001 |${pick(random, dates)}| ${pick(random, companyAccounts)} |${pick(random, amounts)}| PLN |${description}"
+                decoded { BreRowDecoder.forCurrentThread().decode(row) } == decoded { legacy(row) }
+            }
+    }
+
+    private static String pick(Random random, List<String> values) {
+        return values[random.nextInt(values.size())]
+    }
+
+    /**
+     * @return the payment fields, the amount with its scale, or the exception decoding threw
+     */
+    private static def decoded(Closure<PaymentInfo> decoding) {
+        try {
+            PaymentInfo payment = decoding()
+            return [payment.accountNumber, payment.details, payment.accountHolderName, payment.accountHolderAddress?.location6,
+                    payment.companyBankAccount, payment.amount?.toPlainString(), payment.amount?.scale(), payment.unit,
+                    payment.bookingDate?.time, payment.bankReference, payment.type]
+        } catch (IndexOutOfBoundsException e) {
+            return IndexOutOfBoundsException
+        } catch (NumberFormatException e) {
+            return NumberFormatException
+        }
+    }
+
+    /**
+     * BreBankStatementParser decoding a row before BreRowDecoder.
+     */
+    private static PaymentInfo legacy(String row) {
+        List<String> cells = StringUtils.isBlank(row) ? [] : Splitter.on('|').split(row).collect { StringUtils.trim(it) }
+        String description = cells.get(5)
+
+        PaymentInfo payment = new PaymentInfo()
+        payment.accountNumber = legacyAccountNumber(description)
+        payment.details = legacyDetails(description)
+
+        String accountHolderData = legacyAccountHolderData(description)
+        String accountHolderName = BanksUtils.parsePersonNameFromDetails(accountHolderData)
+        payment.accountHolderAddress = new AddressInfo(location6: StringUtils.removeStart(accountHolderData, accountHolderName).trim())
+        payment.accountHolderName = accountHolderName
+
+        payment.companyBankAccount = cells.get(2).length() > 1 ? 'PL' + cells.get(2) : ''
+        String amount = cells.get(3)
+        payment.amount = new BigDecimal((amount.startsWith('-') ? amount.substring(1) : amount).replace(',', '.'))
+        payment.unit = cells.get(4)
+        payment.bookingDate = legacyBookingDate(cells.get(1))
+
+        int bankReferenceStart = StringUtils.indexOf(description, 'TNR: ') + 'TNR: '.length()
+        payment.bankReference = description.substring(bankReferenceStart, bankReferenceStart + 22)
+        payment.type = amount.startsWith('-') ? PaymentType.OUTGOING : PaymentType.INCOMING
+        return payment
+    }
+
+    private static String legacyAccountNumber(String line) {
+        int startIndex = !line.contains('z rach.: ') ? line.indexOf('na rach.: ') + 'na rach.: '.length() : line.indexOf('z rach.: ') + 'z rach.: '.length()
+        return line.indexOf('z rach.: ') > 0 || line.indexOf('na rach.: ') > 0 ? 'PL' + line.substring(startIndex, line.indexOf(';', startIndex)) : null
+    }
+
+    private static String legacyDetails(String line) {
+        if (legacyAccountNumber(line) != null) {
+            int startIndex = line.indexOf('tyt.: ') + 'tyt.: '.length()
+            return line.indexOf('tyt.: ') > 0 ? line.substring(startIndex, line.indexOf(';', startIndex)) : ''
+        }
+        return ''
+    }
+
+    private static String legacyAccountHolderData(String line) {
+        if (legacyAccountNumber(line) != null) {
+            int startIndex = !line.contains('od: ') ? line.indexOf('dla: ') + 'dla: '.length() : line.indexOf('od: ') + 'od: '.length()
+            return line.indexOf('od: ') > 0 || line.indexOf('dla: ') > 0 ? line.substring(startIndex, line.indexOf(';', startIndex)) : ''
+        }
+        return ''
+    }
+
+    private static Date legacyBookingDate(String unformattedDate) {
+        try {
+            return new SimpleDateFormat('dd/MM/yy').parse(unformattedDate)
+        } catch (ParseException e) {
+            return null
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.ofg.bankstatement.parser.getin
+
+import com.ofg.bankstatement.infrastruture.jaxb.JaxbUnmarshaller
+import com.ofg.bankstatement.parser.CompanyBankAccounts
+import com.ofg.bankstatement.parser.getin.statement.day.generated.Operacje
+import com.ofg.bankstatement.parser.getin.statement.month.generated.Wychagi
+import com.ofg.bankstatement.util.BanksUtils
+import com.ofg.loans.api.beans.AddressInfo
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import com.ofg.loans.api.beans.payment.PaymentType
+import com.ofg.loans.pl.banks.ImmediateIdentificationPaymentInfoModifier
+import com.ofg.loans.pl.db.MiniCreditProductBankAccountsFixture
+import org.apache.commons.lang.StringUtils
+import org.springframework.test.util.ReflectionTestUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.xml.datatype.XMLGregorianCalendar
+
+import static com.ofg.bankstatement.parser.StatementParsers.GETIN_DAY
+import static com.ofg.bankstatement.parser.StatementParsers.GETIN_MONTH
+import static com.ofg.bankstatement.parser.StatementParsers.instantiate
+
+/**
+ * The Getin statements are streamed operation by operation, they have to give the same payments as the whole document
+ * unmarshalled at once used to.
+ */
+class GetinStatementStreamingSpec extends Specification {
+
+    private static final String ENCODING = 'ISO-8859-2'
+
+    private static final String STATEMENT_ACCOUNT = '27114020040000300201355387'
+
+    private static final String DAY_ACCOUNT = 'PL83114020040000330201366112'
+
+    private static final String PAYER_ACCOUNT = '61109010140000071219812874'
+
+    private static final List<String> PAYER_NAMES = ['PAWE\u0141 GRZ\u0118DA', '\u017BANETA \u015AWI\u0104TEK', 'JAN KOWALSKI']
+
+    private static final List<String> PAYER_ADDRESSES = ['UL. \u017B\u00D3\u0141KIEWSKIEGO 5', 'UL. D\u0141UGA 1', 'UL. PROSTA 1']
+
+    private static final List<String> TITLES = ['SP\u0141ATA PO\u017BYCZKI NR 1', 'RATA ZA UMOW\u0118 2', 'ZWROT NADP\u0141ATY 3']
+
+    private static final ImmediateIdentificationPaymentInfoModifier paymentInfoModifier = new ImmediateIdentificationPaymentInfoModifier()
+
+    GetinBankMonthStatementParser monthParser = instantiate(GETIN_MONTH) as GetinBankMonthStatementParser
+
+    GetinBankDayStatementParser dayParser = instantiate(GETIN_DAY) as GetinBankDayStatementParser
+
+    def setup() {
+        ReflectionTestUtils.setField(dayParser, 'companyBankAccounts', Stub(CompanyBankAccounts) {
+            getAccountNumber(MiniCreditProductBankAccountsFixture.GETIN_IBAN_BANK_CODE) >> DAY_ACCOUNT
+        })
+    }
+
+    @Unroll
+    def 'should stream the month statement as ISO-8859-2 whatever its declaration [#declaredEncoding] says, as it was unmarshalled'() {
+        given:
+            byte[] statement = monthStatement(declaredEncoding, 3)
+        when:
+            List<List<Object>> streamed = monthParser.importBankStatement(new ByteArrayInputStream(statement)).collect { fields(it) }
+        then:
+            streamed == legacyMonth(statement).collect { fields(it) }
+            streamed*.get(4) == ["PL${STATEMENT_ACCOUNT}".toString()] * 3
+            streamed*.get(5) == ['PLN'] * 3
+            streamed*.get(6) == TITLES.collect { "${it} CZ\u0118\u015A\u0106 2".toString() }
+            streamed*.get(7) == PAYER_NAMES
+        where:
+            declaredEncoding << ['UTF-8', ENCODING, null]
+    }
+
+    @Unroll
+    def 'should stream the day statement as ISO-8859-2 whatever its declaration [#declaredEncoding] says, as it was unmarshalled'() {
+        given:
+            byte[] statement = dayStatement(declaredEncoding, 3)
+        when:
+            List<List<Object>> streamed = dayParser.importBankStatement(new ByteArrayInputStream(statement)).collect { fields(it) }
+        then:
+            streamed == legacyDay(statement).collect { fields(it) }
+            streamed*.get(4) == [DAY_ACCOUNT] * 3
+            streamed*.get(5) == ['PLN', 'EUR', 'PLN']
+            streamed*.get(7) == PAYER_NAMES
+        where:
+            declaredEncoding << ['UTF-8', ENCODING, null]
+    }
+
+    def 'should stream month statements without operations as they were unmarshalled'() {
+        expect:
+            monthParser.importBankStatement(new ByteArrayInputStream(statement)).isEmpty()
+            legacyMonth(statement).isEmpty()
+        where:
+            statement << [monthStatement('UTF-8', 0),
+                          "<?xml version=\"1.0\" encoding=\"UTF-8\"?><WYCIAGI rachunek=\"${STATEMENT_ACCOUNT}\" waluta=\"PLN\"/>".toString().getBytes(ENCODING)]
+    }
+
+    def 'should stream a day statement without operations as it was unmarshalled'() {
+        given:
+            byte[] statement = dayStatement('UTF-8', 0)
+        expect:
+            dayParser.importBankStatement(new ByteArrayInputStream(statement)).isEmpty()
+            legacyDay(statement).isEmpty()
+    }
+
+    /**
+     * @return statement whose {@code WYCIAG} element and operations name another account and currency than the root
+     */
+    private static byte[] monthStatement(String declaredEncoding, int operations) {
+        StringBuilder xml = new StringBuilder(declaration(declaredEncoding))
+        xml << "<WYCIAGI data_od=\"2014-10-01\" data_do=\"2014-10-31\" rachunek=\"${STATEMENT_ACCOUNT}\" opis=\"WYCI\u0104G\" waluta=\"PLN\""
+        xml << ' nazwa="FIRMA">'
+        xml << "<WYCIAG rachunek=\"${PAYER_ACCOUNT}\" waluta=\"EUR\">"
+        xml << '<SALDO_OTWARCIA><KWOTA>1000.00</KWOTA><STRONA>C</STRONA></SALDO_OTWARCIA>'
+        (0..<operations).each { int index ->
+            xml << "<OPERACJA><POZYCJA>${index + 1}</POZYCJA><DATA_WALUTY>2014-10-${20 + index}</DATA_WALUTY>"
+            xml << "<DATA_TRANSAKCJI>2014-10-${20 + index}</DATA_TRANSAKCJI><OPIS>PRZELEW</OPIS><BANK>BRE</BANK>"
+            xml << "<RACHUNEK>${index == 2 ? '' : PAYER_ACCOUNT}</RACHUNEK><KWOTA>1 ${index}48,20</KWOTA><STRONA>${['C', 'D', 'RD'][index]}</STRONA>"
+            xml << "<WALUTA>EUR</WALUTA><NAZWA1>${PAYER_NAMES[index]}</NAZWA1><NAZWA2>${PAYER_ADDRESSES[index]}</NAZWA2><NAZWA3/><NAZWA4></NAZWA4>"
+            xml << "<TRESC1>${TITLES[index]}</TRESC1><TRESC2>CZ\u0118\u015A\u0106 2</TRESC2><TRESC3/><TRESC4></TRESC4></OPERACJA>"
+        }
+        xml << '</WYCIAG></WYCIAGI>'
+        return xml.toString().getBytes(ENCODING)
+    }
+
+    private static byte[] dayStatement(String declaredEncoding, int operations) {
+        StringBuilder xml = new StringBuilder(declaration(declaredEncoding))
+        xml << '<OPERACJE num="1">'
+        (0..<operations).each { int index ->
+            xml << "<OPERACJA><ORD>${index + 1}</ORD><ID_TRANSAKCJI>T${index}</ID_TRANSAKCJI><ID_AN_DEF>A${index}</ID_AN_DEF>"
+            xml << "<DATA_WALUTY>2014-10-${20 + index}</DATA_WALUTY><TRESC1>${TITLES[index]}</TRESC1><TRESC2>CZ\u0118\u015A\u0106 2</TRESC2><TRESC3/>"
+            xml << "<TRESC4></TRESC4><KWOTA>1 ${index}48,20</KWOTA><WALUTA>${index == 1 ? 'EUR' : 'PLN'}</WALUTA><NAZWA1>${PAYER_NAMES[index]}</NAZWA1>"
+            xml << "<NAZWA2>${PAYER_ADDRESSES[index]}</NAZWA2><NAZWA3/><NAZWA4></NAZWA4><STRONA>${index == 1 ? 'W' : 'M'}</STRONA>"
+            xml << "<RACHUNEK>${index == 2 ? '' : PAYER_ACCOUNT}</RACHUNEK><BANK>BRE</BANK></OPERACJA>"
+        }
+        xml << '</OPERACJE>'
+        return xml.toString().getBytes(ENCODING)
+    }
+
+    private static String declaration(String declaredEncoding) {
+        return declaredEncoding == null ? '' : "<?xml version=\"1.0\" encoding=\"${declaredEncoding}\"?>"
+    }
+
+    private static List<Object> fields(PaymentInfo payment) {
+        return [payment.amount?.toPlainString(), payment.bookingDate?.time, payment.type, payment.accountNumber, payment.companyBankAccount,
+                payment.unit, payment.details, payment.accountHolderName, payment.accountHolderAddress?.location6, payment.bankReference]
+    }
+
+    /**
+     * GetinBankMonthStatementParser before streaming: the whole document decoded as ISO-8859-2 and unmarshalled at once.
+     */
+    private static List<PaymentInfo> legacyMonth(byte[] statement) {
+        Wychagi statements = new JaxbUnmarshaller(Wychagi.package.name).unmarshall(new String(statement, 'ISO8859_2'))
+        if (statements.WYCIAG == null) {
+            return []
+        }
+        return statements.WYCIAG.OPERACJA.collect { operation ->
+            legacyPayment([operation.TRESC1, operation.TRESC2, operation.TRESC3, operation.TRESC4],
+                    [operation.NAZWA1, operation.NAZWA2, operation.NAZWA3, operation.NAZWA4], operation.RACHUNEK, operation.KWOTA,
+                    operation.DATAWALUTY, operation.STRONA.startsWith('C') || operation.STRONA.startsWith('RD'),
+                    legacyAccountNumber(statements.rachunek), statements.waluta)
+        }
+    }
+
+    /**
+     * GetinBankDayStatementParser before streaming.
+     */
+    private static List<PaymentInfo> legacyDay(byte[] statement) {
+        Operacje operations = new JaxbUnmarshaller(Operacje.package.name).unmarshall(new String(statement, 'ISO8859_2'))
+        return operations.OPERACJA.collect { operation ->
+            legacyPayment([operation.TRESC1, operation.TRESC2, operation.TRESC3, operation.TRESC4],
+                    [operation.NAZWA1, operation.NAZWA2, operation.NAZWA3, operation.NAZWA4], operation.RACHUNEK, operation.KWOTA,
+                    operation.DATAWALUTY, operation.STRONA == 'M', DAY_ACCOUNT, operation.WALUTA)
+        }
+    }
+
+    private static PaymentInfo legacyPayment(List<String> details, List<String> names, String accountNumber, String amount,
+                                             XMLGregorianCalendar bookingDate, boolean incoming, String companyBankAccount, String unit) {
+        PaymentInfo payment = new PaymentInfo()
+        payment.details = details.collect { it ?: '' }.join(' ').trim()
+        payment.companyBankAccount = companyBankAccount
+        String accountHolderNameAndAddress = names.collect { it ?: '' }.join(' ')
+        String accountHolderName = BanksUtils.parsePersonNameFromDetails(accountHolderNameAndAddress.trim())
+        payment.accountHolderAddress = new AddressInfo(location6: StringUtils.removeStart(accountHolderNameAndAddress, accountHolderName).trim())
+        payment.accountHolderName = accountHolderName
+        payment.accountNumber = legacyAccountNumber(accountNumber)
+        payment.amount = new BigDecimal(amount.replace(',', '.').replace(' ', ''))
+        payment.bookingDate = bookingDate?.toGregorianCalendar()?.time
+        payment.type = incoming ? PaymentType.INCOMING : PaymentType.OUTGOING
+        payment.unit = unit
+        payment.bankReference = BanksUtils.md5BankReference(payment)
+        paymentInfoModifier.alterPaymentTypeIfSentFromImmediateIdentificationProvider(payment)
+        return payment
+    }
+
+    private static String legacyAccountNumber(String accountNumber) {
+        if (StringUtils.length(accountNumber) < 2) {
+            return null
+        }
+        return accountNumber.startsWith('PL') ? accountNumber : 'PL' + accountNumber
+    }
+}
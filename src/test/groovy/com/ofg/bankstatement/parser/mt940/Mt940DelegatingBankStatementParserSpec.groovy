@@ -0,0 +1,96 @@
+package com.ofg.bankstatement.parser.mt940
+
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.util.function.Consumer
+
+import static com.ofg.bankstatement.parser.StatementParsers.MT940_DELEGATING
+import static com.ofg.bankstatement.parser.StatementParsers.instantiate
+import static com.ofg.loans.pl.db.MiniCreditProductBankAccountsFixture.POCZTOWY_ACCOUNT
+
+class Mt940DelegatingBankStatementParserSpec extends Specification {
+
+    private static final int HEADER_PREFIX_LIMIT = 64 * 1024
+
+    private static final String ACCOUNT = POCZTOWY_ACCOUNT.substring(2)
+
+    Mt940DelegatingBankStatementParser parser = instantiate(MT940_DELEGATING) as Mt940DelegatingBankStatementParser
+
+    @Unroll
+    def 'should read the company bank account from a header with #lineEnding line endings'() {
+        expect:
+            parser.readCompanyBankAccount(bytes(header(':20:MT940', lineEnding))) == ACCOUNT
+        where:
+            lineEnding << ['\r\n', '\r', '\n']
+    }
+
+    def 'should read the company bank account from a header filling the whole prefix'() {
+        given:
+            String header = header(':20:MT940', '\r\n')
+            byte[] prefix = bytes(header + ':86:' + 'X' * (HEADER_PREFIX_LIMIT - header.length() - 4))
+        expect:
+            prefix.length == HEADER_PREFIX_LIMIT
+            parser.readCompanyBankAccount(prefix) == ACCOUNT
+    }
+
+    def 'should not read the company bank account from the part of a :25: line within the prefix'() {
+        given:
+            // the prefix ends two characters before the end of the :25: line
+            String firstLine = ':20:' + 'X' * (HEADER_PREFIX_LIMIT - ACCOUNT.length() - 8)
+            byte[] prefix = Arrays.copyOf(bytes(header(firstLine, '\r\n')), HEADER_PREFIX_LIMIT)
+        expect:
+            new String(prefix, 'Cp1250').endsWith(":25:${ACCOUNT.substring(0, ACCOUNT.length() - 2)}")
+        when:
+            parser.readCompanyBankAccount(prefix)
+        then:
+            NullPointerException e = thrown()
+            e.message == 'imported payment statement file not contain bank account'
+    }
+
+    def 'should fail on a header without the company bank account'() {
+        when:
+            parser.readCompanyBankAccount(bytes(':20:MT940\r\n:28C:00001\r\n:60F:C141001PLN0,00\r\n:25:' + ACCOUNT + '\r\n'))
+        then:
+            NullPointerException e = thrown()
+            e.message == 'imported payment statement file not contain bank account'
+    }
+
+    def 'should fail on a statement whose company bank account is past the header prefix'() {
+        given:
+            byte[] statement = bytes(header(':20:' + 'X' * HEADER_PREFIX_LIMIT, '\r\n'))
+        when:
+            parser.importBankStatement(new ByteArrayInputStream(statement), { } as Consumer<PaymentInfo>)
+        then:
+            NullPointerException e = thrown()
+            e.message == 'imported payment statement file not contain bank account'
+    }
+
+    @Unroll
+    def 'should fail on a statement without payments read from a #source'() {
+        given:
+            byte[] statement = bytes(header(':20:MT940', '\r\n') + '\r\n \r\n')
+            Consumer<PaymentInfo> ignored = { } as Consumer<PaymentInfo>
+        when:
+            if (source == 'buffer') {
+                parser.importBankStatement(ByteBuffer.wrap(statement), ignored)
+            } else {
+                parser.importBankStatement(new ByteArrayInputStream(statement), ignored)
+            }
+        then:
+            IllegalStateException e = thrown()
+            e.message == 'No Mt940 payments found'
+        where:
+            source << ['stream', 'buffer']
+    }
+
+    private static String header(String firstLine, String lineEnding) {
+        return [firstLine, ":25:${ACCOUNT}", ':28C:00001', ':60F:C141001PLN0,00', '']*.toString().join(lineEnding)
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes('Cp1250')
+    }
+}
@@ -0,0 +1,171 @@
+package com.ofg.bankstatement.parser.mt940
+
+import com.google.common.base.Throwables
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import org.springframework.test.util.ReflectionTestUtils
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.function.Consumer
+
+import static com.ofg.bankstatement.parser.StatementParsers.MILLENIUM
+import static com.ofg.bankstatement.parser.StatementParsers.instantiate
+
+/**
+ * Blocks converted on the {@link Mt940ConversionPool} have to come out as they do converted on the importing thread.
+ */
+class Mt940ParallelConversionSpec extends Specification {
+
+    private static final int CHUNK_SIZE = 256
+
+    private static final int BLOCKS = 4 * CHUNK_SIZE + 176
+
+    private static final int BLOCKS_PER_HEADER = 300
+
+    private static final int FAILING_BLOCK = 100
+
+    RecordingPool pool = new RecordingPool(2)
+
+    Mt940ConversionPool conversionPool = new Mt940ConversionPool(2)
+
+    def setup() {
+        conversionPool.shutdown()
+        ReflectionTestUtils.setField(conversionPool, 'pool', pool)
+    }
+
+    def cleanup() {
+        pool.shutdownNow()
+    }
+
+    @Unroll
+    def 'should import the same payments in the same order converted on the pool from a #source'() {
+        given:
+            byte[] bytes = statement()
+            Mt940BankStatementParser sequential = instantiate(MILLENIUM) as Mt940BankStatementParser
+            Mt940BankStatementParser parallel = instantiate(MILLENIUM) as Mt940BankStatementParser
+            ReflectionTestUtils.setField(parallel, 'conversionPool', conversionPool)
+        when:
+            List<List<Object>> expected = imported { sequential.importBankStatement(new ByteArrayInputStream(bytes), it) }
+            List<List<Object>> converted = imported {
+                buffered ? parallel.importBankStatement(ByteBuffer.wrap(bytes), it) : parallel.importBankStatement(new ByteArrayInputStream(bytes), it)
+            }
+        then:
+            pool.submitted.size() == 5
+            converted == expected
+            expected*.get(0) == (1..BLOCKS).collect { new BigDecimal("${it}.00") }
+            expected*.get(4).unique() == (0..<4).collect { companyBankAccount(it) }
+            expected.count { it[4] == companyBankAccount(3) } == BLOCKS - 3 * BLOCKS_PER_HEADER
+        where:
+            source   | buffered
+            'stream' | false
+            'buffer' | true
+    }
+
+    @Timeout(10)
+    def 'should hand the failure of a block to the caller and cancel the chunks in flight'() {
+        given:
+            FailingParser parser = new FailingParser(FAILING_BLOCK, CHUNK_SIZE)
+            ReflectionTestUtils.setField(parser, 'conversionPool', conversionPool)
+            List<PaymentInfo> payments = []
+        when:
+            parser.importBankStatement(new ByteArrayInputStream(statement()), { payments << it } as Consumer<PaymentInfo>)
+        then:
+            IllegalStateException e = thrown()
+            Throwables.getRootCause(e).message == "block ${FAILING_BLOCK} is broken".toString()
+            payments.isEmpty()
+            pool.submitted.size() == 5
+            pool.submitted[0].completedAbnormally
+            pool.submitted.tail().every { it.cancelled }
+        cleanup:
+            parser.released.countDown()
+    }
+
+    private static List<List<Object>> imported(Closure importing) {
+        List<PaymentInfo> payments = []
+        importing({ payments << it } as Consumer<PaymentInfo>)
+        return payments.collect { PaymentInfo payment ->
+            [payment.amount, payment.bookingDate?.time, payment.type, payment.accountNumber, payment.companyBankAccount, payment.details,
+             payment.accountHolderName, payment.bankReference]
+        }
+    }
+
+    /**
+     * @return statement of {@link #BLOCKS} transactions, the amount of each its position counted from 1, under a new
+     * header every {@link #BLOCKS_PER_HEADER} transactions
+     */
+    private static byte[] statement() {
+        List<String> lines = []
+        (0..<BLOCKS).each { int index ->
+            if (index % BLOCKS_PER_HEADER == 0) {
+                lines.addAll([':20:ST141031', ":25:${companyBankAccount(index.intdiv(BLOCKS_PER_HEADER) as int)}", ':28C:00001',
+                              ':60F:C141001PLN0,00'])
+            }
+            lines.addAll([":61:1410201020CN${index + 1},00NTRFNONREF", ':86:051', '<00PRZELEW KRAJOWY', "<20SPLATA ${index}", '<27JAN KOWALSKI',
+                          "<63REF${index}"])
+            if (index % BLOCKS_PER_HEADER == BLOCKS_PER_HEADER - 1 || index == BLOCKS - 1) {
+                lines << ':62F:C141031PLN0,00'
+            }
+        }
+        return lines*.toString().join('\r\n').getBytes('windows-1250')
+    }
+
+    private static String companyBankAccount(int header) {
+        return "/PL2711402004000030020135${String.format('%04d', header)}".toString()
+    }
+
+    /**
+     * Keeps the tasks of the chunks submitted to it.
+     */
+    private static class RecordingPool extends ForkJoinPool {
+
+        final List<ForkJoinTask<?>> submitted = Collections.synchronizedList([])
+
+        RecordingPool(int parallelism) {
+            super(parallelism)
+        }
+
+        @Override
+        <T> ForkJoinTask<T> submit(Callable<T> task) {
+            ForkJoinTask<T> submittedTask = super.submit(task)
+            submitted << submittedTask
+            return submittedTask
+        }
+    }
+
+    /**
+     * Fails on a block of the first chunk and holds the blocks of the later chunks until released, so none of them is
+     * converted before the failure reaches the importing thread.
+     */
+    private static class FailingParser extends Mt940BankStatementParser {
+
+        private final int failingBlock
+
+        private final int heldFromBlock
+
+        final CountDownLatch released = new CountDownLatch(1)
+
+        FailingParser(int failingBlock, int heldFromBlock) {
+            this.failingBlock = failingBlock
+            this.heldFromBlock = heldFromBlock
+        }
+
+        @Override
+        protected PaymentInfo getPaymentInfo(Mt940BankStatementParser.Mt940Payment block) {
+            PaymentInfo payment = super.getPaymentInfo(block)
+            int index = payment.amount.intValue() - 1
+            if (index == failingBlock) {
+                throw new IllegalStateException("block ${index} is broken")
+            }
+            if (index >= heldFromBlock) {
+                released.await()
+            }
+            return payment
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.ofg.bankstatement.parser.mt940
+
+import com.ofg.bankstatement.parser.BankStatementParser
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.Consumer
+
+import static com.ofg.bankstatement.parser.StatementParsers.*
+import static com.ofg.loans.pl.db.MiniCreditProductBankAccountsFixture.POCZTOWY_ACCOUNT
+
+/**
+ * The byte entry points split the raw statement themselves, so they have to give the same payments as the line reader
+ * behind the stream entry point.
+ */
+class Mt940StatementImportSpec extends Specification {
+
+    private static final Map<String, String> LINE_ENDINGS = ['CRLF': '\r\n', 'CR': '\r', 'LF': '\n']
+
+    private static final Map<String, String> PARSERS = [ING: ING, Alior: ALIOR, Millenium: MILLENIUM, Kredyt: KREDYT, Pocztowy: MT940_DELEGATING]
+
+    private static final Map<String, String> ENCODINGS = [ING: 'Cp852', Alior: 'windows-1250', Millenium: 'windows-1250', Kredyt: 'windows-1250',
+                                                          Pocztowy: 'UTF8']
+
+    private static final String ACCOUNT = '12114020040000310212345678'
+
+    private static final String SECOND_ACCOUNT = '27114020040000300201355387'
+
+    private static final String PAYER_ACCOUNT = '61109010140000071219812874'
+
+    private static final List<String> PAYER_NAMES = ['PAWE\u0141 GRZ\u0118DA', '\u017BANETA \u015AWI\u0104TEK', 'JAN KOWALSKI']
+
+    private static final List<String> PAYER_ADDRESSES = ['UL. \u017B\u00D3\u0141KIEWSKIEGO 5 90-001 \u0141\u00D3D\u0179', 'UL. D\u0141UGA 1 30-001 KRAK\u00D3W',
+                                                        'UL. PROSTA 1 00-950 WARSZAWA']
+
+    private static final List<String> TITLES = ['SP\u0141ATA PO\u017BYCZKI NR 1', 'RATA ZA UMOW\u0118 2', 'ZWROT NADP\u0141ATY 3']
+
+    @Unroll
+    def 'should import the same #format payments from a stream, a buffer and a file with #lineEnding line endings'() {
+        given:
+            BankStatementParser parser = instantiate(PARSERS[format])
+            byte[] bytes = statement(format, LINE_ENDINGS[lineEnding])
+            Path file = Files.write(Files.createTempFile('mt940-', '.txt'), bytes)
+        when:
+            List<List<Object>> streamed = imported { parser.importBankStatement(new ByteArrayInputStream(bytes), it) }
+            List<List<Object>> buffered = imported { parser.importBankStatement(ByteBuffer.wrap(bytes), it) }
+            List<List<Object>> direct = imported { parser.importBankStatement(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip(), it) }
+            List<List<Object>> mapped = imported { parser.importBankStatement(file, it) }
+        then:
+            streamed*.get(0) == (0..<6).collect { new BigDecimal("${it + 1}8.20") }
+            streamed*.get(4).unique().size() == 2
+            streamed*.get(8) == PAYER_NAMES * 2
+            buffered == streamed
+            direct == streamed
+            mapped == streamed
+        cleanup:
+            Files.deleteIfExists(file)
+        where:
+            [format, lineEnding] << [PARSERS.keySet().toList(), LINE_ENDINGS.keySet().toList()].combinations()
+    }
+
+    private static List<List<Object>> imported(Closure importing) {
+        List<PaymentInfo> payments = []
+        importing({ payments << it } as Consumer<PaymentInfo>)
+        return payments.collect { PaymentInfo payment ->
+            [payment.amount, payment.bookingDate?.time, payment.type, payment.accountNumber, payment.companyBankAccount, payment.unit,
+             payment.bankOperationType, payment.bankOperationName, payment.accountHolderName, payment.accountHolderAddress?.location6,
+             payment.details, payment.bankReference]
+        }
+    }
+
+    /**
+     * @return statement of two header blocks of three transactions each, with blank lines and payer data outside ASCII
+     */
+    private static byte[] statement(String format, String lineEnding) {
+        List<String> lines = ['']
+        [ACCOUNT, SECOND_ACCOUNT].eachWithIndex { String account, int block ->
+            lines.addAll(header(format, account, block))
+            (0..2).each { int position ->
+                lines.addAll(transaction(format, block * 3 + position))
+                lines.addAll(position == 0 ? [' \t', '', ' '] : [])
+            }
+            lines.addAll(footer(format))
+            lines.addAll(['', ''])
+        }
+        return lines*.toString().join(lineEnding).getBytes(ENCODINGS[format])
+    }
+
+    private static List<String> header(String format, String account, int block) {
+        switch (format) {
+            case 'ING':
+                return [':20:MT942', ":25:/PL${account}", ':28C:1', ':13:1410310000']
+            case 'Alior':
+                return [':20:ST141031', ":25:/PL${account}", ':28C:00001', ':13D:1410310000+0100']
+            case 'Kredyt':
+                return [':20:ST141031', ":25:/PL${account}", ':28C:00001', block == 0 ? ':60F:C141001PLN0,00' : ':60M:C141001PLN0,00']
+            case 'Pocztowy':
+                // the first block routes the statement to the Pocztowy delegate
+                return [':20:MT940', ":25:${block == 0 ? POCZTOWY_ACCOUNT.substring(2) : account}", ':28C:00001', ':60F:C141001PLN0,00']
+            default:
+                return [':20:ST141031', ":25:/PL${account}", ':28C:00001', ':60F:C141001PLN0,00']
+        }
+    }
+
+    private static List<String> transaction(String format, int index) {
+        String amount = "${index + 1}8,20"
+        String day = "${20 + index}"
+        String payerName = PAYER_NAMES[index % 3]
+        String payerAddress = PAYER_ADDRESSES[index % 3]
+        String title = TITLES[index % 3]
+        switch (format) {
+            case 'ING':
+                return [":61:1410${day}10${day}C${amount}NTRFNONREF", ':86:051~00TRF', "~20${title}", '~21', "~29${PAYER_ACCOUNT}",
+                        "~31${PAYER_ACCOUNT.substring(2, 10)}", "~32${payerName}", "~33${payerAddress}"]
+            case 'Kredyt':
+                return [":61:1410${day}CN${amount}56C1NONREF", ":86:>20${title}", ">31${PAYER_ACCOUNT}", ">32${payerName} ${payerAddress}"]
+            case 'Pocztowy':
+                return [":61:1410${day}10${day}C${amount}", ':86:051', '<00PRZELEW KRAJOWY', "<20${title}", "<27${payerName}", "<28${payerAddress}",
+                        '<29', "<31${PAYER_ACCOUNT}", "<63REF${index}"]
+            default:
+                return [":61:1410${day}10${day}CN${amount}NTRFNONREF", ':86:051', '<00PRZELEW KRAJOWY', "<20${title}", '<21', "<27${payerName}",
+                        "<28${payerAddress}", '<29', "<30${PAYER_ACCOUNT.substring(2, 10)}", "<31${PAYER_ACCOUNT.substring(10)}", "<32${payerName}",
+                        "<38${PAYER_ACCOUNT}", "<63REF${index}"]
+        }
+    }
+
+    private static List<String> footer(String format) {
+        switch (format) {
+            case 'ING':
+                return ['-']
+            case 'Alior':
+                return [':90D:0PLN0,00', ':90C:0PLN0,00']
+            default:
+                return [':62F:C141031PLN0,00']
+        }
+    }
+}
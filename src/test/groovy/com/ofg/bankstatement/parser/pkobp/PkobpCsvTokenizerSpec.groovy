@@ -0,0 +1,104 @@
+package com.ofg.bankstatement.parser.pkobp
+
+import com.google.common.base.Splitter
+import com.ofg.bankstatement.parser.CompanyBankAccounts
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import org.apache.commons.lang.StringUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PkobpCsvTokenizerSpec extends Specification {
+
+    private static final String COMPANY_ACCOUNT = 'PL27114020040000300201355387'
+
+    private static final String HEADER = '"Data operacji","Data waluty","Typ transakcji","Opis transakcji","Dane kontrahenta","Tytu\u0142","Kwota","Waluta"'
+
+    private static final String INCOMING_ROW = '"2014-10-31","2014-10-31","Wp\u0142yw na rachunek","Nr rach. przeciwst.: 61 1090 1014 0000 0712 1981 2874",' +
+            '"Dane adr. rach. przeciwst.:  JAN KOWALSKI  UL. PROSTA 1 WARSZAWA","Tytu\u0142:  SPLATA 123","+48.20","PLN"'
+
+    private static final long SEED = 20
+
+    PkobpCsvTokenizer tokenizer = new PkobpCsvTokenizer()
+
+    @Unroll
+    def 'should split [#row] into the cells of the Splitter it replaced'() {
+        expect:
+            cells(row) == legacyCells(row)
+        where:
+            row << [HEADER, INCOMING_ROW, '"2014-10-31","2014-10-31","Op\u0142ata","Op\u0142ata za przelew","-1.50","PLN","",""',
+                    '"",""', '""', '","', '",",","', '"a","b",', ',"a","b"', '"a",,"b"', '"a","b""', '""a","b"', '"a"b","c"d"',
+                    '"a""b","c"', '"a" ,"b"', 'a","b', 'a,b,c', '"a","","b"', '"a",",","b"', '"a","b",,', '"",",""', '  "a","b"  ',
+                    '"a","b"\t', '"', ',', '"a"\u00A0']
+    }
+
+    @Unroll
+    def 'should find no cells in the blank row [#row] as before'() {
+        expect:
+            tokenizer.tokenize(row) == 0
+            legacyCells(row) == []
+        where:
+            row << ['', ' ', '\t', ' \t \u000B ', '\u001C']
+    }
+
+    def 'should split random rows into the cells of the Splitter it replaced'() {
+        given:
+            Random random = new Random(SEED)
+            List<String> alphabet = ['"', ',', '","', 'a', '1', ' ', '\t']
+        expect:
+            (1..100000).every {
+                StringBuilder row = new StringBuilder()
+                random.nextInt(12).times { row.append(alphabet[random.nextInt(alphabet.size())]) }
+                cells(row.toString()) == legacyCells(row.toString())
+            }
+    }
+
+    def 'should answer empty cells and amounts from the cell bounds'() {
+        when:
+            int cellCount = tokenizer.tokenize('"2014-10-31","","Korekta","-1234.50","PLN","48,20",""')
+        then:
+            cellCount == 7
+            (0..<cellCount).collect { tokenizer.isEmpty(it) } == [false, true, false, false, false, false, true]
+            tokenizer.amount(5) == new BigDecimal('48.20')
+            tokenizer.operation(2) == PkobpOperation.CORRECTION_ON_ACCOUNT
+    }
+
+    def 'should not parse the booking date of a row it skips'() {
+        given:
+            PkobpCsvBankStatementParser parser = new PkobpCsvBankStatementParser()
+            parser.companyBankAccounts = new CompanyBankAccounts(null, 0) {
+                @Override
+                String getAccountNumber(String ibanBankCode) {
+                    return COMPANY_ACCOUNT
+                }
+            }
+            String statement = [HEADER, '"31.10.2014","31.10.2014","Zlecenie sta\u0142e","opis","","","-10.00","PLN"', INCOMING_ROW].join('\r\n')
+        when:
+            List<PaymentInfo> payments = parser.importBankStatement(new ByteArrayInputStream(statement.getBytes('ISO-8859-2')))
+        then:
+            payments.size() == 1
+            payments[0].amount == new BigDecimal('48.20')
+            payments[0].accountNumber == 'PL61109010140000071219812874'
+            payments[0].companyBankAccount == COMPANY_ACCOUNT
+            payments[0].details == 'SPLATA 123'
+    }
+
+    private List<String> cells(String row) {
+        int cellCount = tokenizer.tokenize(row)
+        return (0..<cellCount).collect { tokenizer.cell(it) }
+    }
+
+    /**
+     * The row splitting of PkobpCsvBankStatementParser before the tokenizer.
+     */
+    private static List<String> legacyCells(String row) {
+        if (StringUtils.isBlank(row)) {
+            return []
+        }
+        return Splitter.on('","').split(row).collect { String cell ->
+            cell = StringUtils.removeStart(cell, ',')
+            cell = StringUtils.removeEnd(cell, ',')
+            cell = StringUtils.removeEnd(cell, '"')
+            return StringUtils.removeStart(cell, '"')
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ofg.bankstatement.util
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class AmountDecoderSpec extends Specification {
+
+    private static final String AMOUNTS_FILE = '/bankstatement/amounts.txt'
+
+    private static final long SEED = 24
+
+    @Unroll
+    def 'should decode statement amount [#amount] as before'() {
+        expect:
+            decoded { AmountDecoder.decode(amount.trim()) } == decoded { legacy(amount.trim()) }
+            decoded { AmountDecoder.decodeIgnoringSpaces(amount) } == decoded { legacyIgnoringSpaces(amount) }
+        where:
+            amount << amounts()
+    }
+
+    def 'should decode the amount in the middle of a line'() {
+        given:
+            String line = ':61:1410011001CN48,20NTRFNONREF'
+        expect:
+            decoded { AmountDecoder.decode(line, 16, 21) } == decoded { legacy(line.substring(16, 21)) }
+    }
+
+    def 'should keep the scale the amount was written with'() {
+        expect:
+            AmountDecoder.decode(amount).toString() == decoded
+        where:
+            amount   || decoded
+            '100'    || '100'
+            '1000,'  || '1000'
+            '12,5'   || '12.5'
+            '48,20'  || '48.20'
+            '-0,00'  || '0.00'
+            ',5'     || '0.5'
+    }
+
+    @Unroll
+    def 'should reject [#amount] as before'() {
+        when:
+            AmountDecoder.decode(amount)
+        then:
+            thrown(NumberFormatException)
+        where:
+            amount << ['', '-', ',', '1,2,3', '--5', '+-5', '1 234,56', '12,3O', '12 PLN']
+    }
+
+    def 'should decode random amounts as before'() {
+        given:
+            Random random = new Random(SEED)
+        expect:
+            (1..100000).every {
+                String amount = randomAmount(random)
+                decoded { AmountDecoder.decode(amount) } == decoded { legacy(amount) } &&
+                        decoded { AmountDecoder.decodeIgnoringSpaces(amount) } == decoded { legacyIgnoringSpaces(amount) }
+            }
+    }
+
+    private static List<String> amounts() {
+        return AmountDecoderSpec.getResource(AMOUNTS_FILE).getText('UTF-8').readLines()
+                .findAll { !it.startsWith('#') && !it.empty }
+    }
+
+    private static String randomAmount(Random random) {
+        StringBuilder amount = new StringBuilder()
+        if (random.nextBoolean()) {
+            amount.append(random.nextBoolean() ? '-' : '+')
+        }
+        int digits = 1 + random.nextInt(20)
+        int separator = random.nextInt(digits + 1)
+        digits.times {
+            if (it == separator) {
+                amount.append(random.nextBoolean() ? ',' : '.')
+            }
+            if (it > 0 && random.nextInt(8) == 0) {
+                amount.append(' ')
+            }
+            amount.append(random.nextInt(10))
+        }
+        return amount.toString().trim()
+    }
+
+    /**
+     * @return the amount with its scale, which {@code ==} of BigDecimals ignores, or the exception decoding threw
+     */
+    private static def decoded(Closure<BigDecimal> decoding) {
+        try {
+            BigDecimal amount = decoding()
+            return [amount.toPlainString(), amount.scale()]
+        } catch (NumberFormatException e) {
+            return e.class
+        }
+    }
+
+    private static BigDecimal legacy(String amount) {
+        return new BigDecimal(amount.replace(',', '.'))
+    }
+
+    private static BigDecimal legacyIgnoringSpaces(String amount) {
+        return new BigDecimal(amount.replace(',', '.').replace(' ', ''))
+    }
+}
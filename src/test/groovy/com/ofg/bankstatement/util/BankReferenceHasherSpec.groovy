@@ -0,0 +1,101 @@
+package com.ofg.bankstatement.util
+
+import com.ofg.loans.api.beans.payment.PaymentInfo
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.text.SimpleDateFormat
+
+class BankReferenceHasherSpec extends Specification {
+
+    private static final String GOLDEN_FILE = '/bankstatement/bank-references.txt'
+
+    private static final String ACCOUNT = 'PL61109010140000071219812874'
+
+    private static final String COMPANY_ACCOUNT = 'PL27114020040000300201355387'
+
+    private static final long SEED = 14
+
+    @Unroll
+    def 'should generate golden bank reference #reference'() {
+        given:
+            PaymentInfo payment = payment(row)
+        expect:
+            BankReferenceHasher.md5BankReference(payment) == reference
+            BankReferenceHasher.legacyBankReference(payment) == reference
+        where:
+            row << goldenRows()
+            reference = row[5]
+    }
+
+    def 'should generate the same references on every call of a thread'() {
+        given:
+            List<PaymentInfo> payments = goldenRows().collect { payment(it) }
+        when:
+            List<String> first = payments.collect { BankReferenceHasher.md5BankReference(it) }
+            List<String> second = payments.reverse().collect { BankReferenceHasher.md5BankReference(it) }.reverse()
+        then:
+            first == second
+    }
+
+    @Unroll
+    def 'should hash details [#details] in a single pass as the original implementation'() {
+        given:
+            PaymentInfo payment = payment(['2014-10-01', '1234.56', ACCOUNT, COMPANY_ACCOUNT, details])
+        expect:
+            new BankReferenceHasher().hash(payment) == BankReferenceHasher.legacyBankReference(payment)
+        where:
+            details << ['Zap\u0142ata za po\u017Cyczk\u0119\tnr 123 \r\n \u017B\u00D3\u0141\u0106 \u017Adziub\u0142o', 'rata\u000B1 \f z 12',
+                        'a\u0085b\u00A0c\u2028d\u3000e', '\u00FF\u0131\u017F\u01C5', '\u0800\uFFFD\uFFFF']
+    }
+
+    def 'should keep the leading zeros of a digest'() {
+        given:
+            List<PaymentInfo> payments = (0..255).collect { payment(['2014-10-01', '1234.56', ACCOUNT, COMPANY_ACCOUNT, "SPLATA ${it}".toString()]) }
+            PaymentInfo leadingZero = payments.find { BankReferenceHasher.legacyBankReference(it).startsWith('0') }
+        expect:
+            leadingZero != null
+            new BankReferenceHasher().hash(leadingZero) == BankReferenceHasher.legacyBankReference(leadingZero)
+    }
+
+    def 'should leave details the single pass can not reproduce to the original implementation'() {
+        given:
+            PaymentInfo payment = payment(['2014-10-01', '1234.56', ACCOUNT, COMPANY_ACCOUNT, details])
+        expect:
+            new BankReferenceHasher().hash(payment) == null
+            BankReferenceHasher.md5BankReference(payment) == BankReferenceHasher.legacyBankReference(payment)
+        where:
+            details << ['Stra\u00DFe', '\uFB01nalny', '\uD83D\uDE00']
+    }
+
+    def 'should hash random details as the original implementation'() {
+        given:
+            Random random = new Random(SEED)
+            String alphabet = 'aAzZ\u0105\u0104\u017C\u017B\u00F3\u00D3 \t\n\r\u000B\f\u00DF\uFB01\u01C5\u0131.,/-0123456789'
+        expect:
+            (1..20000).every {
+                StringBuilder details = new StringBuilder()
+                random.nextInt(100).times {
+                    details.append(random.nextInt(10) == 0 ? (char) random.nextInt(0xD000) : alphabet.charAt(random.nextInt(alphabet.length())))
+                }
+                PaymentInfo payment = payment(['2014-10-01', '1234.56', ACCOUNT, COMPANY_ACCOUNT, details.toString()])
+                BankReferenceHasher.md5BankReference(payment) == BankReferenceHasher.legacyBankReference(payment)
+            }
+    }
+
+    private static List<List<String>> goldenRows() {
+        return BankReferenceHasherSpec.getResource(GOLDEN_FILE).getText('UTF-8').readLines()
+                .findAll { !it.startsWith('#') && !it.empty }
+                .collect { it.split('\\|', -1) as List<String> }
+    }
+
+    private static PaymentInfo payment(List<String> row) {
+        PaymentInfo payment = new PaymentInfo()
+        payment.bookingDate = new SimpleDateFormat('yyyy-MM-dd').parse(row[0])
+        payment.amount = new BigDecimal(row[1])
+        payment.accountNumber = row[2] ?: null
+        payment.companyBankAccount = row[3] ?: null
+        payment.details = row[4] ? row[4].replace('\\t', '\t').replace('\\n', '\n') : null
+        return payment
+    }
+}
@@ -0,0 +1,147 @@
+package com.ofg.bankstatement.util
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.text.ParseException
+import java.text.SimpleDateFormat
+import java.time.LocalDate
+import java.time.ZoneId
+import java.util.function.Function
+
+class FixedWidthDateParserSpec extends Specification {
+
+    private static final String PATTERN = 'yyMMdd'
+
+    /**
+     * The multiplier of {@code FixedWidthDateParser#slot}, 0x9E3779B97F4A7C15 as a signed long.
+     */
+    private static final long GOLDEN_RATIO = -7046029254386353131L
+
+    List<String> delegated = []
+
+    FixedWidthDateParser parser = new FixedWidthDateParser(PATTERN, { String text ->
+        delegated << text
+        return date(text)
+    } as Function<String, Date>)
+
+    def 'should parse each of two dates sharing a memo slot as its own date'() {
+        given:
+            List<String> colliding = collidingDates()
+        when:
+            List<Date> parsed = [colliding[0], colliding[1], colliding[0], colliding[0], colliding[1]].collect { parser.parse(it) }
+        then:
+            parsed == [colliding[0], colliding[1], colliding[0], colliding[0], colliding[1]].collect { date(it) }
+            delegated == [colliding[0], colliding[1], colliding[0], colliding[1]]
+    }
+
+    def 'should parse a date once while it stays in the memo'() {
+        when:
+            List<Date> parsed = (1..3).collect { parser.parse('141031') } + (1..3).collect { parser.parse('|141031|', 1, 7) }
+        then:
+            parsed.every { it == date('141031') }
+            delegated == ['141031']
+    }
+
+    @Unroll
+    def 'should hand [#text], #kind, to the delegate every time'() {
+        when:
+            List<Date> parsed = (1..3).collect { parser.parse(text) }
+        then:
+            parsed == [date(text)] * 3
+            delegated == [text] * 3
+        where:
+            text         | kind
+            '2014-10-31' | 'of another pattern'
+            '1410311'    | 'too long'
+            '14103'      | 'too short'
+            '14-031'     | 'with a separator for a digit'
+            '1410 1'     | 'with a space for a digit'
+            ''           | 'empty'
+            '141332'     | 'of the pattern but no date'
+            '000000'     | 'of the pattern but no date'
+    }
+
+    def 'should not memoize a date the delegate failed on'() {
+        given:
+            int calls = 0
+            FixedWidthDateParser failing = new FixedWidthDateParser(PATTERN, { String text ->
+                if (calls++ == 0) {
+                    throw new IllegalArgumentException("unparseable date ${text}")
+                }
+                return date(text)
+            } as Function<String, Date>)
+        when:
+            failing.parse('141031')
+        then:
+            thrown(IllegalArgumentException)
+        when:
+            Date parsed = failing.parse('141031')
+        then:
+            parsed == date('141031')
+            calls == 2
+    }
+
+    @Unroll
+    def 'should give the epoch day of the date it parses from [#line] between #start and #end'() {
+        expect:
+            parser.parseEpochDay(line, start, end) == epochDay(parser.parse(line, start, end))
+            parser.parseEpochDay(line, start, end) == epochDay(parser.parse(line, start, end))
+        where:
+            line       | start | end
+            '141031'   | 0     | 6
+            '|141031|' | 1     | 7
+            '000101'   | 0     | 6
+            '991231'   | 0     | 6
+            '160229'   | 0     | 6
+            '140229'   | 0     | 6
+            '1410'     | 0     | 4
+            ' 1-10-31' | 0     | 6
+    }
+
+    def 'should give every caller a date of its own'() {
+        given:
+            Date first = parser.parse('141031')
+        when:
+            first.time = 0
+            Date second = parser.parse('141031')
+        then:
+            !first.is(second)
+            second == date('141031')
+            delegated == ['141031']
+    }
+
+    private static long epochDay(Date date) {
+        return date == null ? FixedWidthDateParser.NO_DATE : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay()
+    }
+
+    /**
+     * @return two dates of the pattern whose digits map to the same slot of the memo
+     */
+    private static List<String> collidingDates() {
+        Map<Integer, String> bySlot = [:]
+        LocalDate day = LocalDate.of(2014, 1, 1)
+        while (true) {
+            String text = String.format('%02d%02d%02d', day.year % 100, day.monthValue, day.dayOfMonth)
+            String sameSlot = bySlot.put(slot(Long.parseLong(text)), text)
+            if (sameSlot != null) {
+                return [sameSlot, text]
+            }
+            day = day.plusDays(1)
+        }
+    }
+
+    private static int slot(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> (Long.SIZE - Integer.numberOfTrailingZeros(FixedWidthDateParser.MEMO_SIZE)))
+    }
+
+    private static Date date(String text) {
+        SimpleDateFormat format = new SimpleDateFormat(text.length() == 10 ? 'yyyy-MM-dd' : PATTERN)
+        format.lenient = false
+        try {
+            return format.parse(text)
+        } catch (ParseException e) {
+            return null
+        }
+    }
+}
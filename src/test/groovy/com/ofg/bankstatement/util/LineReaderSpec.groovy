@@ -0,0 +1,130 @@
+package com.ofg.bankstatement.util
+
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.lang.Unroll
+
+import java.nio.charset.Charset
+
+class LineReaderSpec extends Specification {
+
+    private static final String SMILE = '\uD83D\uDE00'
+
+    private static final long SEED = 11
+
+    @Unroll
+    def 'should read lines of [#text] as BufferedReader does with chunks of #chunkSize chars'() {
+        given:
+            byte[] bytes = text.getBytes('UTF-8')
+        expect:
+            readLines(bytes, 'UTF-8', chunkSize) == legacyLines(bytes, 'UTF-8')
+        where:
+            [text, chunkSize] << [texts(), [1, 2, 3, 5, 8, 8 * 1024]].combinations()
+    }
+
+    def 'should join a \\r\\n split between two chunks into one terminator'() {
+        given:
+            byte[] bytes = 'abc\r\ndef\r\n\r\nghi'.getBytes('UTF-8')
+        expect:
+            readLines(bytes, 'UTF-8', 4) == ['abc', 'def', '', 'ghi']
+    }
+
+    def 'should read lines longer than the chunk'() {
+        given:
+            String longLine = 'x' * 1000
+            byte[] bytes = "${longLine}\r\n${longLine}y".getBytes('UTF-8')
+        expect:
+            readLines(bytes, 'UTF-8', 16) == [longLine, "${longLine}y".toString()]
+    }
+
+    def 'should read the last line without a terminator'() {
+        expect:
+            readLines('first\nlast'.getBytes('UTF-8'), 'UTF-8', 3) == ['first', 'last']
+            readLines('last'.getBytes('UTF-8'), 'UTF-8', 3) == ['last']
+            readLines('last\r'.getBytes('UTF-8'), 'UTF-8', 3) == ['last']
+            readLines(new byte[0], 'UTF-8', 3) == []
+    }
+
+    @Timeout(5)
+    def 'should read a surrogate pair not fitting the room left in the chunk'() {
+        given:
+            byte[] bytes = "a${SMILE}\r\n${SMILE}${SMILE}b".getBytes('UTF-8')
+        expect:
+            [1, 2, 3].every { readLines(bytes, 'UTF-8', it) == ["a${SMILE}".toString(), "${SMILE}${SMILE}b".toString()] }
+    }
+
+    @Unroll
+    def 'should replace malformed input #bytes as InputStreamReader does'() {
+        expect:
+            readLines(bytes as byte[], 'UTF-8', 2) == legacyLines(bytes as byte[], 'UTF-8')
+        where:
+            bytes << [[0x61, 0xC3, 0x0A, 0x62], [0xE2, 0x82], [0x61, 0x0D, 0xF0, 0x9F, 0x98], [0xFF, 0xFE, 0x0A, 0x0A], [0xC3, 0x0D, 0x0A, 0xC3, 0xB3]]
+    }
+
+    def 'should skip lines trim() left empty'() {
+        given:
+            byte[] bytes = ' \t\r\n\u0001\u0002\r\n\u00A0\r\n x \r\n\r\n\u000Bz'.getBytes('UTF-8')
+        expect:
+            readNonBlankLines(bytes, 'UTF-8', 2) == legacyLines(bytes, 'UTF-8').findAll { !it.trim().isEmpty() }
+            readNonBlankLines(bytes, 'UTF-8', 2) == ['\u00A0', ' x ', '\u000Bz']
+    }
+
+    def 'should read random statements as BufferedReader does'() {
+        given:
+            Random random = new Random(SEED)
+        expect:
+            (1..20000).every {
+                byte[] bytes = randomStatement(random)
+                String encoding = random.nextBoolean() ? 'UTF-8' : 'windows-1250'
+                int chunkSize = 1 + random.nextInt(16)
+                List<String> lines = legacyLines(bytes, encoding)
+                readLines(bytes, encoding, chunkSize) == lines &&
+                        readNonBlankLines(bytes, encoding, chunkSize) == lines.findAll { !it.trim().isEmpty() }
+            }
+    }
+
+    private static List<String> texts() {
+        return ['', 'a', 'a\n', 'a\r', 'a\r\n', '\r\n', '\n\r', '\r\r\n\n', 'a\r\nb', 'a\r\n\r\nb\r', ' \t \r\nx',
+                ':61:1410011001CN48,20NTRFNONREF\r\n:86:051\r\n<00PRZELEW', 'za\u017C\u00F3\u0142\u0107\r\ng\u0119\u015Bl\u0105 ja\u017A\u0144', "${SMILE}\r\n${SMILE}".toString()]
+    }
+
+    private static byte[] randomStatement(Random random) {
+        if (random.nextInt(4) == 0) {
+            byte[] bytes = new byte[random.nextInt(40)]
+            random.nextBytes(bytes)
+            return bytes
+        }
+        List<String> alphabet = ['a', 'b', ' ', '\t', '\r', '\n', '\u0142', '\u00E9', SMILE]
+        StringBuilder text = new StringBuilder()
+        random.nextInt(60).times {
+            text.append(alphabet[random.nextInt(alphabet.size())])
+        }
+        return text.toString().getBytes('UTF-8')
+    }
+
+    private static List<String> readLines(byte[] bytes, String encoding, int chunkSize) {
+        return read(bytes, encoding, chunkSize) { LineReader reader -> reader.readLine() }
+    }
+
+    private static List<String> readNonBlankLines(byte[] bytes, String encoding, int chunkSize) {
+        return read(bytes, encoding, chunkSize) { LineReader reader -> reader.readNonBlankLine() }
+    }
+
+    private static List<String> read(byte[] bytes, String encoding, int chunkSize, Closure<LineReader.Line> next) {
+        List<String> lines = []
+        LineReader reader = new LineReader(new ByteArrayInputStream(bytes), Charset.forName(encoding), chunkSize)
+        try {
+            LineReader.Line line
+            while ((line = next(reader)) != null) {
+                lines << line.toString()
+            }
+        } finally {
+            reader.close()
+        }
+        return lines
+    }
+
+    private static List<String> legacyLines(byte[] bytes, String encoding) {
+        return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), encoding)).readLines()
+    }
+}
@@ -0,0 +1,89 @@
+package com.ofg.bankstatement.util
+
+import org.apache.commons.lang.StringUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PersonNameParserSpec extends Specification {
+
+    private static final String CORPUS_FILE = '/bankstatement/payer-details.txt'
+
+    @Unroll
+    def 'should parse the same person name as before from [#details]'() {
+        expect:
+            BanksUtils.parsePersonNameFromDetails(details) == previousPersonName(details)
+        where:
+            details << corpus()
+    }
+
+    def 'should parse the same person names as before from recombined payer details'() {
+        given:
+            List<String> words = corpus().collectMany { it.split(' ') as List<String> } + ['', ' ', '  ', '\t', 'PAN', 'pani', 'ul.', 'Ws.', 'oS.']
+            Random random = new Random(2014)
+        when:
+            List<String> mismatches = (1..100000).collect {
+                (1..random.nextInt(10)).collect { words[random.nextInt(words.size())] }.join(random.nextBoolean() ? ' ' : '  ')
+            }.findAll { String details -> BanksUtils.parsePersonNameFromDetails(details) != previousPersonName(details) }
+        then:
+            mismatches.empty
+    }
+
+    def 'should parse empty name from missing details'() {
+        expect:
+            BanksUtils.parsePersonNameFromDetails(null) == ''
+            BanksUtils.parsePersonNameFromDetails('') == ''
+            BanksUtils.parsePersonNameFromDetails('PANI  ') == ''
+    }
+
+    private static List<String> corpus() {
+        return PersonNameParserSpec.getResource(CORPUS_FILE).getText('UTF-8').readLines().findAll { !it.startsWith('#') }
+    }
+
+    /**
+     * parsePersonNameFromDetails before the single pass parser.
+     */
+    private static String previousPersonName(String details) {
+        if (details == null) {
+            return ''
+        }
+        if (details.toUpperCase().startsWith('PAN')) {
+            int indexOfFirstSpace = details.indexOf(' ')
+            if (indexOfFirstSpace != -1) {
+                String potentialTitle = details.substring(0, indexOfFirstSpace).trim()
+                if ('PAN'.equalsIgnoreCase(potentialTitle) || 'PANI'.equalsIgnoreCase(potentialTitle)) {
+                    details = details.substring(indexOfFirstSpace).trim()
+                }
+            }
+        }
+
+        int indexOfSecondWhiteSpace = details.empty ? 0 : details.indexOf(' ', details.indexOf(' ') + 1)
+        Integer addressPrefixIndex = ['UL.', 'WS.', 'OS.'].collect { StringUtils.indexOfIgnoreCase(details, it) }.find { it > -1 }
+        int indexOfSpecAddressSymbols = addressPrefixIndex != null ? addressPrefixIndex : -1
+        int indexOfTwoWhiteSpaces = details.indexOf('  ')
+        int indexOfDigitSymbol = -1
+        for (int i = 0; i < details.length() && indexOfDigitSymbol == -1; i++) {
+            if (Character.isDigit(details.charAt(i))) {
+                indexOfDigitSymbol = i
+            }
+        }
+
+        int indexOfAddress = -1
+        if (indexOfDigitSymbol == -1 && indexOfSpecAddressSymbols == -1 && indexOfTwoWhiteSpaces == -1 && indexOfSecondWhiteSpace != -1) {
+            indexOfAddress = indexOfSecondWhiteSpace
+        }
+
+        indexOfDigitSymbol = indexOfDigitSymbol == -1 ? details.length() : indexOfDigitSymbol
+        indexOfSpecAddressSymbols = indexOfSpecAddressSymbols == -1 ? details.length() : indexOfSpecAddressSymbols
+        indexOfTwoWhiteSpaces = indexOfTwoWhiteSpaces == -1 ? details.length() : indexOfTwoWhiteSpaces
+
+        if (indexOfSpecAddressSymbols < indexOfTwoWhiteSpaces && indexOfSpecAddressSymbols < indexOfDigitSymbol) {
+            indexOfAddress = indexOfSpecAddressSymbols
+        } else if (indexOfTwoWhiteSpaces < indexOfSpecAddressSymbols && indexOfTwoWhiteSpaces < indexOfDigitSymbol) {
+            indexOfAddress = indexOfTwoWhiteSpaces
+        } else if (indexOfDigitSymbol < indexOfSpecAddressSymbols && indexOfDigitSymbol < indexOfTwoWhiteSpaces) {
+            indexOfAddress = indexOfSecondWhiteSpace
+        }
+
+        return details.substring(0, indexOfAddress == -1 ? details.length() : indexOfAddress).trim()
+    }
+}